@@ -0,0 +1,400 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 64-bit structural fingerprints of JSON values
+ *
+ * <p>The fingerprint of a value is consistent with {@link JsonNumEquals}: two
+ * equivalent values always have the same fingerprint. In particular, the
+ * fingerprint of an object does not depend on the order of its members, and
+ * numeric values are fingerprinted according to their mathematical value.</p>
+ *
+ * <p>Unlike {@link JsonNumEquals#hash(Object)}, the fingerprint is 64 bits
+ * wide, each level of the value is thoroughly mixed, and it only relies on
+ * algorithms specified here: a given value has the same fingerprint on all
+ * JVMs (values of other types than the JSON types, such as {@link
+ * com.fasterxml.jackson.databind.node.POJONode}s, excepted).</p>
+ *
+ * <p>Numbers whose value is exactly a double (integers up to 2^53 in absolute
+ * value, and decimals such as {@code 1.5}, but not {@code 0.1}) are
+ * fingerprinted through the bits of this double. All other numbers are
+ * fingerprinted through their exact value, as a decimal with no trailing
+ * zeroes: two numbers which merely round to the same double, such as {@code
+ * 9007199254740993} and {@code 9007199254740992}, do not collide.</p>
+ *
+ * <p>Different fingerprints mean that values are not equivalent. Equal
+ * fingerprints only mean that values are equivalent with high probability:
+ * 64-bit hashes do collide, and callers which need a definite answer must
+ * confirm equal fingerprints using {@link JsonNumEquals}. When fingerprints of
+ * values are kept around, comparing them is therefore a cheap pre-check before
+ * a full equivalence test.</p>
+ */
+public final class JsonFingerprint
+{
+    /*
+     * Seeds for the different types of values
+     */
+    private static final long NULL = 0x6a09e667f3bcc908L;
+    private static final long TRUE = 0xbb67ae8584caa73bL;
+    private static final long FALSE = 0x3c6ef372fe94f82bL;
+    private static final long NUMBER = 0xa54ff53a5f1d36f1L;
+    private static final long STRING = 0x510e527fade682d1L;
+    private static final long BINARY = 0x9b05688c2b3e6c1fL;
+    private static final long ARRAY = 0x1f83d9abfb41bd6bL;
+    private static final long OBJECT = 0x5be0cd19137e2179L;
+    private static final long OTHER = 0xcbbb9d5dc1059ed8L;
+    private static final long DECIMAL = 0x629a292a367cd507L;
+
+    /*
+     * Bound of the range of longs, as a double: 2^63 (exclusive)
+     */
+    private static final double MAX_LONG_AS_DOUBLE = 0x1p63;
+
+    /*
+     * Any integer with at most this many digits is exactly representable as a
+     * double; so are all powers of ten in this array, and all powers of five
+     * in the next one fit in a long
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+        1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long[] POWERS_OF_FIVE = new long[POWERS_OF_TEN.length];
+
+    static {
+        POWERS_OF_FIVE[0] = 1L;
+        for (int i = 1; i < POWERS_OF_FIVE.length; i++)
+            POWERS_OF_FIVE[i] = 5L * POWERS_OF_FIVE[i - 1];
+    }
+
+    /*
+     * The maximum number of significant bits of a double
+     */
+    private static final int DOUBLE_PRECISION = 53;
+    private static final int MAX_DOUBLE_BITS = 1024;
+
+    /*
+     * FNV-1a constants, used to hash strings
+     */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /*
+     * Multiplier used to combine array elements and object members
+     */
+    private static final long MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    private JsonFingerprint()
+    {
+    }
+
+    /**
+     * Compute the fingerprint of a JSON value
+     *
+     * @param node the value
+     * @return the fingerprint
+     * @throws NullPointerException value is null
+     */
+    public static long of(final JsonNode node)
+    {
+        return of(node, null);
+    }
+
+    /**
+     * Compute the fingerprint of a JSON value, using a cache
+     *
+     * <p>The cache maps containers to their fingerprint. Containers found in
+     * the cache are not walked again; fingerprints of containers which are
+     * not found are added to it. The cache should compare keys by identity
+     * (see for instance {@link com.google.common.collect.MapMaker#weakKeys()}),
+     * and values must not be modified while they are cached.</p>
+     *
+     * @param node the value
+     * @param cache the cache (may be null)
+     * @return the fingerprint
+     * @throws NullPointerException value is null
+     */
+    public static long of(final JsonNode node, final Map<JsonNode, Long> cache)
+    {
+        if (!node.isContainerNode() || node.size() == 0)
+            return leaf(node);
+
+        Long cached = cache == null ? null : cache.get(node);
+        if (cached != null)
+            return cached;
+
+        /*
+         * Containers are walked using an explicit stack: a frame is pushed for
+         * each non empty container, and popped once all its children have been
+         * fingerprinted.
+         */
+        final Deque<Frame> stack = new ArrayDeque<Frame>();
+        stack.push(new Frame(node));
+
+        Frame frame;
+        JsonNode child;
+        long value;
+
+        while (true) {
+            frame = stack.peek();
+            child = frame.next();
+            if (child != null) {
+                if (!child.isContainerNode() || child.size() == 0) {
+                    frame.add(leaf(child));
+                    continue;
+                }
+                cached = cache == null ? null : cache.get(child);
+                if (cached != null)
+                    frame.add(cached);
+                else
+                    stack.push(new Frame(child));
+                continue;
+            }
+            stack.pop();
+            value = frame.finish();
+            if (cache != null)
+                cache.put(frame.node, value);
+            if (stack.isEmpty())
+                return value;
+            stack.peek().add(value);
+        }
+    }
+
+    /**
+     * Fingerprint a value which is not a non empty container
+     *
+     * @param node the value
+     * @return the fingerprint
+     */
+    private static long leaf(final JsonNode node)
+    {
+        if (node.isNumber())
+            return number(node);
+        if (node.isTextual())
+            return mix(STRING ^ hash(node.textValue()));
+        if (node.isBoolean())
+            return node.booleanValue() ? TRUE : FALSE;
+        if (node.isNull())
+            return NULL;
+        if (node.isArray())
+            return mix(ARRAY);
+        if (node.isObject())
+            return mix(OBJECT);
+        if (node.isBinary())
+            return mix(BINARY ^ hash(binaryValue(node)));
+        return mix(OTHER ^ node.hashCode());
+    }
+
+    /**
+     * Fingerprint a number
+     *
+     * @param node the number
+     * @return the fingerprint
+     */
+    private static long number(final JsonNode node)
+    {
+        if (isExactDouble(node))
+            return mix(NUMBER ^ JsonNumEquals.numBits(node));
+
+        final BigDecimal decimal = exactValue(node).stripTrailingZeros();
+        return mix(DECIMAL ^ hash(decimal.unscaledValue().toByteArray())
+            + MULTIPLIER * decimal.scale());
+    }
+
+    /**
+     * Tell whether the value of a number is exactly a double
+     *
+     * <p>Equivalent numbers must give the same answer, whatever their types.
+     * </p>
+     *
+     * @param node the number
+     * @return true if the value is exactly a double (NaN and infinities
+     * included)
+     */
+    private static boolean isExactDouble(final JsonNode node)
+    {
+        if (node.isBigDecimal())
+            return isExactDouble(node.decimalValue());
+
+        if (node.isBigInteger()) {
+            final BigInteger value = node.bigIntegerValue().abs();
+            final int bits = value.bitLength();
+            return value.signum() == 0 || bits <= MAX_DOUBLE_BITS
+                && bits - value.getLowestSetBit() <= DOUBLE_PRECISION;
+        }
+
+        if (node.isFloatingPointNumber())
+            return true;
+
+        /*
+         * Note that the range check must be done first: casting to long
+         * saturates
+         */
+        final long value = node.longValue();
+        final double d = (double) value;
+        return d < MAX_LONG_AS_DOUBLE && (long) d == value;
+    }
+
+    private static boolean isExactDouble(final BigDecimal decimal)
+    {
+        final double d = decimal.doubleValue();
+
+        if (Double.isInfinite(d))
+            return false;
+
+        /*
+         * Common case: the unscaled value u has at most 15 digits and the
+         * scale s is small. The nearest double d, times 10^s, is then within
+         * 0.5 of u, which gives u back without any allocation; and u / 10^s is
+         * exactly a double if and only if 5^s divides u.
+         */
+        final int scale = decimal.scale();
+
+        if (decimal.precision() <= MAX_EXACT_DIGITS && scale >= 0
+            && scale < POWERS_OF_TEN.length) {
+            final long unscaled = (long) Math.rint(d * POWERS_OF_TEN[scale]);
+            return unscaled % POWERS_OF_FIVE[scale] == 0L;
+        }
+
+        return new BigDecimal(d).compareTo(decimal) == 0;
+    }
+
+    private static BigDecimal exactValue(final JsonNode node)
+    {
+        if (node.isBigDecimal())
+            return node.decimalValue();
+        if (node.isBigInteger())
+            return new BigDecimal(node.bigIntegerValue());
+        return BigDecimal.valueOf(node.longValue());
+    }
+
+    /**
+     * Hash a string (FNV-1a over its UTF-16 code units, then mixed)
+     *
+     * @param s the string
+     * @return the hash
+     */
+    private static long hash(final String s)
+    {
+        final int length = s.length();
+        long ret = FNV_OFFSET;
+
+        for (int i = 0; i < length; i++)
+            ret = (ret ^ s.charAt(i)) * FNV_PRIME;
+
+        return mix(ret ^ length);
+    }
+
+    private static long hash(final byte[] bytes)
+    {
+        long ret = FNV_OFFSET;
+
+        for (final byte b: bytes)
+            ret = (ret ^ (b & 0xff)) * FNV_PRIME;
+
+        return mix(ret ^ bytes.length);
+    }
+
+    private static byte[] binaryValue(final JsonNode node)
+    {
+        try {
+            return node.binaryValue();
+        } catch (IOException e) {
+            throw new RuntimeException("How did I get there??", e);
+        }
+    }
+
+    /**
+     * Mix the bits of a value (the finalizer of SplitMix64)
+     *
+     * @param value the value
+     * @return the mixed value
+     */
+    private static long mix(final long value)
+    {
+        long ret = value;
+        ret = (ret ^ (ret >>> 30)) * 0xbf58476d1ce4e5b9L;
+        ret = (ret ^ (ret >>> 27)) * 0x94d049bb133111ebL;
+        return ret ^ (ret >>> 31);
+    }
+
+    /**
+     * A container being fingerprinted
+     *
+     * <p>Array elements are combined in order. Object members are fingerprinted
+     * individually (name and value), and these fingerprints are summed, so that
+     * the order of members does not matter.</p>
+     */
+    private static final class Frame
+    {
+        private final JsonNode node;
+        private final Iterator<Map.Entry<String, JsonNode>> fields;
+        private int index = 0;
+        private long name;
+        private long acc;
+
+        private Frame(final JsonNode node)
+        {
+            this.node = node;
+            fields = node.isObject() ? node.fields() : null;
+            acc = fields == null ? ARRAY : 0L;
+        }
+
+        /*
+         * Returns null when there are no more children
+         */
+        private JsonNode next()
+        {
+            if (fields == null)
+                return index < node.size() ? node.get(index++) : null;
+            if (!fields.hasNext())
+                return null;
+            final Map.Entry<String, JsonNode> entry = fields.next();
+            name = hash(entry.getKey());
+            return entry.getValue();
+        }
+
+        private void add(final long value)
+        {
+            if (fields == null)
+                acc = mix(acc * MULTIPLIER + value);
+            else
+                acc += mix(name * MULTIPLIER ^ value);
+        }
+
+        private long finish()
+        {
+            return fields == null ? mix(acc ^ node.size())
+                : mix(OBJECT ^ acc ^ (long) node.size() * MULTIPLIER);
+        }
+    }
+}
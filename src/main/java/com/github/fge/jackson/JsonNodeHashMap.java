@@ -0,0 +1,468 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Equivalence;
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A hash map whose keys are compared using {@link JsonNumEquals}
+ *
+ * <p>The usual way to use JSON values as keys under numeric equivalence is to
+ * {@link Equivalence#wrap(Object) wrap} them; this allocates a wrapper for
+ * every insertion and every lookup, and hashes the whole value every time the
+ * wrapper's hash code is computed. This map instead uses open addressing
+ * (linear probing) over plain arrays: the {@link JsonFingerprint} of each key
+ * is computed once, stored alongside the key, and compared before keys
+ * themselves are; no object is allocated per entry.</p>
+ *
+ * <p>Null keys are not allowed; null values are. As with any hash map, keys
+ * must not be modified while they are in the map.</p>
+ *
+ * <p><strong>Note that this map violates the general {@link Map} contract,
+ * </strong> which mandates the use of {@link Object#equals(Object)} to compare
+ * keys: as with an {@link java.util.IdentityHashMap}, or a {@link
+ * java.util.TreeMap} whose comparator is inconsistent with equals, keys are
+ * compared using an equivalence instead. {@link #equals(Object)} and {@link
+ * #hashCode()} are those of {@link AbstractMap}; as a consequence, two maps of
+ * this class with keys which are equivalent but not equal (for instance,
+ * {@code 1} and {@code 1.0}) are equal, but may have different hash codes.
+ * Comparing this map with another map is only fully symmetric when keys
+ * which are equivalent are also equal.</p>
+ *
+ * @param <V> the type of values
+ *
+ * @see JsonNodeHashSet
+ */
+@NotThreadSafe
+public final class JsonNodeHashMap<V>
+    extends AbstractMap<JsonNode, V>
+{
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+
+    private static final int MIN_CAPACITY = 8;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /*
+     * Parallel arrays: a slot is empty if its key is null
+     */
+    private long[] fingerprints;
+    private JsonNode[] keys;
+    private Object[] values;
+
+    private int size = 0;
+    private int modCount = 0;
+
+    /**
+     * The size over which the table is grown (two thirds of its capacity)
+     */
+    private int threshold;
+
+    private Set<Entry<JsonNode, V>> entrySet;
+
+    /**
+     * Create a new, empty map
+     */
+    public JsonNodeHashMap()
+    {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Create a new, empty map able to hold a given number of keys without
+     * growing
+     *
+     * @param expectedSize the expected number of keys
+     * @throws IllegalArgumentException expected size is negative
+     */
+    public JsonNodeHashMap(final int expectedSize)
+    {
+        Preconditions.checkArgument(expectedSize >= 0,
+            "expected size cannot be negative");
+        allocate(capacityFor(expectedSize));
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(final Object key)
+    {
+        return key instanceof JsonNode && find((JsonNode) key) >= 0;
+    }
+
+    @Override
+    public V get(final Object key)
+    {
+        if (!(key instanceof JsonNode))
+            return null;
+        final int slot = find((JsonNode) key);
+        return slot >= 0 ? valueAt(slot) : null;
+    }
+
+    /**
+     * Return the key of this map equivalent to a given value
+     *
+     * <p>This can be used to deduplicate values: the returned key is the
+     * instance which was first inserted.</p>
+     *
+     * @param key the value
+     * @return the key equivalent to this value, or {@code null} if not found
+     * @throws NullPointerException value is null
+     */
+    public JsonNode getKey(final JsonNode key)
+    {
+        Preconditions.checkNotNull(key);
+        final int slot = find(key);
+        return slot >= 0 ? keys[slot] : null;
+    }
+
+    @Override
+    public V put(final JsonNode key, final V value)
+    {
+        Preconditions.checkNotNull(key);
+        final long fingerprint = JsonFingerprint.of(key);
+        int slot = find(key, fingerprint);
+
+        if (slot >= 0) {
+            final V ret = valueAt(slot);
+            values[slot] = value;
+            return ret;
+        }
+
+        if (size >= threshold) {
+            grow();
+            slot = find(key, fingerprint);
+        }
+
+        slot = -slot - 1;
+        fingerprints[slot] = fingerprint;
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public V remove(final Object key)
+    {
+        if (!(key instanceof JsonNode))
+            return null;
+        final int slot = find((JsonNode) key);
+        if (slot < 0)
+            return null;
+        final V ret = valueAt(slot);
+        delete(slot);
+        return ret;
+    }
+
+    @Override
+    public void clear()
+    {
+        if (size == 0)
+            return;
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Entry<JsonNode, V>> entrySet()
+    {
+        if (entrySet == null)
+            entrySet = new EntrySet();
+        return entrySet;
+    }
+
+    /**
+     * Fold a fingerprint into a hash code
+     *
+     * <p>Fingerprints are already well mixed: no further mixing is needed.</p>
+     *
+     * @param fingerprint the fingerprint
+     * @return a hash code
+     */
+    static int hash(final long fingerprint)
+    {
+        return (int) (fingerprint ^ (fingerprint >>> 32));
+    }
+
+    private int find(final JsonNode key)
+    {
+        return find(key, JsonFingerprint.of(key));
+    }
+
+    /**
+     * Find the slot of a key
+     *
+     * @param key the key
+     * @param fingerprint the fingerprint of the key
+     * @return the slot of the key if found; otherwise, {@code -slot - 1},
+     * where {@code slot} is the empty slot where the key would be inserted
+     */
+    private int find(final JsonNode key, final long fingerprint)
+    {
+        final int mask = keys.length - 1;
+        int slot = hash(fingerprint) & mask;
+        JsonNode candidate;
+
+        while (true) {
+            candidate = keys[slot];
+            if (candidate == null)
+                return -slot - 1;
+            if (fingerprints[slot] == fingerprint && (candidate == key
+                || EQUIVALENCE.equivalent(candidate, key)))
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Delete the entry at a given slot
+     *
+     * <p>Instead of leaving a tombstone, the entries which follow the removed
+     * entry in its probe sequence are shifted back, so that lookups never need
+     * to probe more slots than necessary. Entries are only ever moved towards
+     * the start of their run of non empty slots.</p>
+     *
+     * @param slot the slot
+     */
+    private void delete(final int slot)
+    {
+        final int mask = keys.length - 1;
+        int hole = slot;
+        int next = slot;
+        int home;
+
+        while (true) {
+            next = (next + 1) & mask;
+            if (keys[next] == null)
+                break;
+            home = hash(fingerprints[next]) & mask;
+            /*
+             * The entry can fill the hole only if its home slot is not
+             * (cyclically) within ]hole, next]
+             */
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                fingerprints[hole] = fingerprints[next];
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+
+        keys[hole] = null;
+        values[hole] = null;
+        size--;
+        modCount++;
+    }
+
+    private void grow()
+    {
+        final int capacity = keys.length;
+        Preconditions.checkState(capacity < MAX_CAPACITY, "map is full");
+
+        final long[] oldFingerprints = fingerprints;
+        final JsonNode[] oldKeys = keys;
+        final Object[] oldValues = values;
+
+        allocate(capacity << 1);
+
+        final int mask = keys.length - 1;
+        int slot;
+
+        for (int i = 0; i < capacity; i++) {
+            if (oldKeys[i] == null)
+                continue;
+            slot = hash(oldFingerprints[i]) & mask;
+            while (keys[slot] != null)
+                slot = (slot + 1) & mask;
+            fingerprints[slot] = oldFingerprints[i];
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    private void allocate(final int capacity)
+    {
+        fingerprints = new long[capacity];
+        keys = new JsonNode[capacity];
+        values = new Object[capacity];
+        threshold = capacity == MAX_CAPACITY ? capacity - 1
+            : capacity / 3 * 2;
+    }
+
+    private static int capacityFor(final int expectedSize)
+    {
+        int ret = MIN_CAPACITY;
+        while (ret < MAX_CAPACITY && ret / 3 * 2 <= expectedSize)
+            ret <<= 1;
+        return ret;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(final int slot)
+    {
+        return (V) values[slot];
+    }
+
+    private final class EntrySet
+        extends AbstractSet<Entry<JsonNode, V>>
+    {
+        @Override
+        public Iterator<Entry<JsonNode, V>> iterator()
+        {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public void clear()
+        {
+            JsonNodeHashMap.this.clear();
+        }
+    }
+
+    /**
+     * Iterator over the entries of this map
+     *
+     * <p>Iteration starts at an empty slot, and wraps around the table. Since
+     * no run of non empty slots crosses that starting slot, and deleting an
+     * entry only moves entries of its run towards the start of that run, an
+     * entry can only be moved to the slot which was just visited: {@link
+     * #remove()} therefore only needs to visit that slot again.</p>
+     */
+    private final class EntryIterator
+        implements Iterator<Entry<JsonNode, V>>
+    {
+        private final int start;
+        private int expectedModCount = modCount;
+        /*
+         * Number of slots visited so far, and slot of the last returned entry
+         */
+        private int visited = 0;
+        private int last = -1;
+
+        private EntryIterator()
+        {
+            int slot = 0;
+            while (keys[slot] != null)
+                slot++;
+            start = slot;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            checkModCount();
+            final int mask = keys.length - 1;
+            while (visited < keys.length) {
+                if (keys[(start + visited) & mask] != null)
+                    return true;
+                visited++;
+            }
+            return false;
+        }
+
+        @Override
+        public Entry<JsonNode, V> next()
+        {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            last = (start + visited++) & (keys.length - 1);
+            return new MapEntry(last);
+        }
+
+        @Override
+        public void remove()
+        {
+            Preconditions.checkState(last != -1);
+            checkModCount();
+            delete(last);
+            last = -1;
+            visited--;
+            expectedModCount = modCount;
+        }
+
+        private void checkModCount()
+        {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * An entry returned by the iterator
+     *
+     * <p>Its key and value are those at the time the entry was returned;
+     * {@link #setValue(Object)} writes through to the map.</p>
+     */
+    private final class MapEntry
+        extends SimpleEntry<JsonNode, V>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int slot;
+
+        private MapEntry(final int slot)
+        {
+            super(keys[slot], JsonNodeHashMap.this.valueAt(slot));
+            this.slot = slot;
+        }
+
+        @Override
+        public V setValue(final V value)
+        {
+            if (keys[slot] == getKey())
+                values[slot] = value;
+            else
+                put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * A hash set whose elements are compared using {@link JsonNumEquals}
+ *
+ * <p>This set is backed by a {@link JsonNodeHashMap}, and has the same
+ * characteristics: no per element allocation, and fingerprints computed once
+ * per element. Null elements are not allowed.</p>
+ *
+ * <p><strong>Note that this set violates the general {@link java.util.Set}
+ * contract,</strong> for the same reasons as {@link JsonNodeHashMap}: elements
+ * are compared using an equivalence, not {@link Object#equals(Object)}. {@link
+ * #equals(Object)} and {@link #hashCode()} are those of {@link AbstractSet};
+ * two sets of this class with equivalent but not equal elements are equal,
+ * but may have different hash codes.</p>
+ */
+@NotThreadSafe
+public final class JsonNodeHashSet
+    extends AbstractSet<JsonNode>
+{
+    private final JsonNodeHashMap<Boolean> map;
+
+    /**
+     * Create a new, empty set
+     */
+    public JsonNodeHashSet()
+    {
+        map = new JsonNodeHashMap<Boolean>();
+    }
+
+    /**
+     * Create a new, empty set able to hold a given number of elements without
+     * growing
+     *
+     * @param expectedSize the expected number of elements
+     * @throws IllegalArgumentException expected size is negative
+     */
+    public JsonNodeHashSet(final int expectedSize)
+    {
+        map = new JsonNodeHashMap<Boolean>(expectedSize);
+    }
+
+    /**
+     * Create a new set containing the elements of a collection
+     *
+     * @param c the collection
+     * @throws NullPointerException collection is null, or contains null
+     */
+    public JsonNodeHashSet(final Collection<? extends JsonNode> c)
+    {
+        map = new JsonNodeHashMap<Boolean>(c.size());
+        addAll(c);
+    }
+
+    @Override
+    public int size()
+    {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean contains(final Object o)
+    {
+        return map.containsKey(o);
+    }
+
+    /**
+     * Return the element of this set equivalent to a given value
+     *
+     * @param node the value
+     * @return the equivalent element, or {@code null} if not found
+     * @throws NullPointerException value is null
+     * @see JsonNodeHashMap#getKey(JsonNode)
+     */
+    public JsonNode get(final JsonNode node)
+    {
+        return map.getKey(node);
+    }
+
+    @Override
+    public boolean add(final JsonNode node)
+    {
+        return map.put(node, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean remove(final Object o)
+    {
+        return map.remove(o) != null;
+    }
+
+    @Override
+    public void clear()
+    {
+        map.clear();
+    }
+
+    @Override
+    public Iterator<JsonNode> iterator()
+    {
+        return map.keySet().iterator();
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NumericNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.base.Equivalence;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.MapMaker;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An interner of JSON values
+ *
+ * <p>An interner maps equivalent values (according to {@link JsonNumEquals})
+ * to a single, shared instance: when a large number of documents have many
+ * subtrees in common, interning them can reduce memory usage dramatically.
+ * </p>
+ *
+ * <p>Values are interned bottom-up (see {@link #intern(JsonNode)}): the
+ * members or elements of a container are interned first, which means that two
+ * containers are equivalent if and only if they have the same children. Values
+ * are looked up by their {@link JsonFingerprint}.</p>
+ *
+ * <p>Interned values are shared, and must therefore never be modified. Also
+ * note that since equivalent values are interned to the same instance, the
+ * numeric representation of a value may change: {@code 1.0} may be interned
+ * as {@code 1} if that value was interned first.</p>
+ *
+ * <p>Two retention policies are available: {@link #weak()} interners keep
+ * values only as long as they are referenced elsewhere, and {@link
+ * #bounded(int)} interners keep a maximum number of values.</p>
+ *
+ * <p>Values can also be interned while parsing, by using the node factory
+ * returned by {@link #nodeFactory()}.</p>
+ */
+@ThreadSafe
+public final class JsonNodeInterner
+{
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+
+    /**
+     * Interned values, by fingerprint
+     */
+    private final ConcurrentMap<Long, JsonNode> pool;
+
+    /**
+     * Fingerprints of interned containers
+     */
+    private final Map<JsonNode, Long> fingerprints
+        = new MapMaker().weakKeys().makeMap();
+
+    /**
+     * Node factory interning scalar values
+     */
+    private final JsonNodeFactory factory = new InterningNodeFactory();
+
+    private JsonNodeInterner(final Cache<Long, JsonNode> pool)
+    {
+        this.pool = pool.asMap();
+    }
+
+    /**
+     * Return an interner holding values weakly
+     *
+     * @return a new interner
+     */
+    public static JsonNodeInterner weak()
+    {
+        return new JsonNodeInterner(CacheBuilder.newBuilder().weakValues()
+            .<Long, JsonNode>build());
+    }
+
+    /**
+     * Return an interner holding at most a given number of values
+     *
+     * @param maxSize the maximum number of values
+     * @return a new interner
+     * @throws IllegalArgumentException maximum size is negative
+     */
+    public static JsonNodeInterner bounded(final int maxSize)
+    {
+        Preconditions.checkArgument(maxSize >= 0,
+            "maximum size cannot be negative");
+        return new JsonNodeInterner(CacheBuilder.newBuilder()
+            .maximumSize(maxSize).<Long, JsonNode>build());
+    }
+
+    /**
+     * Intern a value
+     *
+     * <p>The result is equivalent to the argument. The argument itself is not
+     * modified; however, it (or some of its children) may be retained by this
+     * interner and should therefore not be modified either.</p>
+     *
+     * @param node the value
+     * @return the interned value
+     * @throws NullPointerException value is null
+     */
+    public JsonNode intern(final JsonNode node)
+    {
+        Preconditions.checkNotNull(node);
+
+        if (!hasChildren(node))
+            return internLeaf(node);
+
+        /*
+         * Walk the value using an explicit stack: children are interned
+         * before their container.
+         */
+        final Deque<Frame> stack = new ArrayDeque<Frame>();
+        stack.push(new Frame(node));
+
+        Frame frame;
+        JsonNode child, interned;
+
+        while (true) {
+            frame = stack.peek();
+            child = frame.next();
+            if (child != null) {
+                if (hasChildren(child))
+                    stack.push(new Frame(child));
+                else
+                    frame.add(internLeaf(child));
+                continue;
+            }
+            stack.pop();
+            interned = internContainer(frame.build());
+            if (stack.isEmpty())
+                return interned;
+            stack.peek().add(interned);
+        }
+    }
+
+    /**
+     * Return a node factory which interns scalar values as they are created
+     *
+     * <p>This can be used, for instance, with {@link
+     * com.fasterxml.jackson.databind.ObjectMapper#setNodeFactory(
+     * JsonNodeFactory)}. Only strings and numbers are interned; unlike {@link
+     * #intern(JsonNode)}, numbers are only interned to a value of the same
+     * type. Containers are not interned, since they are filled after being
+     * created: use {@link #intern(JsonNode)} on the result if needed.</p>
+     *
+     * @return a node factory
+     */
+    public JsonNodeFactory nodeFactory()
+    {
+        return factory;
+    }
+
+    /**
+     * Return the approximate number of values held by this interner
+     *
+     * @return the number of values
+     */
+    public long size()
+    {
+        return pool.size();
+    }
+
+    private JsonNode internLeaf(final JsonNode node)
+    {
+        final long fingerprint = JsonFingerprint.of(node);
+        final JsonNode ret = pool.putIfAbsent(fingerprint, node);
+        if (ret == null)
+            return node;
+        return EQUIVALENCE.equivalent(ret, node) ? ret : node;
+    }
+
+    private JsonNode internContainer(final JsonNode node)
+    {
+        final long fingerprint = JsonFingerprint.of(node, fingerprints);
+        final JsonNode ret = pool.putIfAbsent(fingerprint, node);
+        if (ret == null)
+            return node;
+        return sameChildren(ret, node) ? ret : node;
+    }
+
+    /**
+     * Tell whether two containers hold the same (interned) children
+     *
+     * @param a the first container
+     * @param b the second container
+     * @return true if both containers are equivalent
+     */
+    private static boolean sameChildren(final JsonNode a, final JsonNode b)
+    {
+        if (a.getNodeType() != b.getNodeType() || a.size() != b.size())
+            return false;
+
+        final int size = a.size();
+
+        if (a.isArray()) {
+            for (int i = 0; i < size; i++)
+                if (a.get(i) != b.get(i))
+                    return false;
+            return true;
+        }
+
+        final Iterator<Map.Entry<String, JsonNode>> iterator = a.fields();
+        Map.Entry<String, JsonNode> entry;
+
+        while (iterator.hasNext()) {
+            entry = iterator.next();
+            if (entry.getValue() != b.get(entry.getKey()))
+                return false;
+        }
+
+        return true;
+    }
+
+    private static boolean hasChildren(final JsonNode node)
+    {
+        return node.isContainerNode() && node.size() != 0;
+    }
+
+    /**
+     * A container whose children are being interned
+     *
+     * <p>If all children are interned to themselves, the container itself is
+     * interned; otherwise, a copy with the interned children is.</p>
+     */
+    private static final class Frame
+    {
+        private final JsonNode node;
+        private final Iterator<Map.Entry<String, JsonNode>> fields;
+        private final JsonNode[] children;
+        private final String[] names;
+        private int index = 0;
+        private boolean changed = false;
+
+        private Frame(final JsonNode node)
+        {
+            this.node = node;
+            children = new JsonNode[node.size()];
+            if (node.isObject()) {
+                fields = node.fields();
+                names = new String[children.length];
+            } else {
+                fields = null;
+                names = null;
+            }
+        }
+
+        /*
+         * Returns null when there are no more children
+         */
+        private JsonNode next()
+        {
+            if (index == children.length)
+                return null;
+            if (fields == null)
+                return node.get(index);
+            final Map.Entry<String, JsonNode> entry = fields.next();
+            names[index] = entry.getKey();
+            return entry.getValue();
+        }
+
+        private void add(final JsonNode interned)
+        {
+            if (interned != (fields == null ? node.get(index)
+                : node.get(names[index])))
+                changed = true;
+            children[index++] = interned;
+        }
+
+        private JsonNode build()
+        {
+            if (!changed)
+                return node;
+
+            final JsonNodeFactory factory = JacksonUtils.nodeFactory();
+
+            if (fields == null) {
+                final ArrayNode ret = factory.arrayNode();
+                for (final JsonNode child: children)
+                    ret.add(child);
+                return ret;
+            }
+
+            final ObjectNode ret = factory.objectNode();
+            for (int i = 0; i < children.length; i++)
+                ret.set(names[i], children[i]);
+            return ret;
+        }
+    }
+
+    /**
+     * Node factory interning strings and numbers of the same type
+     */
+    private final class InterningNodeFactory
+        extends JsonNodeFactory
+    {
+        private static final long serialVersionUID = 1L;
+
+        private InterningNodeFactory()
+        {
+            super(false);
+        }
+
+        @Override
+        public TextNode textNode(final String text)
+        {
+            return (TextNode) internSameType(super.textNode(text));
+        }
+
+        @Override
+        public NumericNode numberNode(final int v)
+        {
+            return (NumericNode) internSameType(super.numberNode(v));
+        }
+
+        @Override
+        public NumericNode numberNode(final long v)
+        {
+            return (NumericNode) internSameType(super.numberNode(v));
+        }
+
+        @Override
+        public NumericNode numberNode(final double v)
+        {
+            return (NumericNode) internSameType(super.numberNode(v));
+        }
+
+        @Override
+        public NumericNode numberNode(final BigDecimal v)
+        {
+            return (NumericNode) internSameType(super.numberNode(v));
+        }
+
+        private JsonNode internSameType(final JsonNode node)
+        {
+            final JsonNode ret = internLeaf(node);
+            return ret.getClass() == node.getClass() ? ret : node;
+        }
+    }
+}
@@ -21,11 +21,13 @@ package com.github.fge.jackson;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Equivalence;
-import com.google.common.collect.Sets;
 
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Set;
 
 /**
  * An {@link Equivalence} strategy for JSON Schema equality
@@ -46,6 +48,13 @@ public final class JsonNumEquals
     private static final Equivalence<JsonNode> INSTANCE
         = new JsonNumEquals();
 
+    /*
+     * Bounds of the range of longs, as doubles: -2^63 (inclusive) and 2^63
+     * (exclusive)
+     */
+    private static final double MIN_LONG_AS_DOUBLE = -0x1p63;
+    private static final double MAX_LONG_AS_DOUBLE = 0x1p63;
+
     private JsonNumEquals()
     {
     }
@@ -55,8 +64,146 @@ public final class JsonNumEquals
         return INSTANCE;
     }
 
+    /*
+     * Both methods below walk containers using an explicit stack, so that the
+     * depth of a document is not limited by the depth of the call stack. Only
+     * non empty containers are ever pushed onto the stack; all other values
+     * are dealt with immediately.
+     */
+
     @Override
     protected boolean doEquivalent(final JsonNode a, final JsonNode b)
+    {
+        if (!shallowEquals(a, b))
+            return false;
+        if (!needsDescent(a))
+            return true;
+
+        /*
+         * Nodes are pushed in pairs: first the node from b, then the node from
+         * a.
+         */
+        final Deque<JsonNode> stack = new ArrayDeque<JsonNode>();
+        stack.push(b);
+        stack.push(a);
+
+        JsonNode nodeA, nodeB, childA, childB;
+        Iterator<Map.Entry<String, JsonNode>> iterator;
+        Map.Entry<String, JsonNode> entry;
+        int size;
+
+        while (!stack.isEmpty()) {
+            nodeA = stack.pop();
+            nodeB = stack.pop();
+
+            if (nodeA.isArray()) {
+                size = nodeA.size();
+                for (int i = 0; i < size; i++) {
+                    childA = nodeA.get(i);
+                    childB = nodeB.get(i);
+                    if (!shallowEquals(childA, childB))
+                        return false;
+                    if (needsDescent(childA)) {
+                        stack.push(childB);
+                        stack.push(childA);
+                    }
+                }
+                continue;
+            }
+
+            /*
+             * Both objects have the same number of members, and member names
+             * are unique: if all member names of a are found in b, both have
+             * the same set of member names.
+             */
+            iterator = nodeA.fields();
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                childA = entry.getValue();
+                childB = nodeB.get(entry.getKey());
+                if (childB == null || !shallowEquals(childA, childB))
+                    return false;
+                if (needsDescent(childA)) {
+                    stack.push(childB);
+                    stack.push(childA);
+                }
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    protected int doHash(final JsonNode t)
+    {
+        if (!needsDescent(t))
+            return shallowHash(t);
+
+        /*
+         * The hash code of a container is a linear combination of the hash
+         * codes of its children:
+         *
+         * - for arrays, it is sum(31^(n - 1 - i) * hash(element i)), which is
+         *   the same as 31 * ret + hash(element) for each element in order;
+         * - for objects, it is the sum over all members of
+         *   hash(value) * (2 * hash(name) + 1) + hash(name); it therefore does
+         *   not depend on the order of members, just like equivalence.
+         *
+         * Walking down the tree, we therefore only need to carry the factor by
+         * which the hash code of each value is multiplied in the final result.
+         * All arithmetic wraps around, which does not break linearity.
+         */
+        final HashStack stack = new HashStack();
+        stack.push(t, 1);
+
+        int ret = 0;
+        JsonNode node, child;
+        int factor, childFactor, nameHash;
+        Iterator<Map.Entry<String, JsonNode>> iterator;
+        Map.Entry<String, JsonNode> entry;
+
+        while (!stack.isEmpty()) {
+            factor = stack.factor();
+            node = stack.pop();
+
+            if (node.isArray()) {
+                childFactor = factor;
+                for (int i = node.size() - 1; i >= 0; i--) {
+                    child = node.get(i);
+                    if (needsDescent(child))
+                        stack.push(child, childFactor);
+                    else
+                        ret += childFactor * shallowHash(child);
+                    childFactor *= 31;
+                }
+                continue;
+            }
+
+            iterator = node.fields();
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                nameHash = entry.getKey().hashCode();
+                ret += factor * nameHash;
+                childFactor = factor * (2 * nameHash + 1);
+                child = entry.getValue();
+                if (needsDescent(child))
+                    stack.push(child, childFactor);
+                else
+                    ret += childFactor * shallowHash(child);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Compare two nodes without looking at the children of containers
+     *
+     * @param a the first node
+     * @param b the second node
+     * @return false if the nodes are known to differ
+     */
+    private static boolean shallowEquals(final JsonNode a, final JsonNode b)
     {
         /*
          * If both are numbers, delegate to the helper method
@@ -64,13 +211,10 @@ public final class JsonNumEquals
         if (a.isNumber() && b.isNumber())
             return numEquals(a, b);
 
-        final NodeType typeA = NodeType.getNodeType(a);
-        final NodeType typeB = NodeType.getNodeType(b);
-
         /*
          * If they are of different types, no dice
          */
-        if (typeA != typeB)
+        if (a.getNodeType() != b.getNodeType())
             return false;
 
         /*
@@ -84,17 +228,16 @@ public final class JsonNumEquals
          * test on types above). They are obviously not equal if they do not
          * have the same number of elements/members.
          */
-        if (a.size() != b.size())
-            return false;
-
-        /*
-         * Delegate to the appropriate method according to their type.
-         */
-        return typeA == NodeType.ARRAY ? arrayEquals(a, b) : objectEquals(a, b);
+        return a.size() == b.size();
     }
 
-    @Override
-    protected int doHash(final JsonNode t)
+    /**
+     * Compute the hash code of a node which is not a non empty container
+     *
+     * @param t the node
+     * @return the hash code
+     */
+    private static int shallowHash(final JsonNode t)
     {
         /*
          * If this is a numeric node, we want the same hashcode for the same
@@ -102,104 +245,183 @@ public final class JsonNumEquals
          * 99+% of use cases.
          */
         if (t.isNumber())
-            return Double.valueOf(t.doubleValue()).hashCode();
+            return numHash(t);
 
         /*
-         * If this is a primitive type (other than numbers, handled above),
-         * delegate to JsonNode.
+         * Empty containers have hash code 0; for other primitive types than
+         * numbers (handled above), delegate to JsonNode.
          */
-        if (!t.isContainerNode())
-            return t.hashCode();
+        return t.isContainerNode() ? 0 : t.hashCode();
+    }
 
-        /*
-         * The following hash calculations work, yes, but they are poor at best.
-         * And probably slow, too.
-         *
-         * TODO: try and figure out those hash classes from Guava
-         */
-        int ret = 0;
+    /**
+     * Tell whether a node is a container with at least one child
+     *
+     * @param node the node
+     * @return true if the children of the node need to be looked at
+     */
+    private static boolean needsDescent(final JsonNode node)
+    {
+        return node.isContainerNode() && node.size() != 0;
+    }
 
+    private static boolean numEquals(final JsonNode a, final JsonNode b)
+    {
         /*
-         * If the container is empty, just return
+         * If neither number is a BigInteger or BigDecimal, their values can be
+         * compared exactly as longs and doubles.
          */
-        if (t.size() == 0)
-            return ret;
+        if (!isArbitraryPrecision(a) && !isArbitraryPrecision(b)) {
+            if (a.isIntegralNumber())
+                return b.isIntegralNumber() ? a.longValue() == b.longValue()
+                    : longEqualsDouble(a.longValue(), b.doubleValue());
+            return b.isIntegralNumber()
+                ? longEqualsDouble(b.longValue(), a.doubleValue())
+                : doubleEquals(a.doubleValue(), b.doubleValue());
+        }
 
         /*
-         * Array
+         * If both numbers are integers, compare their integer values.
          */
-        if (t.isArray()) {
-            for (final JsonNode element: t)
-                ret = 31 * ret + doHash(element);
-            return ret;
-        }
+        if (a.isIntegralNumber() && b.isIntegralNumber())
+            return a.bigIntegerValue().equals(b.bigIntegerValue());
 
         /*
-         * Not an array? An object.
+         * Otherwise, compare exact decimal values.
          */
-        final Iterator<Map.Entry<String, JsonNode>> iterator = t.fields();
+        final BigDecimal decimalA = exactDecimal(a);
+        final BigDecimal decimalB = exactDecimal(b);
 
-        Map.Entry<String, JsonNode> entry;
+        return decimalA != null && decimalB != null
+            && decimalA.compareTo(decimalB) == 0;
+    }
 
-        while (iterator.hasNext()) {
-            entry = iterator.next();
-            ret = 31 * ret
-                + (entry.getKey().hashCode() ^ doHash(entry.getValue()));
-        }
+    /**
+     * Return the exact value of a numeric node as a decimal
+     *
+     * <p>The decimal value of a floating point node is not used: it goes
+     * through {@link Double#toString(double)}, which only gives the shortest
+     * decimal rounding to the same double, and comparing it would make this
+     * equivalence intransitive. The exact value of the double is used instead,
+     * which is consistent with {@link #longEqualsDouble(long, double)}.</p>
+     *
+     * @param node the node
+     * @return the value, or {@code null} for NaN and infinities
+     */
+    private static BigDecimal exactDecimal(final JsonNode node)
+    {
+        if (node.isBigDecimal() || node.isIntegralNumber())
+            return node.decimalValue();
 
-        return ret;
+        final double value = node.doubleValue();
+        return Double.isNaN(value) || Double.isInfinite(value) ? null
+            : new BigDecimal(value);
     }
 
-    private static boolean numEquals(final JsonNode a, final JsonNode b)
+    private static boolean isArbitraryPrecision(final JsonNode node)
     {
-        /*
-         * If both numbers are integers, delegate to JsonNode.
-         */
-        if (a.isIntegralNumber() && b.isIntegralNumber())
-            return a.equals(b);
+        return node.isBigDecimal() || node.isBigInteger();
+    }
 
+    private static boolean doubleEquals(final double a, final double b)
+    {
         /*
-         * Otherwise, compare decimal values.
+         * NaN is not equal to itself, but equivalence must be reflexive
          */
-        return a.decimalValue().compareTo(b.decimalValue()) == 0;
+        return a == b || a != a && b != b;
     }
 
-    private boolean arrayEquals(final JsonNode a, final JsonNode b)
+    private static boolean longEqualsDouble(final long l, final double d)
     {
         /*
-         * We are guaranteed here that arrays are the same size.
+         * A double is equal to a long only if it is integral and in range. Note
+         * that the range check must be done first: casting to long saturates.
          */
-        final int size = a.size();
+        return d >= MIN_LONG_AS_DOUBLE && d < MAX_LONG_AS_DOUBLE
+            && (long) d == l && (double) l == d;
+    }
 
-        for (int i = 0; i < size; i++)
-            if (!doEquivalent(a.get(i), b.get(i)))
-                return false;
+    /**
+     * Compute the hash code of a numeric node
+     *
+     * <p>The hash code is the hash code of the value of the node as a double,
+     * computed without boxing.</p>
+     *
+     * @param node the node
+     * @return the hash code
+     * @see #numBits(JsonNode)
+     */
+    private static int numHash(final JsonNode node)
+    {
+        final long bits = numBits(node);
+        return (int) (bits ^ (bits >>> 32));
+    }
 
-        return true;
+    /**
+     * Return the bits of the value of a numeric node as a double
+     *
+     * <p>Equivalent numbers always have the same bits, since all conversions
+     * to double round correctly. In particular, both zeroes have the same
+     * bits, since they are equivalent.</p>
+     *
+     * <p>Decimals are converted using {@link BigDecimal#doubleValue()}; since
+     * Java 9, this neither allocates nor goes through a string when the
+     * unscaled value fits in 52 bits and the scale is small, which covers
+     * decimals read by {@link JsonLoader}.</p>
+     *
+     * @param node the node
+     * @return the bits, as per {@link Double#doubleToLongBits(double)}
+     */
+    static long numBits(final JsonNode node)
+    {
+        double value = node.doubleValue();
+
+        if (value == 0.0)
+            value = 0.0;
+
+        return Double.doubleToLongBits(value);
     }
 
-    private boolean objectEquals(final JsonNode a, final JsonNode b)
+    /**
+     * A stack of (node, hash code factor) pairs
+     */
+    private static final class HashStack
     {
-        /*
-         * Grab the key set from the first node
-         */
-        final Set<String> keys = Sets.newHashSet(a.fieldNames());
+        private static final int INITIAL_CAPACITY = 16;
 
-        /*
-         * Grab the key set from the second node, and see if both sets are the
-         * same. If not, objects are not equal, no need to check for children.
-         */
-        final Set<String> set = Sets.newHashSet(b.fieldNames());
-        if (!set.equals(keys))
-            return false;
+        private JsonNode[] nodes = new JsonNode[INITIAL_CAPACITY];
+        private int[] factors = new int[INITIAL_CAPACITY];
+        private int size = 0;
+
+        void push(final JsonNode node, final int factor)
+        {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, 2 * size);
+                factors = Arrays.copyOf(factors, 2 * size);
+            }
+            nodes[size] = node;
+            factors[size] = factor;
+            size++;
+        }
+
+        boolean isEmpty()
+        {
+            return size == 0;
+        }
 
         /*
-         * Test each member individually.
+         * Must be called before pop()
          */
-        for (final String key: keys)
-            if (!doEquivalent(a.get(key), b.get(key)))
-                return false;
+        int factor()
+        {
+            return factors[size - 1];
+        }
 
-        return true;
+        JsonNode pop()
+        {
+            final JsonNode ret = nodes[--size];
+            nodes[size] = null;
+            return ret;
+        }
     }
 }
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Lists;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+
+/**
+ * A memory-compact JSON Pointer
+ *
+ * <p>A {@link JsonPointer} holds one {@link JsonNodeResolver} per reference
+ * token, each with its own {@link ReferenceToken}. This class instead holds
+ * the string representation of the pointer, and the offsets of the slashes
+ * which start each reference token. It is meant to be used when a large number
+ * of pointers need to be kept around (as map keys, for instance).</p>
+ *
+ * <p>Two compact pointers are equal if and only if the {@link JsonPointer}s
+ * they are built from are equal; and they resolve to the same values as these
+ * pointers. The hash code is the hash code of the string representation, which
+ * the string caches itself.</p>
+ *
+ * <p>The price to pay is that resolving an object member requires the decoded
+ * member name to be extracted from the string representation on each
+ * traversal. Use {@link #toJsonPointer()} if a pointer is to be used many
+ * times.</p>
+ */
+@Immutable
+public final class CompactJsonPointer
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private static final int[] NO_OFFSETS = new int[0];
+
+    /**
+     * The reference token separator
+     */
+    private static final char SLASH = '/';
+
+    /**
+     * The escape character in a cooked token
+     */
+    private static final char ESCAPE = '~';
+
+    /**
+     * The encoded form of {@code ~} in a cooked token
+     */
+    private static final char ENCODED_TILDE = '0';
+
+    private static final CompactJsonPointer EMPTY
+        = new CompactJsonPointer("", NO_OFFSETS);
+
+    /**
+     * The string representation of this pointer
+     */
+    private final String pointer;
+
+    /**
+     * The offsets of the slashes starting each reference token
+     */
+    private final int[] offsets;
+
+    private CompactJsonPointer(final String pointer, final int[] offsets)
+    {
+        this.pointer = pointer;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Return an empty compact pointer
+     *
+     * @return an empty, statically allocated pointer
+     */
+    public static CompactJsonPointer empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * Build a compact pointer from its string representation
+     *
+     * @param input the input string
+     * @return a compact pointer
+     * @throws JsonPointerException malformed JSON Pointer
+     * @throws NullPointerException null input
+     */
+    public static CompactJsonPointer of(final String input)
+        throws JsonPointerException
+    {
+        BUNDLE.checkNotNull(input, "nullInput");
+        if (input.isEmpty())
+            return EMPTY;
+        final JsonPointerParseResult failure
+            = JsonPointerParseResult.checkSyntax(input);
+        if (failure != null)
+            throw new JsonPointerException(failure.getMessage());
+
+        return new CompactJsonPointer(input, slashOffsets(input));
+    }
+
+    /**
+     * Build a compact pointer from a JSON Pointer
+     *
+     * @param pointer the JSON Pointer
+     * @return a compact pointer
+     * @throws NullPointerException null input
+     */
+    public static CompactJsonPointer copyOf(final JsonPointer pointer)
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+        if (pointer.isEmpty())
+            return EMPTY;
+        final String s = pointer.toString();
+        return new CompactJsonPointer(s, slashOffsets(s));
+    }
+
+    /**
+     * Return the number of reference tokens in this pointer
+     *
+     * @return the number of tokens
+     */
+    public int size()
+    {
+        return offsets.length;
+    }
+
+    /**
+     * Tell whether this pointer is empty
+     *
+     * @return true if this pointer has no reference tokens
+     */
+    public boolean isEmpty()
+    {
+        return offsets.length == 0;
+    }
+
+    /**
+     * Return the decoded (raw) reference token at a given index
+     *
+     * @param index the index of the token
+     * @return the raw token
+     * @throws IndexOutOfBoundsException index is out of range
+     */
+    public String getRaw(final int index)
+    {
+        if (index < 0 || index >= offsets.length)
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        return rawToken(offsets[index] + 1, endOf(index));
+    }
+
+    /**
+     * Traverse a node and return the result
+     *
+     * <p>This behaves exactly like {@link JsonPointer#get(JsonNode)}.</p>
+     *
+     * @param node the node to traverse
+     * @return the resulting node, {@code null} if not found
+     */
+    public JsonNode get(final JsonNode node)
+    {
+        final int size = offsets.length;
+        JsonNode ret = node;
+        int start, end;
+
+        for (int i = 0; i < size; i++) {
+            if (ret == null || !ret.isContainerNode())
+                return null;
+            start = offsets[i] + 1;
+            end = endOf(i);
+            ret = ret.isObject() ? ret.get(rawToken(start, end))
+                : ret.get(JsonNodeResolver.arrayIndexFor(pointer, start, end));
+        }
+
+        return ret;
+    }
+
+    /**
+     * Traverse a node and return the result
+     *
+     * <p>This behaves exactly like {@link JsonPointer#path(JsonNode)}.</p>
+     *
+     * @param node the node to traverse
+     * @return the result, or a {@link MissingNode}
+     */
+    public JsonNode path(final JsonNode node)
+    {
+        final JsonNode ret = get(node);
+        return ret == null ? MissingNode.getInstance() : ret;
+    }
+
+    /**
+     * Convert this pointer to a {@link JsonPointer}
+     *
+     * @return a JSON Pointer
+     */
+    public JsonPointer toJsonPointer()
+    {
+        if (offsets.length == 0)
+            return JsonPointer.empty();
+
+        final List<TokenResolver<JsonNode>> list
+            = Lists.newArrayListWithCapacity(offsets.length);
+
+        for (int i = 0; i < offsets.length; i++)
+            list.add(new JsonNodeResolver(ReferenceToken.fromRaw(getRaw(i))));
+
+        return new JsonPointer(list);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return pointer.hashCode();
+    }
+
+    /*
+     * The cooked form of a reference token is unique, therefore comparing
+     * string representations is the same as comparing tokens.
+     */
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (obj == null)
+            return false;
+        if (this == obj)
+            return true;
+        if (getClass() != obj.getClass())
+            return false;
+        final CompactJsonPointer other = (CompactJsonPointer) obj;
+        return pointer.equals(other.pointer);
+    }
+
+    @Override
+    public String toString()
+    {
+        return pointer;
+    }
+
+    private int endOf(final int index)
+    {
+        return index + 1 == offsets.length ? pointer.length()
+            : offsets[index + 1];
+    }
+
+    /**
+     * Extract a decoded reference token from the string representation
+     *
+     * <p>The string representation is known to be valid at this point.</p>
+     *
+     * @param start the start offset of the token (inclusive)
+     * @param end the end offset of the token (exclusive)
+     * @return the raw token
+     */
+    private String rawToken(final int start, final int end)
+    {
+        /*
+         * Only look for escapes within the token: String.indexOf() would scan
+         * up to the end of the pointer for each token
+         */
+        int index = start;
+
+        while (index < end && pointer.charAt(index) != ESCAPE)
+            index++;
+
+        if (index == end)
+            return pointer.substring(start, end);
+
+        final StringBuilder sb = new StringBuilder(end - start);
+        sb.append(pointer, start, index);
+
+        char c;
+
+        for (int i = index; i < end; i++) {
+            c = pointer.charAt(i);
+            if (c == ESCAPE)
+                c = pointer.charAt(++i) == ENCODED_TILDE ? ESCAPE : SLASH;
+            sb.append(c);
+        }
+
+        return sb.toString();
+    }
+
+    private static int[] slashOffsets(final String s)
+    {
+        final int length = s.length();
+        int count = 0;
+
+        for (int i = 0; i < length; i++)
+            if (s.charAt(i) == SLASH)
+                count++;
+
+        final int[] ret = new int[count];
+        int index = 0;
+
+        for (int i = 0; i < length; i++)
+            if (s.charAt(i) == SLASH)
+                ret[index++] = i;
+
+        return ret;
+    }
+}
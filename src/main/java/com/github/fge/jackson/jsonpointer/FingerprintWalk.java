@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonFingerprint;
+import com.github.fge.jackson.JsonNumEquals;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.Lists;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A walk over the differences between two JSON values
+ *
+ * <p>This is the walk shared by {@link JsonDiff} and {@link
+ * HashedJsonTree#changes(HashedJsonTree)}. Pending work is kept in a stack of
+ * {@link Step}s, so that differences are reported in document order. For each
+ * pair of values:</p>
+ *
+ * <ul>
+ *     <li>identical values are skipped;</li>
+ *     <li>values which are not both objects or both arrays are reported as
+ *     changed if they are not equivalent according to {@link JsonNumEquals};
+ *     </li>
+ *     <li>containers with equal {@link JsonFingerprint}s are skipped, after
+ *     checking that they are indeed equivalent (fingerprints collide for
+ *     numbers which round to the same double);</li>
+ *     <li>otherwise, members of objects are matched by name, and elements of
+ *     arrays as implementations see fit (see {@link #compareArrays(Step,
+ *     List)}).</li>
+ * </ul>
+ */
+@NotThreadSafe
+abstract class FingerprintWalk
+{
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+
+    /**
+     * Fingerprint caches for the source and target values
+     */
+    private final Map<JsonNode, Long> sourceCache;
+    private final Map<JsonNode, Long> targetCache;
+
+    private final Deque<Step> stack = new ArrayDeque<Step>();
+
+    FingerprintWalk(final Map<JsonNode, Long> sourceCache,
+        final Map<JsonNode, Long> targetCache)
+    {
+        this.sourceCache = sourceCache;
+        this.targetCache = targetCache;
+    }
+
+    /**
+     * Walk the differences between two values
+     *
+     * @param source the source value
+     * @param target the target value
+     */
+    final void run(final JsonNode source, final JsonNode target)
+    {
+        final LinkedJsonPointer root = LinkedJsonPointer.empty();
+        stack.push(Step.compare(root, root, root, source, target));
+
+        Step step;
+
+        while (!stack.isEmpty()) {
+            step = stack.pop();
+            switch (step.type) {
+                case COMPARE:
+                    compare(step);
+                    break;
+                case ADD:
+                    added(step);
+                    break;
+                case REMOVE:
+                    removed(step);
+            }
+        }
+    }
+
+    /**
+     * Report a value of the target which replaces a different value
+     *
+     * @param step the comparison step
+     */
+    abstract void changed(final Step step);
+
+    /**
+     * Report a value found only in the target
+     *
+     * @param step the addition step
+     */
+    abstract void added(final Step step);
+
+    /**
+     * Report a value found only in the source
+     *
+     * @param step the removal step
+     */
+    abstract void removed(final Step step);
+
+    /**
+     * Generate the steps comparing two different arrays
+     *
+     * @param step the comparison step
+     * @param steps the list to add steps to, in document order
+     */
+    abstract void compareArrays(final Step step, final List<Step> steps);
+
+    final long sourceFingerprint(final JsonNode node)
+    {
+        return JsonFingerprint.of(node, sourceCache);
+    }
+
+    final long targetFingerprint(final JsonNode node)
+    {
+        return JsonFingerprint.of(node, targetCache);
+    }
+
+    private void compare(final Step step)
+    {
+        final JsonNode a = step.source;
+        final JsonNode b = step.target;
+
+        if (a == b)
+            return;
+
+        if (!a.isContainerNode() || a.getNodeType() != b.getNodeType()) {
+            if (!EQUIVALENCE.equivalent(a, b))
+                changed(step);
+            return;
+        }
+
+        if (sourceFingerprint(a) == targetFingerprint(b)
+            && EQUIVALENCE.equivalent(a, b))
+            return;
+
+        final List<Step> steps = Lists.newArrayList();
+
+        if (a.isArray())
+            compareArrays(step, steps);
+        else
+            compareObjects(step, steps);
+
+        for (int i = steps.size() - 1; i >= 0; i--)
+            stack.push(steps.get(i));
+    }
+
+    private static void compareObjects(final Step step, final List<Step> steps)
+    {
+        final JsonNode a = step.source;
+        final JsonNode b = step.target;
+
+        final Iterator<Map.Entry<String, JsonNode>> fields = a.fields();
+        Map.Entry<String, JsonNode> entry;
+        String name;
+        JsonNode value;
+
+        while (fields.hasNext()) {
+            entry = fields.next();
+            name = entry.getKey();
+            value = b.get(name);
+            steps.add(value == null
+                ? Step.remove(step.sourcePath.append(name),
+                    step.path.append(name))
+                : Step.compare(step.sourcePath.append(name),
+                    step.targetPath.append(name), step.path.append(name),
+                    entry.getValue(), value));
+        }
+
+        final Iterator<String> names = b.fieldNames();
+
+        while (names.hasNext()) {
+            name = names.next();
+            if (!a.has(name))
+                steps.add(Step.add(step.targetPath.append(name),
+                    step.path.append(name), b.get(name)));
+        }
+    }
+
+    /**
+     * A unit of work: compare two values, or report an addition or removal
+     */
+    static final class Step
+    {
+        enum Type
+        {
+            COMPARE,
+            ADD,
+            REMOVE
+        }
+
+        final Type type;
+        final LinkedJsonPointer sourcePath;
+        final LinkedJsonPointer targetPath;
+        /*
+         * The path in the source as modified so far (for JSON Patch)
+         */
+        final LinkedJsonPointer path;
+        final JsonNode source;
+        final JsonNode target;
+
+        private Step(final Type type, final LinkedJsonPointer sourcePath,
+            final LinkedJsonPointer targetPath, final LinkedJsonPointer path,
+            final JsonNode source, final JsonNode target)
+        {
+            this.type = type;
+            this.sourcePath = sourcePath;
+            this.targetPath = targetPath;
+            this.path = path;
+            this.source = source;
+            this.target = target;
+        }
+
+        static Step compare(final LinkedJsonPointer sourcePath,
+            final LinkedJsonPointer targetPath, final LinkedJsonPointer path,
+            final JsonNode source, final JsonNode target)
+        {
+            return new Step(Type.COMPARE, sourcePath, targetPath, path, source,
+                target);
+        }
+
+        static Step add(final LinkedJsonPointer targetPath,
+            final LinkedJsonPointer path, final JsonNode target)
+        {
+            return new Step(Type.ADD, null, targetPath, path, null, target);
+        }
+
+        static Step remove(final LinkedJsonPointer sourcePath,
+            final LinkedJsonPointer path)
+        {
+            return new Step(Type.REMOVE, sourcePath, null, path, null, null);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonFingerprint;
+import com.github.fge.jackson.JsonNumEquals;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.common.collect.Ordering;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JSON document with cached subtree fingerprints
+ *
+ * <p>This class wraps a document and caches the {@link JsonFingerprint} of
+ * each of its containers, so that hashing the document again is free.</p>
+ *
+ * <p>New versions of the document are obtained using {@link #add(JsonPointer,
+ * JsonNode)}, {@link #replace(JsonPointer, JsonNode)} and {@link
+ * #remove(JsonPointer)}. As with the methods of {@link JsonPointer} they rely
+ * on, only the containers on the path from the root to the target are
+ * copied; all other containers are shared with the previous version, and so
+ * are their cached fingerprints. Hashing a new version therefore only needs to
+ * hash the copied containers.</p>
+ *
+ * <p>Comparisons between two versions ({@link #isEquivalentTo(HashedJsonTree)}
+ * and {@link #changes(HashedJsonTree)}) skip subtrees which are shared, and
+ * use cached fingerprints to avoid walking subtrees which differ. Equal
+ * fingerprints are never trusted on their own.</p>
+ *
+ * <p>The cache is keyed by container identity and holds its keys weakly. The
+ * document must therefore not be modified once wrapped.</p>
+ */
+@ThreadSafe
+public final class HashedJsonTree
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+
+    /**
+     * The document
+     */
+    private final JsonNode root;
+
+    /**
+     * Fingerprints of containers, shared by all versions of the document
+     */
+    private final Map<JsonNode, Long> cache;
+
+    private HashedJsonTree(final JsonNode root,
+        final Map<JsonNode, Long> cache)
+    {
+        this.root = root;
+        this.cache = cache;
+    }
+
+    /**
+     * Wrap a document
+     *
+     * @param root the document
+     * @return a new tree
+     * @throws NullPointerException document is null
+     */
+    public static HashedJsonTree of(final JsonNode root)
+    {
+        BUNDLE.checkNotNull(root, "nullInput");
+        return new HashedJsonTree(root,
+            new MapMaker().weakKeys().<JsonNode, Long>makeMap());
+    }
+
+    /**
+     * Return the wrapped document
+     *
+     * @return the document
+     */
+    public JsonNode getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Return the fingerprint of the document
+     *
+     * @return the fingerprint
+     * @see JsonFingerprint#of(JsonNode)
+     */
+    public long fingerprint()
+    {
+        return JsonFingerprint.of(root, cache);
+    }
+
+    /**
+     * Return a new version of this document with a value added
+     *
+     * @param pointer the pointer to add the value at
+     * @param value the value
+     * @return the new version
+     * @throws JsonPointerException see {@link JsonPointer#add(JsonNode,
+     * JsonNode)}
+     * @throws NullPointerException pointer or value is null
+     */
+    public HashedJsonTree add(final JsonPointer pointer, final JsonNode value)
+        throws JsonPointerException
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+        return new HashedJsonTree(pointer.add(root, value), cache);
+    }
+
+    /**
+     * Return a new version of this document with a value replaced
+     *
+     * @param pointer the pointer to the value to replace
+     * @param value the new value
+     * @return the new version
+     * @throws JsonPointerException see {@link JsonPointer#replace(JsonNode,
+     * JsonNode)}
+     * @throws NullPointerException pointer or value is null
+     */
+    public HashedJsonTree replace(final JsonPointer pointer,
+        final JsonNode value)
+        throws JsonPointerException
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+        return new HashedJsonTree(pointer.replace(root, value), cache);
+    }
+
+    /**
+     * Return a new version of this document with a value removed
+     *
+     * @param pointer the pointer to the value to remove
+     * @return the new version
+     * @throws JsonPointerException see {@link JsonPointer#remove(JsonNode)}
+     * @throws NullPointerException pointer is null
+     */
+    public HashedJsonTree remove(final JsonPointer pointer)
+        throws JsonPointerException
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+        return new HashedJsonTree(pointer.remove(root), cache);
+    }
+
+    /**
+     * Tell whether this document is equivalent to another
+     *
+     * <p>Documents are compared according to {@link JsonNumEquals}. The result
+     * is exact: equal fingerprints are not trusted, only different ones.</p>
+     *
+     * @param other the other document
+     * @return true if both documents are equivalent
+     * @throws NullPointerException other document is null
+     */
+    public boolean isEquivalentTo(final HashedJsonTree other)
+    {
+        BUNDLE.checkNotNull(other, "nullInput");
+
+        final Deque<JsonNode> stack = new ArrayDeque<JsonNode>();
+        stack.push(other.root);
+        stack.push(root);
+
+        JsonNode a, b, child;
+        Iterator<Map.Entry<String, JsonNode>> iterator;
+        Map.Entry<String, JsonNode> entry;
+
+        while (!stack.isEmpty()) {
+            a = stack.pop();
+            b = stack.pop();
+            if (a == b)
+                continue;
+            if (!hasChildren(a) || !hasChildren(b)) {
+                if (!EQUIVALENCE.equivalent(a, b))
+                    return false;
+                continue;
+            }
+            if (a.getNodeType() != b.getNodeType() || a.size() != b.size()
+                || fingerprint(a) != other.fingerprint(b))
+                return false;
+            if (a.isArray()) {
+                for (int i = a.size() - 1; i >= 0; i--) {
+                    stack.push(b.get(i));
+                    stack.push(a.get(i));
+                }
+                continue;
+            }
+            iterator = a.fields();
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                child = b.get(entry.getKey());
+                if (child == null)
+                    return false;
+                stack.push(child);
+                stack.push(entry.getValue());
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Return the pointers to the values which differ in another document
+     *
+     * <p>The result is a list of pointers such that:</p>
+     *
+     * <ul>
+     *     <li>a member or element which only exists in one document is
+     *     reported;</li>
+     *     <li>two values which are not both objects or both arrays are
+     *     reported if they are not equivalent;</li>
+     *     <li>otherwise, changes are looked for in their members or elements.
+     *     </li>
+     * </ul>
+     *
+     * <p>Subtrees which are shared by both documents are not walked, and
+     * neither are subtrees whose fingerprints are equal, once they are checked
+     * to be equivalent. Pointers are returned sorted (see {@link
+     * JsonPointer#compareTo(JsonPointer)}).</p>
+     *
+     * @param other the other document
+     * @return the list of changes (empty if none)
+     * @throws NullPointerException other document is null
+     */
+    public List<JsonPointer> changes(final HashedJsonTree other)
+    {
+        BUNDLE.checkNotNull(other, "nullInput");
+
+        final Changes changes = new Changes(cache, other.cache);
+        changes.run(root, other.root);
+        return ImmutableList.copyOf(Ordering.natural()
+            .sortedCopy(changes.pointers));
+    }
+
+    private long fingerprint(final JsonNode node)
+    {
+        return JsonFingerprint.of(node, cache);
+    }
+
+    private static boolean hasChildren(final JsonNode node)
+    {
+        return node.isContainerNode() && node.size() != 0;
+    }
+
+    /**
+     * The walk performed by {@link #changes(HashedJsonTree)}
+     *
+     * <p>Array elements are compared by position.</p>
+     */
+    private static final class Changes
+        extends FingerprintWalk
+    {
+        private final List<JsonPointer> pointers = Lists.newArrayList();
+
+        private Changes(final Map<JsonNode, Long> sourceCache,
+            final Map<JsonNode, Long> targetCache)
+        {
+            super(sourceCache, targetCache);
+        }
+
+        @Override
+        void changed(final Step step)
+        {
+            pointers.add(step.targetPath.toJsonPointer());
+        }
+
+        @Override
+        void added(final Step step)
+        {
+            pointers.add(step.targetPath.toJsonPointer());
+        }
+
+        @Override
+        void removed(final Step step)
+        {
+            pointers.add(step.sourcePath.toJsonPointer());
+        }
+
+        @Override
+        void compareArrays(final Step step, final List<Step> steps)
+        {
+            final JsonNode a = step.source;
+            final JsonNode b = step.target;
+            final int min = Math.min(a.size(), b.size());
+
+            LinkedJsonPointer ptr;
+
+            for (int i = 0; i < min; i++) {
+                ptr = step.path.append(i);
+                steps.add(Step.compare(ptr, ptr, ptr, a.get(i), b.get(i)));
+            }
+            for (int i = min; i < a.size(); i++) {
+                ptr = step.path.append(i);
+                steps.add(Step.remove(ptr, ptr));
+            }
+            for (int i = min; i < b.size(); i++) {
+                ptr = step.path.append(i);
+                steps.add(Step.add(ptr, ptr, b.get(i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonFingerprint;
+import com.github.fge.jackson.JsonNumEquals;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The structural differences between two JSON documents
+ *
+ * <p>A diff is computed by {@link #between(JsonNode, JsonNode)}. It reports
+ * the pointers to values which were added ({@link #getAdded()}), removed
+ * ({@link #getRemoved()}) and changed ({@link #getChanged()}), and can be
+ * written as an RFC 6902 JSON Patch ({@link #asJsonPatch()}) which turns the
+ * source document into the target document.</p>
+ *
+ * <p>Values are compared using {@link JsonNumEquals}; subtrees whose {@link
+ * JsonFingerprint}s are equal are checked for equivalence, but are not walked
+ * any further if they are indeed equivalent.</p>
+ *
+ * <p>Array elements are matched using their fingerprints: first the common
+ * prefix and suffix of both arrays are matched, then elements which are found
+ * exactly once in what remains of each array are used as anchors (only the
+ * longest sequence of anchors which appear in the same order in both arrays
+ * is kept), and finally the common prefix and suffix of each gap between
+ * anchors are matched. This requires no pairwise comparison of elements, and
+ * runs in {@code O(n log n)}. Matched elements are then compared as any other
+ * values, which confirms that they are equivalent. Unmatched elements in a gap
+ * are compared pairwise, by position; extra elements are removed or added.</p>
+ *
+ * <p>The resulting diff is not guaranteed to be minimal.</p>
+ */
+@Immutable
+public final class JsonDiff
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    private final List<Operation> operations;
+    private final List<JsonPointer> added;
+    private final List<JsonPointer> removed;
+    private final List<JsonPointer> changed;
+
+    private JsonDiff(final Engine engine)
+    {
+        operations = ImmutableList.copyOf(engine.operations);
+        added = sorted(engine.added);
+        removed = sorted(engine.removed);
+        changed = sorted(engine.changed);
+    }
+
+    /**
+     * Compute the differences between two documents
+     *
+     * @param source the source document
+     * @param target the target document
+     * @return the differences
+     * @throws NullPointerException one document is null
+     */
+    public static JsonDiff between(final JsonNode source,
+        final JsonNode target)
+    {
+        BUNDLE.checkNotNull(source, "nullInput");
+        BUNDLE.checkNotNull(target, "nullInput");
+        final Engine engine = new Engine();
+        engine.run(source, target);
+        return new JsonDiff(engine);
+    }
+
+    /**
+     * Tell whether both documents are equivalent
+     *
+     * @return true if there are no differences
+     */
+    public boolean isEmpty()
+    {
+        return operations.isEmpty();
+    }
+
+    /**
+     * Return the pointers to values of the target document which were added
+     *
+     * @return a sorted list of pointers
+     */
+    public List<JsonPointer> getAdded()
+    {
+        return added;
+    }
+
+    /**
+     * Return the pointers to values of the source document which were removed
+     *
+     * @return a sorted list of pointers
+     */
+    public List<JsonPointer> getRemoved()
+    {
+        return removed;
+    }
+
+    /**
+     * Return the pointers to values of the target document which replaced a
+     * different value of the source document
+     *
+     * <p>These are scalar values, or values whose type changed.</p>
+     *
+     * @return a sorted list of pointers
+     */
+    public List<JsonPointer> getChanged()
+    {
+        return changed;
+    }
+
+    /**
+     * Return this diff as a JSON Patch
+     *
+     * <p>The patch only uses {@code add}, {@code remove} and {@code replace}
+     * operations. Operations must be applied in order: the paths of array
+     * elements account for the operations which come before them. Values are
+     * not copied, and are shared with the target document.</p>
+     *
+     * @return an RFC 6902 JSON Patch
+     */
+    public JsonNode asJsonPatch()
+    {
+        final ArrayNode ret = FACTORY.arrayNode();
+        ObjectNode node;
+
+        for (final Operation operation: operations) {
+            node = ret.addObject();
+            node.put("op", operation.op);
+            node.put("path", operation.path.toString());
+            if (operation.value != null)
+                node.set("value", operation.value);
+        }
+
+        return ret;
+    }
+
+    @Override
+    public String toString()
+    {
+        return asJsonPatch().toString();
+    }
+
+    private static List<JsonPointer> sorted(
+        final List<LinkedJsonPointer> pointers)
+    {
+        final List<JsonPointer> list
+            = Lists.newArrayListWithCapacity(pointers.size());
+        for (final LinkedJsonPointer pointer: pointers)
+            list.add(pointer.toJsonPointer());
+        return ImmutableList.copyOf(Ordering.natural().sortedCopy(list));
+    }
+
+    /**
+     * The state of a diff computation
+     *
+     * <p>Steps are walked in document order; this is what JSON Patch requires,
+     * since the paths of array elements depend on the operations applied
+     * before.</p>
+     */
+    private static final class Engine
+        extends FingerprintWalk
+    {
+        private final List<Operation> operations = Lists.newArrayList();
+        private final List<LinkedJsonPointer> added = Lists.newArrayList();
+        private final List<LinkedJsonPointer> removed = Lists.newArrayList();
+        private final List<LinkedJsonPointer> changed = Lists.newArrayList();
+
+        private Engine()
+        {
+            this(Maps.<JsonNode, Long>newIdentityHashMap());
+        }
+
+        private Engine(final Map<JsonNode, Long> fingerprints)
+        {
+            super(fingerprints, fingerprints);
+        }
+
+        @Override
+        void changed(final Step step)
+        {
+            operations.add(new Operation("replace", step.path, step.target));
+            changed.add(step.targetPath);
+        }
+
+        @Override
+        void added(final Step step)
+        {
+            operations.add(new Operation("add", step.path, step.target));
+            added.add(step.targetPath);
+        }
+
+        @Override
+        void removed(final Step step)
+        {
+            operations.add(new Operation("remove", step.path, null));
+            removed.add(step.sourcePath);
+        }
+
+        @Override
+        void compareArrays(final Step step, final List<Step> steps)
+        {
+            final JsonNode a = step.source;
+            final JsonNode b = step.target;
+            final int[][] matches
+                = match(fingerprints(a, true), fingerprints(b, false));
+
+            final int[] sourceMatches = matches[0];
+            final int[] targetMatches = matches[1];
+            final int nrMatches = sourceMatches.length;
+
+            /*
+             * Index of the next element in the source, the target, and the
+             * array as patched so far
+             */
+            int i = 0, j = 0, index = 0;
+            int sourceEnd, targetEnd, common;
+
+            for (int match = 0; match <= nrMatches; match++) {
+                sourceEnd = match == nrMatches ? a.size()
+                    : sourceMatches[match];
+                targetEnd = match == nrMatches ? b.size()
+                    : targetMatches[match];
+                common = Math.min(sourceEnd - i, targetEnd - j);
+
+                for (int k = 0; k < common; k++)
+                    steps.add(Step.compare(step.sourcePath.append(i),
+                        step.targetPath.append(j), step.path.append(index++),
+                        a.get(i++), b.get(j++)));
+                while (i < sourceEnd)
+                    steps.add(Step.remove(step.sourcePath.append(i++),
+                        step.path.append(index)));
+                while (j < targetEnd)
+                    steps.add(Step.add(step.targetPath.append(j),
+                        step.path.append(index++), b.get(j++)));
+
+                /*
+                 * Matched elements have the same fingerprint, but this does
+                 * not prove they are equivalent: compare them as well (this
+                 * is cheap if they are)
+                 */
+                if (match < nrMatches)
+                    steps.add(Step.compare(step.sourcePath.append(i),
+                        step.targetPath.append(j), step.path.append(index++),
+                        a.get(i++), b.get(j++)));
+            }
+        }
+
+        private long[] fingerprints(final JsonNode array, final boolean source)
+        {
+            final int size = array.size();
+            final long[] ret = new long[size];
+            for (int i = 0; i < size; i++)
+                ret[i] = source ? sourceFingerprint(array.get(i))
+                    : targetFingerprint(array.get(i));
+            return ret;
+        }
+    }
+
+    /**
+     * Match the elements of two arrays by fingerprint
+     *
+     * @param a the fingerprints of the elements of the first array
+     * @param b the fingerprints of the elements of the second array
+     * @return two arrays of the same length: the indices of matched elements
+     * in the first array, and the indices of their counterparts in the second
+     * array, both increasing
+     */
+    private static int[][] match(final long[] a, final long[] b)
+    {
+        final Matches matches = new Matches();
+
+        final int prefix = commonPrefix(a, 0, a.length, b, 0, b.length);
+        final int suffix = commonSuffix(a, prefix, a.length, b, prefix,
+            b.length);
+
+        for (int k = 0; k < prefix; k++)
+            matches.add(k, k);
+
+        final int[][] anchors = anchors(a, prefix, a.length - suffix, b,
+            prefix, b.length - suffix);
+        final int nrAnchors = anchors[0].length;
+
+        int i = prefix, j = prefix, iEnd, jEnd, gapPrefix, gapSuffix;
+
+        for (int anchor = 0; anchor <= nrAnchors; anchor++) {
+            iEnd = anchor == nrAnchors ? a.length - suffix : anchors[0][anchor];
+            jEnd = anchor == nrAnchors ? b.length - suffix : anchors[1][anchor];
+            gapPrefix = commonPrefix(a, i, iEnd, b, j, jEnd);
+            gapSuffix = commonSuffix(a, i + gapPrefix, iEnd, b, j + gapPrefix,
+                jEnd);
+            for (int k = 0; k < gapPrefix; k++)
+                matches.add(i + k, j + k);
+            for (int k = gapSuffix; k > 0; k--)
+                matches.add(iEnd - k, jEnd - k);
+            if (anchor < nrAnchors)
+                matches.add(iEnd, jEnd);
+            i = iEnd + 1;
+            j = jEnd + 1;
+        }
+
+        for (int k = suffix; k > 0; k--)
+            matches.add(a.length - k, b.length - k);
+
+        return matches.toArrays();
+    }
+
+    private static int commonPrefix(final long[] a, final int aStart,
+        final int aEnd, final long[] b, final int bStart, final int bEnd)
+    {
+        final int max = Math.min(aEnd - aStart, bEnd - bStart);
+        int ret = 0;
+        while (ret < max && a[aStart + ret] == b[bStart + ret])
+            ret++;
+        return ret;
+    }
+
+    private static int commonSuffix(final long[] a, final int aStart,
+        final int aEnd, final long[] b, final int bStart, final int bEnd)
+    {
+        final int max = Math.min(aEnd - aStart, bEnd - bStart);
+        int ret = 0;
+        while (ret < max && a[aEnd - 1 - ret] == b[bEnd - 1 - ret])
+            ret++;
+        return ret;
+    }
+
+    /**
+     * Find anchors between two ranges of fingerprints
+     *
+     * <p>Anchors are fingerprints which appear exactly once in each range.
+     * Of these, only the longest sequence appearing in the same order in both
+     * ranges is kept (a longest increasing subsequence, computed by patience
+     * sorting).</p>
+     *
+     * @return the indices of anchors in both ranges, increasing
+     */
+    private static int[][] anchors(final long[] a, final int aStart,
+        final int aEnd, final long[] b, final int bStart, final int bEnd)
+    {
+        /*
+         * For each fingerprint: its index in the first range, or -2 if it
+         * appears more than once; then the same for the second range
+         */
+        final Map<Long, int[]> positions = Maps.newHashMap();
+        int[] position;
+
+        for (int i = aStart; i < aEnd; i++) {
+            position = positions.get(a[i]);
+            if (position == null)
+                positions.put(a[i], new int[] { i, -1 });
+            else
+                position[0] = -2;
+        }
+
+        for (int j = bStart; j < bEnd; j++) {
+            position = positions.get(b[j]);
+            if (position != null)
+                position[1] = position[1] == -1 ? j : -2;
+        }
+
+        /*
+         * Candidates, in the order of the first range
+         */
+        final int[] candidates = new int[aEnd - aStart];
+        int nrCandidates = 0;
+
+        for (int i = aStart; i < aEnd; i++) {
+            position = positions.get(a[i]);
+            if (position[0] >= 0 && position[1] >= 0)
+                candidates[nrCandidates++] = i;
+        }
+
+        /*
+         * Patience sorting on the indices in the second range: tails[k] is
+         * the candidate ending the best increasing sequence of length k + 1,
+         * and previous[] links each candidate to its predecessor
+         */
+        final int[] tails = new int[nrCandidates];
+        final int[] tailValues = new int[nrCandidates];
+        final int[] previous = new int[nrCandidates];
+        int length = 0, lo, hi, mid, value;
+
+        for (int c = 0; c < nrCandidates; c++) {
+            value = positions.get(a[candidates[c]])[1];
+            lo = 0;
+            hi = length;
+            while (lo < hi) {
+                mid = (lo + hi) >>> 1;
+                if (tailValues[mid] < value)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            previous[c] = lo == 0 ? -1 : tails[lo - 1];
+            tails[lo] = c;
+            tailValues[lo] = value;
+            if (lo == length)
+                length++;
+        }
+
+        final int[][] ret = new int[2][length];
+        int c = length == 0 ? -1 : tails[length - 1];
+
+        for (int k = length - 1; k >= 0; k--) {
+            ret[0][k] = candidates[c];
+            ret[1][k] = positions.get(a[candidates[c]])[1];
+            c = previous[c];
+        }
+
+        return ret;
+    }
+
+    /**
+     * A growable list of matched index pairs
+     */
+    private static final class Matches
+    {
+        private int[] source = new int[16];
+        private int[] target = new int[16];
+        private int size = 0;
+
+        private void add(final int i, final int j)
+        {
+            if (size == source.length) {
+                source = Arrays.copyOf(source, size * 2);
+                target = Arrays.copyOf(target, size * 2);
+            }
+            source[size] = i;
+            target[size++] = j;
+        }
+
+        private int[][] toArrays()
+        {
+            return new int[][] { Arrays.copyOf(source, size),
+                Arrays.copyOf(target, size) };
+        }
+    }
+
+    /**
+     * A JSON Patch operation
+     */
+    private static final class Operation
+    {
+        private final String op;
+        private final LinkedJsonPointer path;
+        private final JsonNode value;
+
+        private Operation(final String op, final LinkedJsonPointer path,
+            final JsonNode value)
+        {
+            this.op = op;
+            this.path = path;
+            this.value = value;
+        }
+    }
+}
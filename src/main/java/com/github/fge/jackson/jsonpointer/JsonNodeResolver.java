@@ -29,6 +29,10 @@ import javax.annotation.concurrent.Immutable;
  * <p>The JSON Pointer specification specifies that for arrays, indices must
  * not have leading zeroes (save for {@code 0} itself). This class handles
  * this.</p>
+ *
+ * <p>Both the member name and the array index for the reference token are
+ * computed once, at construction time; traversal therefore does not need to
+ * parse anything.</p>
  */
 @Immutable
 public final class JsonNodeResolver
@@ -39,9 +43,31 @@ public final class JsonNodeResolver
      */
     private static final char ZERO = '0';
 
+    /**
+     * Nine
+     */
+    private static final char NINE = '9';
+
+    /**
+     * Maximum number of digits of an array index
+     */
+    private static final int MAX_DIGITS = 10;
+
+    /**
+     * The raw token, used as a member name for objects
+     */
+    private final String raw;
+
+    /**
+     * The array index for this token (-1 if not a valid index)
+     */
+    private final int index;
+
     public JsonNodeResolver(final ReferenceToken token)
     {
         super(token);
+        raw = token.getRaw();
+        index = arrayIndexFor(raw);
     }
 
     @Override
@@ -49,8 +75,7 @@ public final class JsonNodeResolver
     {
         if (node == null || !node.isContainerNode())
             return null;
-        final String raw = token.getRaw();
-        return node.isObject() ? node.get(raw) : node.get(arrayIndexFor(raw));
+        return node.isObject() ? node.get(raw) : node.get(index);
     }
 
     /**
@@ -60,15 +85,35 @@ public final class JsonNodeResolver
      * with {@link JsonNode#get(int)}, we are guaranteed correct results, since
      * this will return {@code null} in this case.</p>
      *
+     * <p>This method is called for every token, including the (many) tokens
+     * which are not array indices; it therefore does not rely on {@link
+     * Integer#parseInt(String)} and the exception it throws on failure.</p>
+     *
      * @param raw the raw token, as a string
      * @return the index, or -1 if the index is invalid
      */
-    private static int arrayIndexFor(final String raw)
+    static int arrayIndexFor(final String raw)
+    {
+        return arrayIndexFor(raw, 0, raw.length());
+    }
+
+    /**
+     * Return an array index corresponding to part of a string
+     *
+     * @param s the string
+     * @param start the start offset of the token (inclusive)
+     * @param end the end offset of the token (exclusive)
+     * @return the index, or -1 if the index is invalid
+     * @see #arrayIndexFor(String)
+     */
+    static int arrayIndexFor(final String s, final int start, final int end)
     {
+        final int length = end - start;
+
         /*
          * Empty? No dice.
          */
-        if (raw.isEmpty())
+        if (length == 0)
             return -1;
         /*
          * Leading zeroes are not allowed in number-only refTokens for arrays.
@@ -76,16 +121,26 @@ public final class JsonNodeResolver
          * well. So, if the string starts with '0', return 0 if the token length
          * is 1 or -1 otherwise.
          */
-        if (raw.charAt(0) == ZERO)
-            return raw.length() == 1 ? 0 : -1;
+        if (s.charAt(start) == ZERO)
+            return length == 1 ? 0 : -1;
 
         /*
-         * Otherwise, parse as an int. If we can't, -1.
+         * Otherwise, only ASCII digits are allowed, and the result must fit
+         * into an int (which has at most 10 digits). If not, -1.
          */
-        try {
-            return Integer.parseInt(raw);
-        } catch (NumberFormatException ignored) {
+        if (length > MAX_DIGITS)
             return -1;
+
+        long ret = 0L;
+        char c;
+
+        for (int i = start; i < end; i++) {
+            c = s.charAt(i);
+            if (c < ZERO || c > NINE)
+                return -1;
+            ret = 10L * ret + (c - ZERO);
         }
+
+        return ret > Integer.MAX_VALUE ? -1 : (int) ret;
     }
 }
@@ -0,0 +1,562 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.base.Objects;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lazy enumeration of the values of a {@link JsonNode}, along with their
+ * {@link JsonPointer}s
+ *
+ * <p>A traversal either enumerates all values of a document (see {@link
+ * #allNodes(JsonNode)}), or only its leaves (see {@link #leaves(JsonNode)}).
+ * Values are enumerated lazily, in document order, each value coming before
+ * its children.</p>
+ *
+ * <p>Pointers share their prefixes: during a traversal, each value only
+ * records its parent and its own reference token, and the {@link JsonPointer}
+ * itself is only built if the key of an entry is requested. Enumerating
+ * values without looking at all of their pointers is therefore cheap.</p>
+ *
+ * <p>A traversal can be split into several traversals (see {@link #split()}),
+ * which can then be processed independently, for instance by different
+ * threads.</p>
+ */
+@Immutable
+public final class JsonNodeTraversal
+    implements Iterable<Map.Entry<JsonPointer, JsonNode>>
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    /**
+     * The path to the start value
+     */
+    private final Path path;
+
+    /**
+     * The start value
+     */
+    private final JsonNode node;
+
+    /**
+     * Whether only leaves are enumerated
+     */
+    private final boolean leavesOnly;
+
+    /**
+     * Whether children of the start value are enumerated
+     */
+    private final boolean descend;
+
+    /**
+     * The maximum depth of enumerated values
+     */
+    private final int maxDepth;
+
+    private JsonNodeTraversal(final Path path, final JsonNode node,
+        final boolean leavesOnly, final boolean descend, final int maxDepth)
+    {
+        this.path = path;
+        this.node = node;
+        this.leavesOnly = leavesOnly;
+        this.descend = descend;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Return a traversal enumerating all values of a document
+     *
+     * <p>This includes the document itself, with an empty pointer.</p>
+     *
+     * @param node the document
+     * @return a traversal
+     * @throws NullPointerException document is null
+     */
+    public static JsonNodeTraversal allNodes(final JsonNode node)
+    {
+        return allNodes(node, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Return a traversal enumerating all values of a document up to a given
+     * depth
+     *
+     * <p>The document itself has depth 0; the members or elements of the
+     * document have depth 1; and so on.</p>
+     *
+     * @param node the document
+     * @param maxDepth the maximum depth (must not be negative)
+     * @return a traversal
+     * @throws NullPointerException document is null
+     */
+    static JsonNodeTraversal allNodes(final JsonNode node, final int maxDepth)
+    {
+        BUNDLE.checkNotNull(node, "nullInput");
+        return new JsonNodeTraversal(Path.ROOT, node, false, true, maxDepth);
+    }
+
+    /**
+     * Return a traversal enumerating the leaves of a document
+     *
+     * <p>Leaves are values which are not containers, and empty containers.</p>
+     *
+     * @param node the document
+     * @return a traversal
+     * @throws NullPointerException document is null
+     */
+    public static JsonNodeTraversal leaves(final JsonNode node)
+    {
+        BUNDLE.checkNotNull(node, "nullInput");
+        return new JsonNodeTraversal(Path.ROOT, node, true, true,
+            Integer.MAX_VALUE);
+    }
+
+    /**
+     * Split this traversal
+     *
+     * <p>The returned traversals enumerate, in order, exactly the same entries
+     * as this traversal: if the start value is a non empty container, there is
+     * one traversal per member or element, preceded (unless only leaves are
+     * enumerated) by one traversal for the start value itself. Otherwise, the
+     * returned list only contains this traversal.</p>
+     *
+     * <p>Each returned traversal can be split further.</p>
+     *
+     * @return an immutable list of traversals
+     */
+    public List<JsonNodeTraversal> split()
+    {
+        if (!descend || !isExpanded(path, node))
+            return ImmutableList.of(this);
+
+        final ImmutableList.Builder<JsonNodeTraversal> builder
+            = ImmutableList.builder();
+
+        if (!leavesOnly)
+            builder.add(new JsonNodeTraversal(path, node, false, false,
+                maxDepth));
+
+        if (node.isObject()) {
+            final Iterator<Map.Entry<String, JsonNode>> iterator
+                = node.fields();
+            Map.Entry<String, JsonNode> entry;
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                builder.add(new JsonNodeTraversal(
+                    new Path(path, entry.getKey(), -1), entry.getValue(),
+                    leavesOnly, true, maxDepth));
+            }
+        } else {
+            final int size = node.size();
+            for (int i = 0; i < size; i++)
+                builder.add(new JsonNodeTraversal(new Path(path, null, i),
+                    node.get(i), leavesOnly, true, maxDepth));
+        }
+
+        return builder.build();
+    }
+
+    @Override
+    public Iterator<Map.Entry<JsonPointer, JsonNode>> iterator()
+    {
+        return new TraversalIterator();
+    }
+
+    private boolean isReported(final JsonNode value)
+    {
+        return !leavesOnly || value.size() == 0;
+    }
+
+    private boolean isExpanded(final Path valuePath, final JsonNode value)
+    {
+        return value.size() != 0 && valuePath.depth < maxDepth;
+    }
+
+    private final class TraversalIterator
+        extends AbstractIterator<Map.Entry<JsonPointer, JsonNode>>
+    {
+        private final Deque<Frame> stack = new ArrayDeque<Frame>();
+        private boolean started = false;
+
+        @Override
+        protected Map.Entry<JsonPointer, JsonNode> computeNext()
+        {
+            if (!started) {
+                started = true;
+                if (descend && isExpanded(path, node))
+                    stack.push(new Frame(path, node));
+                if (isReported(node) || !descend)
+                    return new Entry(path, node);
+            }
+
+            Frame frame;
+            Entry entry;
+            JsonNode value;
+
+            while (!stack.isEmpty()) {
+                frame = stack.peek();
+                if (!frame.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                entry = frame.next();
+                value = entry.getValue();
+                if (isExpanded(entry.path, value))
+                    stack.push(new Frame(entry.path, value));
+                if (isReported(value))
+                    return entry;
+            }
+
+            return endOfData();
+        }
+    }
+
+    /**
+     * One container being enumerated
+     */
+    private static final class Frame
+    {
+        private final Path path;
+        private final JsonNode container;
+        private final Iterator<Map.Entry<String, JsonNode>> fields;
+        private final int size;
+        private int index = 0;
+
+        private Frame(final Path path, final JsonNode container)
+        {
+            this.path = path;
+            this.container = container;
+            fields = container.isObject() ? container.fields() : null;
+            size = container.size();
+        }
+
+        private boolean hasNext()
+        {
+            return fields != null ? fields.hasNext() : index < size;
+        }
+
+        private Entry next()
+        {
+            if (fields == null) {
+                final int i = index++;
+                return new Entry(new Path(path, null, i), container.get(i));
+            }
+            final Map.Entry<String, JsonNode> field = fields.next();
+            return new Entry(new Path(path, field.getKey(), -1),
+                field.getValue());
+        }
+    }
+
+    /**
+     * The path to a value, as a link to the path of its parent
+     *
+     * <p>The pointer for this path is only built on demand, and is then
+     * memoized. It is built from the pointer of the parent path, which is
+     * built (and memoized) first if need be, plus one token.</p>
+     *
+     * <p>Pointers share their token resolvers with the pointers of their
+     * parent paths: the first path to extend a given pointer appends its
+     * resolver to the parent's {@link Resolvers} and shares them; other paths
+     * get a copy. Along a chain of values, pointers therefore take constant
+     * time and memory each.</p>
+     *
+     * <p>Paths are shared by the traversals returned by {@link #split()},
+     * which may be used by different threads: a pointer and its resolvers are
+     * therefore published together, as one immutable {@link Memo} in a
+     * volatile field.</p>
+     */
+    private static final class Path
+    {
+        private static final Path ROOT = new Path(null, null, -1);
+
+        private final Path parent;
+        private final String name;
+        private final int index;
+        private final int depth;
+        private volatile Memo memo;
+
+        private Path(final Path parent, final String name, final int index)
+        {
+            this.parent = parent;
+            this.name = name;
+            this.index = index;
+            depth = parent == null ? 0 : parent.depth + 1;
+            if (parent == null)
+                memo = new Memo(JsonPointer.empty(), null);
+        }
+
+        private JsonPointer toPointer()
+        {
+            /*
+             * Two threads may both compute the memo of a path; this is
+             * harmless, since both memos are complete and equal.
+             */
+            final Memo known = memo;
+
+            if (known != null)
+                return known.pointer;
+
+            /*
+             * Build missing pointers from the closest memoized ancestor down,
+             * without recursion: chains can be arbitrarily long.
+             */
+            final Deque<Path> paths = new ArrayDeque<Path>();
+            Path current = this;
+
+            while (current.memo == null) {
+                paths.push(current);
+                current = current.parent;
+            }
+
+            while (!paths.isEmpty())
+                paths.pop().extendParent();
+
+            return memo.pointer;
+        }
+
+        private void extendParent()
+        {
+            final TokenResolver<JsonNode> resolver = new JsonNodeResolver(
+                name == null ? ReferenceToken.fromInt(index)
+                : ReferenceToken.fromRaw(name));
+            final Resolvers shared = parent.memo.resolvers;
+            final Resolvers resolvers
+                = shared != null && shared.append(depth - 1, resolver)
+                ? shared : Resolvers.copyOf(shared, depth - 1, resolver);
+
+            final int hash = 31 * parent.memo.pointer.hashCode()
+                + resolver.hashCode();
+
+            memo = new Memo(new JsonPointer(resolvers.prefix(depth, hash),
+                false), resolvers);
+        }
+    }
+
+    /**
+     * The memoized pointer of a path, along with the resolvers it shares
+     */
+    @Immutable
+    private static final class Memo
+    {
+        private final JsonPointer pointer;
+        private final Resolvers resolvers;
+
+        private Memo(final JsonPointer pointer, final Resolvers resolvers)
+        {
+            this.pointer = pointer;
+            this.resolvers = resolvers;
+        }
+    }
+
+    /**
+     * An append-only array of token resolvers, shared by pointers
+     *
+     * <p>Each pointer sharing this array sees an immutable prefix of it: a
+     * slot is written at most once, by the only path which could claim it.
+     * Slots are atomic references, so that a pointer never sees an unwritten
+     * slot of its prefix.</p>
+     */
+    private static final class Resolvers
+    {
+        private static final int MIN_CAPACITY = 16;
+
+        private final AtomicReferenceArray<TokenResolver<JsonNode>> array;
+        private final AtomicInteger length;
+
+        private Resolvers(final int capacity, final int length)
+        {
+            array = new AtomicReferenceArray<TokenResolver<JsonNode>>(capacity);
+            this.length = new AtomicInteger(length);
+        }
+
+        private static Resolvers copyOf(final Resolvers resolvers,
+            final int size, final TokenResolver<JsonNode> resolver)
+        {
+            final Resolvers ret
+                = new Resolvers(Math.max(MIN_CAPACITY, 2 * size), size + 1);
+            for (int i = 0; i < size; i++)
+                ret.array.set(i, resolvers.array.get(i));
+            ret.array.set(size, resolver);
+            return ret;
+        }
+
+        /*
+         * Claim the slot at the given position if it is the first free slot
+         */
+        private boolean append(final int position,
+            final TokenResolver<JsonNode> resolver)
+        {
+            if (position == array.length()
+                || !length.compareAndSet(position, position + 1))
+                return false;
+            array.set(position, resolver);
+            return true;
+        }
+
+        private List<TokenResolver<JsonNode>> prefix(final int size,
+            final int hash)
+        {
+            return new Prefix(array, size, hash);
+        }
+    }
+
+    /**
+     * An immutable view of the first elements of an array of resolvers
+     *
+     * <p>Its hash code, as defined by {@link List#hashCode()}, is computed
+     * from the hash code of the parent pointer when the view is built, so
+     * that pointers can be used as keys of hash tables at no extra cost.</p>
+     */
+    private static final class Prefix
+        extends AbstractList<TokenResolver<JsonNode>>
+        implements RandomAccess
+    {
+        private final AtomicReferenceArray<TokenResolver<JsonNode>> array;
+        private final int size;
+        private final int hash;
+
+        private Prefix(
+            final AtomicReferenceArray<TokenResolver<JsonNode>> array,
+            final int size, final int hash)
+        {
+            this.array = array;
+            this.size = size;
+            this.hash = hash;
+        }
+
+        @Override
+        public TokenResolver<JsonNode> get(final int index)
+        {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+            return array.get(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        /*
+         * Hash tables may compare keys with colliding buckets; compare sizes,
+         * and hashes when possible, before comparing elements
+         */
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (obj == null)
+                return false;
+            if (this == obj)
+                return true;
+            if (!(obj instanceof List))
+                return false;
+            final List<?> other = (List<?>) obj;
+            if (other.size() != size)
+                return false;
+            if (other instanceof Prefix && ((Prefix) other).hash != hash)
+                return false;
+            return super.equals(other);
+        }
+    }
+
+    /**
+     * One entry of a traversal
+     */
+    private static final class Entry
+        implements Map.Entry<JsonPointer, JsonNode>
+    {
+        private final Path path;
+        private final JsonNode value;
+
+        private Entry(final Path path, final JsonNode value)
+        {
+            this.path = path;
+            this.value = value;
+        }
+
+        @Override
+        public JsonPointer getKey()
+        {
+            return path.toPointer();
+        }
+
+        @Override
+        public JsonNode getValue()
+        {
+            return value;
+        }
+
+        @Override
+        public JsonNode setValue(final JsonNode value)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return getKey().hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (obj == null)
+                return false;
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Map.Entry))
+                return false;
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return Objects.equal(getKey(), other.getKey())
+                && Objects.equal(value, other.getValue());
+        }
+
+        @Override
+        public String toString()
+        {
+            return getKey() + "=" + value;
+        }
+    }
+}
@@ -19,13 +19,24 @@
 
 package com.github.fge.jackson.jsonpointer;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.TreeNode;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.io.Closer;
 
 import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.util.List;
 
 /**
@@ -35,11 +46,43 @@ import java.util.List;
  * </p>
  *
  * <p>It also has a lot of utility methods covering several usage scenarios.</p>
+ *
+ * <p>In addition to traversing {@link JsonNode}s, a JSON Pointer can be
+ * evaluated directly over JSON input (see {@link #read(JsonParser)}): only the
+ * value it points to is then ever built.</p>
+ *
+ * <p>Finally, it can be used to produce modified copies of a document (see
+ * {@link #add(JsonNode, JsonNode)}, {@link #replace(JsonNode, JsonNode)} and
+ * {@link #remove(JsonNode)}). These methods never modify their arguments: only
+ * the containers on the path to the target value are copied, and all other
+ * values are shared between the original and the result. This means that the
+ * result should be treated as immutable, just like the original.</p>
+ *
+ * <p>JSON Pointers are ordered token by token, comparing the raw tokens as
+ * strings; a pointer comes before all pointers it is a prefix of. As a result,
+ * in a sorted collection of pointers, all pointers having a given prefix are
+ * contiguous (see {@link JsonPointerTreeSet}).</p>
  */
 @Immutable
 public final class JsonPointer
     extends TreePointer<JsonNode>
+    implements Comparable<JsonPointer>
 {
+    /**
+     * Reader used to build the target value when reading from a stream
+     */
+    private static final ObjectReader READER = JacksonUtils.getReader();
+
+    /**
+     * Node factory used to copy containers
+     */
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    /**
+     * The token used to append a value to an array when adding a value
+     */
+    private static final String APPEND = "-";
+
     /**
      * The empty JSON Pointer
      */
@@ -56,6 +99,51 @@ public final class JsonPointer
         return EMPTY;
     }
 
+    /**
+     * Return a shared JSON Pointer for a given input
+     *
+     * <p>Unlike {@link #JsonPointer(String)}, this method does not decode the
+     * input each time it is called: the decoded pointer is kept in a bounded
+     * cache and the same instance is returned on subsequent calls with the
+     * same input.</p>
+     *
+     * @param input the input string
+     * @return a JSON Pointer
+     * @throws JsonPointerException malformed JSON Pointer
+     * @throws NullPointerException null input
+     * @see JsonPointerCache#getDefault()
+     */
+    public static JsonPointer compile(final String input)
+        throws JsonPointerException
+    {
+        return JsonPointerCache.getDefault().get(input);
+    }
+
+    /**
+     * Parse a JSON Pointer without throwing an exception on failure
+     *
+     * <p>This is meant for validating untrusted input: if the input is not a
+     * valid JSON Pointer, the result tells why, and where, without a {@link
+     * JsonPointerException} (and its stack trace) being built.</p>
+     *
+     * @param input the input string
+     * @return the result of parsing
+     * @throws NullPointerException null input
+     */
+    public static JsonPointerParseResult tryParse(final String input)
+    {
+        BUNDLE.checkNotNull(input, "nullInput");
+        final JsonPointerParseResult failure
+            = JsonPointerParseResult.checkSyntax(input);
+        if (failure != null)
+            return failure;
+        try {
+            return JsonPointerParseResult.success(new JsonPointer(input));
+        } catch (JsonPointerException e) {
+            throw new RuntimeException("How did I get there??", e);
+        }
+    }
+
     /**
      * Build a JSON Pointer out of a series of reference tokens
      *
@@ -108,6 +196,19 @@ public final class JsonPointer
         super(MissingNode.getInstance(), tokenResolvers);
     }
 
+    /**
+     * Constructor sharing a list of token resolvers
+     *
+     * @param tokenResolvers the list of token resolvers
+     * @param copy whether the list should be copied
+     * @see TreePointer#TreePointer(TreeNode, List, boolean)
+     */
+    JsonPointer(final List<TokenResolver<JsonNode>> tokenResolvers,
+        final boolean copy)
+    {
+        super(MissingNode.getInstance(), tokenResolvers, copy);
+    }
+
     /**
      * Return a new pointer with a new token appended
      *
@@ -119,9 +220,13 @@ public final class JsonPointer
     {
         final ReferenceToken refToken = ReferenceToken.fromRaw(raw);
         final JsonNodeResolver resolver = new JsonNodeResolver(refToken);
+        /*
+         * Build an ImmutableList directly: TreePointer's constructor will then
+         * not need to copy it again.
+         */
         final List<TokenResolver<JsonNode>> list
-            = Lists.newArrayList(tokenResolvers);
-        list.add(resolver);
+            = ImmutableList.<TokenResolver<JsonNode>>builder()
+            .addAll(tokenResolvers).add(resolver).build();
         return new JsonPointer(list);
     }
 
@@ -147,8 +252,8 @@ public final class JsonPointer
     {
         BUNDLE.checkNotNull(other, "nullInput");
         final List<TokenResolver<JsonNode>> list
-            = Lists.newArrayList(tokenResolvers);
-        list.addAll(other.tokenResolvers);
+            = ImmutableList.<TokenResolver<JsonNode>>builder()
+            .addAll(tokenResolvers).addAll(other.tokenResolvers).build();
         return new JsonPointer(list);
     }
 
@@ -166,6 +271,402 @@ public final class JsonPointer
             : new JsonPointer(tokenResolvers.subList(0, size - 1));
     }
 
+    /**
+     * Return the pointer which, appended to this one, yields another pointer
+     *
+     * <p>For instance, relativizing {@code /a/b/c} against {@code /a} yields
+     * {@code /b/c}.</p>
+     *
+     * @param other the other pointer
+     * @return the relative pointer
+     * @throws NullPointerException other pointer is null
+     * @throws IllegalArgumentException this pointer is not a prefix of the
+     * other pointer
+     * @see #isPrefixOf(TreePointer)
+     */
+    public JsonPointer relativize(final JsonPointer other)
+    {
+        BUNDLE.checkNotNull(other, "nullInput");
+        BUNDLE.checkArgument(isPrefixOf(other), "notAPrefix");
+        final int size = other.tokenResolvers.size();
+        return new JsonPointer(
+            other.tokenResolvers.subList(tokenResolvers.size(), size));
+    }
+
+    /**
+     * Return the longest common prefix of this pointer and another pointer
+     *
+     * @param other the other pointer
+     * @return the common ancestor (the empty pointer if there is none)
+     * @throws NullPointerException other pointer is null
+     */
+    public JsonPointer commonAncestor(final JsonPointer other)
+    {
+        BUNDLE.checkNotNull(other, "nullInput");
+        final int size
+            = Math.min(tokenResolvers.size(), other.tokenResolvers.size());
+        int i = 0;
+        while (i < size
+            && tokenResolvers.get(i).equals(other.tokenResolvers.get(i)))
+            i++;
+
+        if (i == tokenResolvers.size())
+            return this;
+        if (i == other.tokenResolvers.size())
+            return other;
+        return i == 0 ? EMPTY : new JsonPointer(tokenResolvers.subList(0, i));
+    }
+
+    @Override
+    public int compareTo(final JsonPointer o)
+    {
+        final List<TokenResolver<JsonNode>> other = o.tokenResolvers;
+        final int size = Math.min(tokenResolvers.size(), other.size());
+        int ret;
+
+        for (int i = 0; i < size; i++) {
+            ret = tokenResolvers.get(i).getToken().getRaw()
+                .compareTo(other.get(i).getToken().getRaw());
+            if (ret != 0)
+                return ret;
+        }
+
+        return tokenResolvers.size() - other.size();
+    }
+
+    /**
+     * Evaluate this pointer against JSON input
+     *
+     * <p>The parser may or may not have been advanced already; if it has, its
+     * current token is considered to be the start of the value to evaluate
+     * against.</p>
+     *
+     * <p>Branches of the input which this pointer does not go through are
+     * skipped without being built; only the target value is built as a {@link
+     * JsonNode}.</p>
+     *
+     * <p>If an object has duplicate member names, the last matching member is
+     * used, as when the input is read as a tree: objects which this pointer
+     * goes through are therefore always read up to their end. Other than that,
+     * reading stops as soon as the target value is complete (or as soon as it
+     * is known not to exist), and the parser can be used further.</p>
+     *
+     * @param parser the parser
+     * @return the target value, or {@code null} if not found
+     * @throws IOException malformed input, or I/O error
+     * @throws NullPointerException parser is null
+     */
+    public JsonNode read(final JsonParser parser)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(parser, "nullInput");
+
+        if (parser.getCurrentToken() == null && parser.nextToken() == null)
+            return null;
+
+        return read(parser, 0, false);
+    }
+
+    /**
+     * Evaluate this pointer against JSON input read from an {@link
+     * InputStream}
+     *
+     * <p>The stream is closed when this method returns.</p>
+     *
+     * @param in the input stream
+     * @return the target value, or {@code null} if not found
+     * @throws IOException malformed input, or I/O error
+     * @throws NullPointerException input is null
+     * @see #read(JsonParser)
+     */
+    public JsonNode read(final InputStream in)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(in, "nullInput");
+        final Closer closer = Closer.create();
+
+        try {
+            return read(closer.register(READER.getFactory()
+                .createParser(in)));
+        } finally {
+            closer.close();
+        }
+    }
+
+    /**
+     * Evaluate this pointer against JSON input read from a {@link Reader}
+     *
+     * <p>The reader is closed when this method returns.</p>
+     *
+     * @param r the reader
+     * @return the target value, or {@code null} if not found
+     * @throws IOException malformed input, or I/O error
+     * @throws NullPointerException input is null
+     * @see #read(JsonParser)
+     */
+    public JsonNode read(final Reader r)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(r, "nullInput");
+        final Closer closer = Closer.create();
+
+        try {
+            return read(closer.register(READER.getFactory().createParser(r)));
+        } finally {
+            closer.close();
+        }
+    }
+
+    /**
+     * Return a copy of a document with a value added at this pointer
+     *
+     * <p>This obeys the semantics of the JSON Patch {@code add} operation: the
+     * parent of the target must exist and be a container. If it is an object,
+     * the member is added, or replaced if it already exists. If it is an array,
+     * the value is inserted at the given index, which must be at most the size
+     * of the array; the special token {@code -} appends the value to the array.
+     * </p>
+     *
+     * <p>If this pointer is empty, the value itself is returned.</p>
+     *
+     * @param root the document
+     * @param value the value to add
+     * @return the modified copy of the document
+     * @throws JsonPointerException parent does not exist, or illegal index
+     * @throws NullPointerException document or value is null
+     */
+    public JsonNode add(final JsonNode root, final JsonNode value)
+        throws JsonPointerException
+    {
+        BUNDLE.checkNotNull(root, "nullInput");
+        BUNDLE.checkNotNull(value, "nullInput");
+        return tokenResolvers.isEmpty() ? value
+            : update(root, 0, Update.ADD, value);
+    }
+
+    /**
+     * Return a copy of a document with the value at this pointer replaced
+     *
+     * <p>The target value must exist. If this pointer is empty, the value
+     * itself is returned.</p>
+     *
+     * @param root the document
+     * @param value the replacement value
+     * @return the modified copy of the document
+     * @throws JsonPointerException target value does not exist
+     * @throws NullPointerException document or value is null
+     */
+    public JsonNode replace(final JsonNode root, final JsonNode value)
+        throws JsonPointerException
+    {
+        BUNDLE.checkNotNull(root, "nullInput");
+        BUNDLE.checkNotNull(value, "nullInput");
+        return tokenResolvers.isEmpty() ? value
+            : update(root, 0, Update.REPLACE, value);
+    }
+
+    /**
+     * Return a copy of a document with the value at this pointer removed
+     *
+     * <p>The target value must exist; the root value cannot be removed.</p>
+     *
+     * @param root the document
+     * @return the modified copy of the document
+     * @throws JsonPointerException target value does not exist, or this
+     * pointer is empty
+     * @throws NullPointerException document is null
+     */
+    public JsonNode remove(final JsonNode root)
+        throws JsonPointerException
+    {
+        BUNDLE.checkNotNull(root, "nullInput");
+        if (tokenResolvers.isEmpty())
+            throw new JsonPointerException(
+                BUNDLE.getMessage("cannotRemoveRoot"));
+        return update(root, 0, Update.REMOVE, null);
+    }
+
+    /**
+     * Copy a container, updating the value below it at this pointer
+     *
+     * @param node the container to copy
+     * @param depth the index of the reference token to traverse
+     * @param update the type of update
+     * @param value the new value (null if removing)
+     * @return the modified copy of the container
+     * @throws JsonPointerException see {@link #add(JsonNode, JsonNode)},
+     * {@link #replace(JsonNode, JsonNode)} and {@link #remove(JsonNode)}
+     */
+    private JsonNode update(final JsonNode node, final int depth,
+        final Update update, final JsonNode value)
+        throws JsonPointerException
+    {
+        final TokenResolver<JsonNode> resolver = tokenResolvers.get(depth);
+        final String raw = resolver.getToken().getRaw();
+
+        if (!node.isContainerNode())
+            throw new JsonPointerException(BUNDLE.getMessage("noSuchParent"));
+
+        /*
+         * Not the last token: copy this container and replace the child with
+         * its own updated copy.
+         */
+        if (depth < tokenResolvers.size() - 1) {
+            final JsonNode child = resolver.get(node);
+            if (child == null)
+                throw new JsonPointerException(
+                    BUNDLE.getMessage("noSuchParent"));
+            final JsonNode newChild = update(child, depth + 1, update, value);
+            if (node.isObject()) {
+                final ObjectNode ret = copyOf(node);
+                ret.set(raw, newChild);
+                return ret;
+            }
+            final ArrayNode ret = FACTORY.arrayNode();
+            ret.addAll((ArrayNode) node);
+            ret.set(JsonNodeResolver.arrayIndexFor(raw), newChild);
+            return ret;
+        }
+
+        /*
+         * Last token: this container is the parent of the target.
+         */
+        return node.isObject() ? updateObject(node, raw, update, value)
+            : updateArray(node, raw, update, value);
+    }
+
+    private static JsonNode updateObject(final JsonNode node, final String raw,
+        final Update update, final JsonNode value)
+        throws JsonPointerException
+    {
+        if (update != Update.ADD && !node.has(raw))
+            throw new JsonPointerException(BUNDLE.getMessage("noSuchTarget"));
+
+        final ObjectNode ret = copyOf(node);
+
+        if (update == Update.REMOVE)
+            ret.remove(raw);
+        else
+            ret.set(raw, value);
+
+        return ret;
+    }
+
+    private static JsonNode updateArray(final JsonNode node, final String raw,
+        final Update update, final JsonNode value)
+        throws JsonPointerException
+    {
+        final int size = node.size();
+        final ArrayNode ret = FACTORY.arrayNode();
+        ret.addAll((ArrayNode) node);
+
+        if (update == Update.ADD) {
+            final int index = APPEND.equals(raw) ? size
+                : JsonNodeResolver.arrayIndexFor(raw);
+            if (index == -1 || index > size)
+                throw new JsonPointerException(
+                    BUNDLE.getMessage("illegalIndex"));
+            ret.insert(index, value);
+            return ret;
+        }
+
+        final int index = JsonNodeResolver.arrayIndexFor(raw);
+
+        if (index == -1 || index >= size)
+            throw new JsonPointerException(BUNDLE.getMessage("noSuchTarget"));
+
+        if (update == Update.REMOVE)
+            ret.remove(index);
+        else
+            ret.set(index, value);
+
+        return ret;
+    }
+
+    /**
+     * Make a shallow copy of an object node
+     *
+     * @param node the node
+     * @return the copy
+     */
+    private static ObjectNode copyOf(final JsonNode node)
+    {
+        final ObjectNode ret = FACTORY.objectNode();
+        ret.setAll((ObjectNode) node);
+        return ret;
+    }
+
+    /**
+     * Read the value designated by the tokens of this pointer from a given
+     * position
+     *
+     * <p>On entry, the current token of the parser is the start of the value
+     * to traverse. On exit, if the value had to be read entirely, or if it is
+     * an object, the current token is its last token.</p>
+     *
+     * @param parser the parser
+     * @param position the position of the first token to evaluate
+     * @param entirely whether the value must be read entirely
+     * @return the designated value, or {@code null} if not found
+     * @throws IOException malformed input, or I/O error
+     */
+    private JsonNode read(final JsonParser parser, final int position,
+        final boolean entirely)
+        throws IOException
+    {
+        if (position == tokenResolvers.size())
+            return READER.readTree(parser);
+
+        final String raw = tokenResolvers.get(position).getToken().getRaw();
+        final JsonToken token = parser.getCurrentToken();
+        JsonNode ret = null;
+        boolean found;
+
+        /*
+         * A later member with the same name replaces the earlier one: read
+         * the object up to its end, and keep the last match
+         */
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                found = raw.equals(parser.getCurrentName());
+                parser.nextToken();
+                if (found)
+                    ret = read(parser, position + 1, true);
+                else
+                    parser.skipChildren();
+            }
+            return ret;
+        }
+
+        if (token != JsonToken.START_ARRAY)
+            return null;
+
+        final int index = JsonNodeResolver.arrayIndexFor(raw);
+
+        if (index == -1) {
+            if (entirely)
+                parser.skipChildren();
+            return null;
+        }
+
+        JsonToken next;
+        int i = 0;
+
+        while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (next == null)
+                return ret;
+            if (i++ != index) {
+                parser.skipChildren();
+                continue;
+            }
+            ret = read(parser, position + 1, entirely);
+            if (!entirely)
+                return ret;
+        }
+
+        return ret;
+    }
+
     /**
      * Build a list of token resolvers from a list of reference tokens
      *
@@ -182,4 +683,14 @@ public final class JsonPointer
             list.add(new JsonNodeResolver(token));
         return list;
     }
+
+    /**
+     * Types of updates to a document
+     */
+    private enum Update
+    {
+        ADD,
+        REPLACE,
+        REMOVE
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * A JSON Pointer compiled for fast, repeated evaluation
+ *
+ * <p>{@link JsonPointer#get(JsonNode)} delegates each step to a {@link
+ * TokenResolver}, which in turn calls several virtual methods of {@link
+ * JsonNode} to find out what kind of node it is traversing. When a pointer is
+ * evaluated very often, this class can be used instead: it is built once from
+ * a pointer, and then traverses documents with a single loop over the
+ * precomputed member names and array indices of the pointer, using direct
+ * type checks against {@link ObjectNode} and {@link ArrayNode}.</p>
+ *
+ * <p>Accessors return the same values as the pointers they are compiled from.
+ * </p>
+ */
+@Immutable
+public final class JsonPointerAccessor
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    /**
+     * The pointer this accessor was compiled from
+     */
+    private final JsonPointer pointer;
+
+    /**
+     * The precomputed tokens of the pointer
+     */
+    private final RawTokens tokens;
+
+    private JsonPointerAccessor(final JsonPointer pointer)
+    {
+        this.pointer = pointer;
+        tokens = RawTokens.of(pointer);
+    }
+
+    /**
+     * Compile a pointer into an accessor
+     *
+     * @param pointer the pointer
+     * @return an accessor
+     * @throws NullPointerException pointer is null
+     */
+    public static JsonPointerAccessor compile(final JsonPointer pointer)
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+        return new JsonPointerAccessor(pointer);
+    }
+
+    /**
+     * Return the pointer this accessor was compiled from
+     *
+     * @return the pointer
+     */
+    public JsonPointer getPointer()
+    {
+        return pointer;
+    }
+
+    /**
+     * Traverse a node and return the result
+     *
+     * <p>This behaves exactly like {@link JsonPointer#get(JsonNode)}.</p>
+     *
+     * @param node the node to traverse
+     * @return the resulting node, {@code null} if not found
+     */
+    public JsonNode get(final JsonNode node)
+    {
+        final RawTokens t = tokens;
+        final int size = t.size();
+        JsonNode ret = node;
+
+        for (int i = 0; i < size; i++) {
+            if (ret instanceof ObjectNode)
+                ret = ((ObjectNode) ret).get(t.name(i));
+            else if (ret instanceof ArrayNode)
+                ret = ((ArrayNode) ret).get(t.index(i));
+            else
+                return null;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Traverse a node and return the result
+     *
+     * <p>This behaves exactly like {@link JsonPointer#path(JsonNode)}.</p>
+     *
+     * @param node the node to traverse
+     * @return the result, or a {@link MissingNode}
+     */
+    public JsonNode path(final JsonNode node)
+    {
+        final JsonNode ret = get(node);
+        return ret == null ? MissingNode.getInstance() : ret;
+    }
+
+    @Override
+    public String toString()
+    {
+        return pointer.toString();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A bounded cache of {@link JsonPointer} instances, keyed by their string
+ * representation
+ *
+ * <p>Since {@link JsonPointer} is immutable, the instances returned by this
+ * class can be freely shared between threads. When the cache is full, the
+ * least recently used entries are evicted first.</p>
+ *
+ * <p>Inputs which are not valid JSON Pointers are never cached; each attempt to
+ * decode them will throw an exception and count as a miss.</p>
+ *
+ * <p>Hit and miss counts are recorded, so that you can size the cache
+ * appropriately (see {@link #stats()}).</p>
+ *
+ * @see JsonPointer#compile(String)
+ */
+@ThreadSafe
+public final class JsonPointerCache
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    /**
+     * Maximum size of the default cache
+     */
+    private static final long DEFAULT_MAXIMUM_SIZE = 1024L;
+
+    /**
+     * The default cache, used by {@link JsonPointer#compile(String)}
+     */
+    private static final JsonPointerCache DEFAULT
+        = new JsonPointerCache(DEFAULT_MAXIMUM_SIZE);
+
+    /**
+     * The underlying cache
+     */
+    private final LoadingCache<String, JsonPointer> cache;
+
+    /**
+     * Build a new cache with a given maximum size
+     *
+     * @param maximumSize the maximum number of pointers to retain
+     * @throws IllegalArgumentException maximum size is negative
+     */
+    public JsonPointerCache(final long maximumSize)
+    {
+        BUNDLE.checkArgument(maximumSize >= 0L, "negativeCacheSize");
+        cache = CacheBuilder.newBuilder().maximumSize(maximumSize)
+            .recordStats().build(new CacheLoader<String, JsonPointer>()
+            {
+                @Override
+                public JsonPointer load(final String key)
+                    throws JsonPointerException
+                {
+                    return new JsonPointer(key);
+                }
+            });
+    }
+
+    /**
+     * Return the default cache
+     *
+     * <p>This cache can retain up to 1024 pointers.</p>
+     *
+     * @return the default, statically allocated cache
+     */
+    public static JsonPointerCache getDefault()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Return the JSON Pointer for a given input, decoding it if necessary
+     *
+     * @param input the input string
+     * @return the (possibly shared) JSON Pointer instance
+     * @throws JsonPointerException malformed JSON Pointer
+     * @throws NullPointerException null input
+     */
+    public JsonPointer get(final String input)
+        throws JsonPointerException
+    {
+        BUNDLE.checkNotNull(input, "nullInput");
+        try {
+            return cache.get(input);
+        } catch (ExecutionException e) {
+            /*
+             * The only checked exception our loader can throw
+             */
+            throw (JsonPointerException) e.getCause();
+        }
+    }
+
+    /**
+     * Return the number of pointers currently in this cache
+     *
+     * @return the (approximate) number of entries
+     */
+    public long size()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Return the number of times a pointer was found in this cache
+     *
+     * @return the hit count
+     */
+    public long hitCount()
+    {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * Return the number of times a pointer had to be decoded
+     *
+     * <p>Note that this includes attempts to decode invalid inputs.</p>
+     *
+     * @return the miss count
+     */
+    public long missCount()
+    {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * Return a snapshot of the full statistics of this cache
+     *
+     * @return the statistics
+     */
+    public CacheStats stats()
+    {
+        return cache.stats();
+    }
+
+    /**
+     * Remove all pointers from this cache
+     *
+     * <p>Statistics are not reset.</p>
+     */
+    public void clear()
+    {
+        cache.invalidateAll();
+    }
+}
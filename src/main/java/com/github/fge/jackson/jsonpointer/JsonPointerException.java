@@ -19,11 +19,46 @@
 
 package com.github.fge.jackson.jsonpointer;
 
+/**
+ * Exception thrown when a JSON Pointer is malformed, or cannot be applied
+ *
+ * <p>If system property {@value #STACKLESS_PROPERTY} is set to {@code true}
+ * when this class is loaded, instances of this exception do not fill in their
+ * stack trace. This makes rejecting malformed input much cheaper, at the cost
+ * of less useful stack traces. See also {@link
+ * JsonPointer#tryParse(String)}, which does not throw at all.</p>
+ */
 public final class JsonPointerException
     extends Exception
 {
+    /**
+     * System property enabling stackless exceptions
+     */
+    public static final String STACKLESS_PROPERTY
+        = "com.github.fge.jackson.jsonpointer.stacklessExceptions";
+
+    private static final boolean STACKLESS
+        = Boolean.getBoolean(STACKLESS_PROPERTY);
+
     public JsonPointerException(final String message)
     {
         super(message);
     }
+
+    /**
+     * Tell whether exceptions of this class are stackless
+     *
+     * @return true if stack traces are not filled in
+     * @see #STACKLESS_PROPERTY
+     */
+    public static boolean isStackless()
+    {
+        return STACKLESS;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace()
+    {
+        return STACKLESS ? this : super.fillInStackTrace();
+    }
 }
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the values of a document by their JSON Pointer
+ *
+ * <p>Resolving a {@link JsonPointer} requires walking the document from its
+ * root. For documents which are read many times, this class can be used
+ * instead: it is built once, by walking the whole document, and then looks up
+ * values by pointer in a hash table. Keys are the pointers themselves: the
+ * pointer of each value is built from the pointer of its parent, sharing its
+ * tokens, and lookups build no string.</p>
+ *
+ * <p>An index can cover all values of a document, or only values up to a given
+ * depth (see {@link #of(JsonNode, int)}). Values which are not covered are
+ * reported as missing.</p>
+ *
+ * <p>Note that the document is not copied: it must not be modified while the
+ * index is in use.</p>
+ */
+@Immutable
+public final class JsonPointerIndex
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    /*
+     * Estimated sizes used by estimatedMemoryUsage(), in bytes, for a 64-bit
+     * JVM with compressed references:
+     *
+     * - an entry of the map, including its slot in the hash table;
+     * - a JsonPointer instance, and the view of the resolvers it shares with
+     *   the pointer of its parent;
+     * - a token resolver, its reference token and its slot in the shared
+     *   array of resolvers;
+     * - a String instance, not counting its contents;
+     * - the header of a char array.
+     */
+    private static final long ENTRY_SIZE = 32L;
+    private static final long POINTER_SIZE = 40L;
+    private static final long TOKEN_SIZE = 48L;
+    private static final long STRING_SIZE = 24L;
+    private static final long ARRAY_HEADER_SIZE = 16L;
+
+    /**
+     * Values, indexed by their pointer
+     */
+    private final Map<JsonPointer, JsonNode> values;
+
+    /**
+     * The maximum depth of indexed values
+     */
+    private final int maxDepth;
+
+    /**
+     * Estimated memory usage of this index
+     */
+    private final long memoryUsage;
+
+    private JsonPointerIndex(final JsonNode node, final int maxDepth)
+    {
+        this.maxDepth = maxDepth;
+
+        /*
+         * The traversal builds the pointer of each value from the pointer of
+         * its parent, sharing its token resolvers.
+         */
+        final ImmutableMap.Builder<JsonPointer, JsonNode> builder
+            = ImmutableMap.builder();
+        long usage = 0L;
+
+        JsonPointer pointer;
+        List<TokenResolver<JsonNode>> resolvers;
+
+        for (final Map.Entry<JsonPointer, JsonNode> entry:
+            JsonNodeTraversal.allNodes(node, maxDepth)) {
+            pointer = entry.getKey();
+            builder.put(pointer, entry.getValue());
+            usage += ENTRY_SIZE + POINTER_SIZE;
+            resolvers = pointer.tokenResolvers;
+            if (!resolvers.isEmpty())
+                usage += TOKEN_SIZE + tokenSize(resolvers.get(
+                    resolvers.size() - 1).getToken());
+        }
+
+        values = builder.build();
+        memoryUsage = usage;
+    }
+
+    /**
+     * Build an index of all values of a document
+     *
+     * @param node the document
+     * @return an index
+     * @throws NullPointerException document is null
+     */
+    public static JsonPointerIndex of(final JsonNode node)
+    {
+        return of(node, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Build an index of the values of a document up to a given depth
+     *
+     * <p>The document itself has depth 0; the members or elements of the
+     * document have depth 1; and so on.</p>
+     *
+     * @param node the document
+     * @param maxDepth the maximum depth
+     * @return an index
+     * @throws NullPointerException document is null
+     * @throws IllegalArgumentException maximum depth is negative
+     */
+    public static JsonPointerIndex of(final JsonNode node, final int maxDepth)
+    {
+        BUNDLE.checkNotNull(node, "nullInput");
+        BUNDLE.checkArgument(maxDepth >= 0, "negativeDepth");
+        return new JsonPointerIndex(node, maxDepth);
+    }
+
+    /**
+     * Return the value for a given pointer
+     *
+     * @param pointer the pointer
+     * @return the value, or {@code null} if not found (or not indexed)
+     * @throws NullPointerException pointer is null
+     */
+    public JsonNode get(final JsonPointer pointer)
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+        return values.get(pointer);
+    }
+
+    /**
+     * Return the value for a given pointer, as a string
+     *
+     * <p>If the input is not a valid JSON Pointer, no value is found.</p>
+     *
+     * @param input the pointer, as a string
+     * @return the value, or {@code null} if not found (or not indexed)
+     * @throws NullPointerException input is null
+     */
+    public JsonNode get(final String input)
+    {
+        BUNDLE.checkNotNull(input, "nullInput");
+        final JsonPointerParseResult result = JsonPointer.tryParse(input);
+        return result.isValid() ? values.get(result.getPointer()) : null;
+    }
+
+    /**
+     * Return the number of indexed values
+     *
+     * @return the number of values
+     */
+    public int size()
+    {
+        return values.size();
+    }
+
+    /**
+     * Return the maximum depth of indexed values
+     *
+     * @return the maximum depth ({@link Integer#MAX_VALUE} if unlimited)
+     */
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    /**
+     * Return the estimated memory used by this index, in bytes
+     *
+     * <p>This covers the index itself (its entries and their keys), but not
+     * the document. This is a rough estimate for a 64-bit JVM using
+     * compressed references, and should only be used to decide whether it is
+     * worth building an index.</p>
+     *
+     * @return the estimated memory usage
+     */
+    public long estimatedMemoryUsage()
+    {
+        return memoryUsage;
+    }
+
+    /*
+     * Member names may be shared with the document, but array indices, and
+     * names which need escaping, are new strings; count all of them
+     */
+    private static long tokenSize(final ReferenceToken token)
+    {
+        final String raw = token.getRaw();
+        return STRING_SIZE + align(ARRAY_HEADER_SIZE + 2L * raw.length());
+    }
+
+    private static long align(final long size)
+    {
+        return (size + 7L) & ~7L;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Callback invoked when a pointer matches while reading JSON input
+ *
+ * @see JsonPointerSet#read(com.fasterxml.jackson.core.JsonParser,
+ * JsonPointerListener)
+ * @see JsonPointerPattern#read(com.fasterxml.jackson.core.JsonParser,
+ * JsonPointerListener)
+ */
+public interface JsonPointerListener
+{
+    /**
+     * Method called when a pointer matches
+     *
+     * @param index the index of the pointer in its set (always 0 when
+     * evaluating a {@link JsonPointerPattern})
+     * @param pointer the pointer
+     * @param value the value the pointer resolves to
+     */
+    void onMatch(final int index, final JsonPointer pointer,
+        final JsonNode value);
+}
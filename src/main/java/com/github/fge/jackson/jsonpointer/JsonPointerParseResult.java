@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The result of parsing a JSON Pointer without throwing an exception
+ *
+ * <p>This is returned by {@link JsonPointer#tryParse(String)}. If parsing
+ * succeeded, {@link #getPointer()} returns the pointer; otherwise, {@link
+ * #getMessage()} tells why parsing failed, and {@link #getPosition()} tells
+ * where in the input.</p>
+ *
+ * <p>Messages are only looked up once, when this class is loaded; a failed
+ * parse therefore only costs the allocation of the result.</p>
+ */
+@Immutable
+public final class JsonPointerParseResult
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private static final String NOT_SLASH = BUNDLE.getMessage("notSlash");
+    private static final String EMPTY_ESCAPE
+        = BUNDLE.getMessage("emptyEscape");
+    private static final String ILLEGAL_ESCAPE
+        = BUNDLE.getMessage("illegalEscape");
+
+    /**
+     * The reference token separator
+     */
+    private static final char SLASH = '/';
+
+    /**
+     * The escape character in a cooked token
+     */
+    private static final char ESCAPE = '~';
+
+    /**
+     * The encoded form of {@code ~} in a cooked token
+     */
+    private static final char ENCODED_TILDE = '0';
+
+    /**
+     * The encoded form of {@code /} in a cooked token
+     */
+    private static final char ENCODED_SLASH = '1';
+
+    /**
+     * The pointer ({@code null} if parsing failed)
+     */
+    private final JsonPointer pointer;
+
+    /**
+     * The failure message ({@code null} if parsing succeeded)
+     */
+    private final String message;
+
+    /**
+     * The position of the failure in the input (-1 if parsing succeeded)
+     */
+    private final int position;
+
+    private JsonPointerParseResult(final JsonPointer pointer,
+        final String message, final int position)
+    {
+        this.pointer = pointer;
+        this.message = message;
+        this.position = position;
+    }
+
+    /**
+     * Build a successful result
+     *
+     * @param pointer the pointer
+     * @return a result
+     */
+    static JsonPointerParseResult success(final JsonPointer pointer)
+    {
+        return new JsonPointerParseResult(pointer, null, -1);
+    }
+
+    /**
+     * Check the syntax of a JSON Pointer
+     *
+     * @param input the input
+     * @return a failed result, or {@code null} if the syntax is valid
+     */
+    static JsonPointerParseResult checkSyntax(final String input)
+    {
+        final int length = input.length();
+
+        if (length == 0)
+            return null;
+        if (input.charAt(0) != SLASH)
+            return new JsonPointerParseResult(null, NOT_SLASH, 0);
+
+        char c;
+
+        for (int i = 1; i < length; i++) {
+            if (input.charAt(i) != ESCAPE)
+                continue;
+            if (i + 1 == length)
+                return new JsonPointerParseResult(null, EMPTY_ESCAPE, i);
+            c = input.charAt(i + 1);
+            if (c == SLASH)
+                return new JsonPointerParseResult(null, EMPTY_ESCAPE, i);
+            if (c != ENCODED_TILDE && c != ENCODED_SLASH)
+                return new JsonPointerParseResult(null, ILLEGAL_ESCAPE, i);
+            i++;
+        }
+
+        return null;
+    }
+
+    /**
+     * Tell whether parsing succeeded
+     *
+     * @return true if the input was a valid JSON Pointer
+     */
+    public boolean isValid()
+    {
+        return pointer != null;
+    }
+
+    /**
+     * Return the parsed pointer
+     *
+     * @return the pointer, or {@code null} if parsing failed
+     */
+    public JsonPointer getPointer()
+    {
+        return pointer;
+    }
+
+    /**
+     * Return the reason why parsing failed
+     *
+     * <p>This is the message which the {@link JsonPointerException} thrown by
+     * {@link JsonPointer#JsonPointer(String)} would have.</p>
+     *
+     * @return the message, or {@code null} if parsing succeeded
+     */
+    public String getMessage()
+    {
+        return message;
+    }
+
+    /**
+     * Return the position in the input where parsing failed
+     *
+     * <p>For an illegal escape sequence, this is the position of the escape
+     * character.</p>
+     *
+     * @return the position, or -1 if parsing succeeded
+     */
+    public int getPosition()
+    {
+        return position;
+    }
+
+    @Override
+    public String toString()
+    {
+        return pointer != null ? "valid: " + pointer
+            : "invalid (position " + position + "): " + message;
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closer;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JSON Pointer with single-level wildcards
+ *
+ * <p>A pattern is written like a JSON Pointer, except that a reference token
+ * consisting of a single {@code *} matches any member of an object, or any
+ * element of an array. For instance, {@code /items/*&#47;price} matches {@code
+ * /items/0/price}, {@code /items/1/price}, etc. Other reference tokens obey the
+ * same rules as {@link JsonNodeResolver}.</p>
+ *
+ * <p>Note that there is no way to escape {@code *}: a pattern cannot match
+ * only an object member whose name is {@code *}.</p>
+ *
+ * <p>A pattern can be evaluated against a {@link JsonNode} (see {@link
+ * #get(JsonNode)}) or directly over JSON input (see {@link #read(JsonParser,
+ * JsonPointerListener)}); in the latter case, only matched values are built.
+ * </p>
+ */
+@Immutable
+public final class JsonPointerPattern
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    /**
+     * Reader used to build matched values when reading from a stream
+     */
+    private static final ObjectReader READER = JacksonUtils.getReader();
+
+    /**
+     * The wildcard token
+     */
+    private static final String WILDCARD = "*";
+
+    /**
+     * The reference tokens of this pattern
+     */
+    private final List<ReferenceToken> tokens;
+
+    /**
+     * The precomputed tokens of this pattern
+     */
+    private final RawTokens rawTokens;
+
+    /**
+     * Build a pattern from its string representation
+     *
+     * @param input the input string
+     * @throws JsonPointerException malformed pattern
+     * @throws NullPointerException null input
+     */
+    public JsonPointerPattern(final String input)
+        throws JsonPointerException
+    {
+        tokens = ImmutableList.copyOf(TreePointer.tokensFromInput(input));
+        rawTokens = RawTokens.of(tokens, WILDCARD);
+    }
+
+    /**
+     * Tell whether a JSON Pointer matches this pattern
+     *
+     * <p>Note that unlike when evaluating against a document, a token of the
+     * pointer matches a non wildcard token of the pattern only if they are
+     * equal; whether the token designates an array element or an object member
+     * is not known here.</p>
+     *
+     * @param pointer the pointer
+     * @return true if the pointer matches
+     * @throws NullPointerException pointer is null
+     */
+    public boolean matches(final JsonPointer pointer)
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+
+        final Iterator<TokenResolver<JsonNode>> iterator = pointer.iterator();
+        final int size = rawTokens.size();
+
+        String raw;
+        String name;
+
+        for (int i = 0; i < size; i++) {
+            if (!iterator.hasNext())
+                return false;
+            raw = iterator.next().getToken().getRaw();
+            name = rawTokens.name(i);
+            if (name != null && !name.equals(raw))
+                return false;
+        }
+
+        return !iterator.hasNext();
+    }
+
+    /**
+     * Tell whether a linked pointer matches this pattern
+     *
+     * <p>This behaves like {@link #matches(JsonPointer)}, without building a
+     * {@link JsonPointer}.</p>
+     *
+     * @param pointer the pointer
+     * @return true if the pointer matches
+     */
+    boolean matches(final LinkedJsonPointer pointer)
+    {
+        if (pointer.size() != rawTokens.size())
+            return false;
+
+        LinkedJsonPointer ptr = pointer;
+
+        String name;
+
+        for (int i = rawTokens.size() - 1; i >= 0; i--) {
+            name = rawTokens.name(i);
+            if (name != null && !name.equals(ptr.getLastToken().getRaw()))
+                return false;
+            ptr = ptr.parent();
+        }
+
+        return true;
+    }
+
+    /**
+     * Return the number of reference tokens of this pattern
+     *
+     * @return the number of tokens
+     */
+    int size()
+    {
+        return rawTokens.size();
+    }
+
+    /**
+     * Evaluate this pattern against a node
+     *
+     * @param node the node
+     * @return an immutable map of all matching pointers to their values, in
+     * document order
+     */
+    public Map<JsonPointer, JsonNode> get(final JsonNode node)
+    {
+        final ImmutableMap.Builder<JsonPointer, JsonNode> builder
+            = ImmutableMap.builder();
+        if (node != null)
+            collect(node, 0, Lists.<ReferenceToken>newArrayList(), builder);
+        return builder.build();
+    }
+
+    /**
+     * Evaluate this pattern against JSON input
+     *
+     * <p>The parser may or may not have been advanced already; if it has, its
+     * current token is considered to be the start of the value to evaluate
+     * against.</p>
+     *
+     * <p>Values which cannot lead to a match are skipped without being built;
+     * only matched values are built, and each of them is reported to the
+     * listener, with index 0, as soon as it is complete. The value is read
+     * entirely: the parser is positioned right after it.</p>
+     *
+     * @param parser the parser
+     * @param listener the listener
+     * @throws IOException malformed input, or I/O error
+     * @throws NullPointerException parser or listener is null
+     */
+    public void read(final JsonParser parser,
+        final JsonPointerListener listener)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(parser, "nullInput");
+        BUNDLE.checkNotNull(listener, "nullInput");
+
+        if (parser.getCurrentToken() == null && parser.nextToken() == null)
+            return;
+
+        walk(parser, 0, Lists.<ReferenceToken>newArrayList(), listener);
+    }
+
+    /**
+     * Evaluate this pattern against JSON input read from an {@link
+     * InputStream}
+     *
+     * <p>The stream is closed when this method returns.</p>
+     *
+     * @param in the input stream
+     * @param listener the listener
+     * @throws IOException malformed input, or I/O error
+     * @throws NullPointerException input or listener is null
+     * @see #read(JsonParser, JsonPointerListener)
+     */
+    public void read(final InputStream in, final JsonPointerListener listener)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(in, "nullInput");
+        final Closer closer = Closer.create();
+
+        try {
+            read(closer.register(READER.getFactory().createParser(in)),
+                listener);
+        } finally {
+            closer.close();
+        }
+    }
+
+    /**
+     * Evaluate this pattern against JSON input read from a {@link Reader}
+     *
+     * <p>The reader is closed when this method returns.</p>
+     *
+     * @param r the reader
+     * @param listener the listener
+     * @throws IOException malformed input, or I/O error
+     * @throws NullPointerException input or listener is null
+     * @see #read(JsonParser, JsonPointerListener)
+     */
+    public void read(final Reader r, final JsonPointerListener listener)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(r, "nullInput");
+        final Closer closer = Closer.create();
+
+        try {
+            read(closer.register(READER.getFactory().createParser(r)),
+                listener);
+        } finally {
+            closer.close();
+        }
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return tokens.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (obj == null)
+            return false;
+        if (this == obj)
+            return true;
+        if (getClass() != obj.getClass())
+            return false;
+        final JsonPointerPattern other = (JsonPointerPattern) obj;
+        return tokens.equals(other.tokens);
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (final ReferenceToken token: tokens)
+            sb.append('/').append(token);
+        return sb.toString();
+    }
+
+    private void collect(final JsonNode node, final int depth,
+        final List<ReferenceToken> path,
+        final ImmutableMap.Builder<JsonPointer, JsonNode> builder)
+    {
+        if (depth == rawTokens.size()) {
+            builder.put(toPointer(path), node);
+            return;
+        }
+
+        final String name = rawTokens.name(depth);
+
+        if (node.isObject()) {
+            if (name != null) {
+                final JsonNode child = node.get(name);
+                if (child != null)
+                    collectChild(child, depth, path, tokens.get(depth),
+                        builder);
+                return;
+            }
+            final Iterator<Map.Entry<String, JsonNode>> iterator
+                = node.fields();
+            Map.Entry<String, JsonNode> entry;
+            while (iterator.hasNext()) {
+                entry = iterator.next();
+                collectChild(entry.getValue(), depth, path,
+                    ReferenceToken.fromRaw(entry.getKey()), builder);
+            }
+            return;
+        }
+
+        if (!node.isArray())
+            return;
+
+        if (name != null) {
+            final JsonNode child = node.get(rawTokens.index(depth));
+            if (child != null)
+                collectChild(child, depth, path, tokens.get(depth), builder);
+            return;
+        }
+
+        final int size = node.size();
+        for (int i = 0; i < size; i++)
+            collectChild(node.get(i), depth, path, ReferenceToken.fromInt(i),
+                builder);
+    }
+
+    private void collectChild(final JsonNode child, final int depth,
+        final List<ReferenceToken> path, final ReferenceToken token,
+        final ImmutableMap.Builder<JsonPointer, JsonNode> builder)
+    {
+        path.add(token);
+        collect(child, depth + 1, path, builder);
+        path.remove(depth);
+    }
+
+    /**
+     * Walk the value at the current token of a parser
+     *
+     * <p>On exit, the value has been entirely consumed.</p>
+     *
+     * @param parser the parser
+     * @param depth the index of the pattern token to match
+     * @param path the reference tokens of the current value
+     * @param listener the listener
+     * @throws IOException malformed input, or I/O error
+     */
+    private void walk(final JsonParser parser, final int depth,
+        final List<ReferenceToken> path, final JsonPointerListener listener)
+        throws IOException
+    {
+        if (depth == rawTokens.size()) {
+            final JsonNode node = READER.readTree(parser);
+            listener.onMatch(0, toPointer(path), node);
+            return;
+        }
+
+        final JsonToken token = parser.getCurrentToken();
+        final String name = rawTokens.name(depth);
+
+        if (token == JsonToken.START_OBJECT) {
+            String memberName;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                memberName = parser.getCurrentName();
+                parser.nextToken();
+                if (name != null && !name.equals(memberName)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                path.add(name != null ? tokens.get(depth)
+                    : ReferenceToken.fromRaw(memberName));
+                walk(parser, depth + 1, path, listener);
+                path.remove(depth);
+            }
+            return;
+        }
+
+        if (token != JsonToken.START_ARRAY)
+            return;
+
+        final int index = rawTokens.index(depth);
+
+        JsonToken next;
+        int i = 0;
+
+        while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (next == null)
+                return;
+            if (name != null && i != index) {
+                parser.skipChildren();
+                i++;
+                continue;
+            }
+            path.add(name != null ? tokens.get(depth)
+                : ReferenceToken.fromInt(i));
+            walk(parser, depth + 1, path, listener);
+            path.remove(depth);
+            i++;
+        }
+    }
+
+    private static JsonPointer toPointer(final List<ReferenceToken> path)
+    {
+        final List<TokenResolver<JsonNode>> list
+            = Lists.newArrayListWithCapacity(path.size());
+        for (final ReferenceToken token: path)
+            list.add(new JsonNodeResolver(token));
+        return new JsonPointer(list);
+    }
+}
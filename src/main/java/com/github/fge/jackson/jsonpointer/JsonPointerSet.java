@@ -0,0 +1,558 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closer;
+import com.google.common.primitives.Ints;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of {@link JsonPointer}s resolved together
+ *
+ * <p>Resolving several pointers one by one against the same document means
+ * walking the same path again for each pointer sharing a given prefix. This
+ * class instead stores its pointers as a prefix tree of reference tokens, and
+ * resolves all of them in a single traversal of the document: each shared
+ * prefix is only walked once.</p>
+ *
+ * <p>Pointers are kept in the order they were given; results are returned
+ * either as an array using the same order, or as a map. The same pointer may
+ * appear more than once.</p>
+ *
+ * <p>Traversal of each reference token obeys the same rules as {@link
+ * JsonNodeResolver}.</p>
+ *
+ * <p>A pointer set can also be evaluated directly over JSON input (see {@link
+ * #read(JsonParser, JsonPointerListener)}); in this case, values which no
+ * pointer leads to are skipped without ever being built.</p>
+ */
+@Immutable
+public final class JsonPointerSet
+    implements Iterable<JsonPointer>
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    /**
+     * Reader used to build matched values when reading from a stream
+     */
+    private static final ObjectReader READER = JacksonUtils.getReader();
+
+    /**
+     * The pointers, in order
+     */
+    private final List<JsonPointer> pointers;
+
+    /**
+     * The root of the prefix tree (ie, the empty pointer)
+     */
+    private final Node root;
+
+    private JsonPointerSet(final List<JsonPointer> pointers)
+    {
+        this.pointers = pointers;
+
+        final NodeBuilder builder = new NodeBuilder("", -1);
+        final int size = pointers.size();
+
+        RawTokens tokens;
+        NodeBuilder current;
+
+        for (int i = 0; i < size; i++) {
+            tokens = RawTokens.of(pointers.get(i));
+            current = builder;
+            for (int j = 0; j < tokens.size(); j++)
+                current = current.child(tokens.name(j), tokens.index(j));
+            current.targets.add(i);
+        }
+
+        root = builder.build();
+    }
+
+    /**
+     * Build a pointer set out of one or more pointers
+     *
+     * @param first the first pointer
+     * @param other other pointers
+     * @return a pointer set
+     * @throws NullPointerException one pointer is null
+     */
+    public static JsonPointerSet of(final JsonPointer first,
+        final JsonPointer... other)
+    {
+        return copyOf(Lists.asList(first, other));
+    }
+
+    /**
+     * Build a pointer set out of a series of pointers
+     *
+     * @param pointers the pointers
+     * @return a pointer set
+     * @throws NullPointerException argument is null, or one pointer is null
+     */
+    public static JsonPointerSet copyOf(final Iterable<JsonPointer> pointers)
+    {
+        BUNDLE.checkNotNull(pointers, "nullInput");
+        final ImmutableList.Builder<JsonPointer> builder
+            = ImmutableList.builder();
+        for (final JsonPointer pointer: pointers)
+            builder.add(BUNDLE.checkNotNull(pointer, "nullInput"));
+        return new JsonPointerSet(builder.build());
+    }
+
+    /**
+     * Return the number of pointers in this set
+     *
+     * @return the number of pointers
+     */
+    public int size()
+    {
+        return pointers.size();
+    }
+
+    /**
+     * Return the pointer at a given index
+     *
+     * @param index the index
+     * @return the pointer
+     * @throws IndexOutOfBoundsException invalid index
+     */
+    public JsonPointer get(final int index)
+    {
+        return pointers.get(index);
+    }
+
+    /**
+     * Resolve all pointers of this set against a node
+     *
+     * <p>The returned array has one entry per pointer in this set, at the
+     * same index. As with {@link JsonPointer#get(JsonNode)}, an entry is {@code
+     * null} if the pointer does not resolve.</p>
+     *
+     * @param node the node to traverse
+     * @return the results
+     */
+    public JsonNode[] get(final JsonNode node)
+    {
+        final JsonNode[] ret = new JsonNode[pointers.size()];
+        if (node != null)
+            resolve(root, node, ret);
+        return ret;
+    }
+
+    /**
+     * Resolve all pointers of this set against a node, as a map
+     *
+     * <p>The returned map only contains pointers which resolve. Iteration
+     * order is the order of pointers in this set.</p>
+     *
+     * @param node the node to traverse
+     * @return an immutable map of pointers to their resolved values
+     */
+    public Map<JsonPointer, JsonNode> getAsMap(final JsonNode node)
+    {
+        final JsonNode[] resolved = get(node);
+        final Map<JsonPointer, JsonNode> map = Maps.newLinkedHashMap();
+        final int size = resolved.length;
+
+        for (int i = 0; i < size; i++)
+            if (resolved[i] != null && !map.containsKey(pointers.get(i)))
+                map.put(pointers.get(i), resolved[i]);
+
+        return ImmutableMap.copyOf(map);
+    }
+
+    /**
+     * Evaluate all pointers of this set against JSON input
+     *
+     * <p>The parser may or may not have been advanced already; if it has, its
+     * current token is considered to be the start of the value to evaluate
+     * against.</p>
+     *
+     * <p>Values which no pointer of this set goes through are skipped without
+     * being built. When a pointer matches, its value (and only this value) is
+     * built. If pointers of this set are nested (for instance, {@code /a} and
+     * {@code /a/b}), the innermost values are reported first.</p>
+     *
+     * <p>If an object has duplicate member names, only matches for the last
+     * of them are reported, as when the input is read as a tree. A match
+     * within an object is therefore only reported once the outermost object
+     * containing it is complete; other matches are reported as soon as their
+     * value is complete.</p>
+     *
+     * <p>Unlike {@link JsonPointer#read(JsonParser)}, this method reads the
+     * value entirely: the parser is positioned right after it, which makes it
+     * suitable for reading a stream of JSON values.</p>
+     *
+     * <p>Pointers which do not match are not reported.</p>
+     *
+     * @param parser the parser
+     * @param listener the listener
+     * @throws IOException malformed input, or I/O error
+     * @throws NullPointerException parser or listener is null
+     */
+    public void read(final JsonParser parser,
+        final JsonPointerListener listener)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(parser, "nullInput");
+        BUNDLE.checkNotNull(listener, "nullInput");
+
+        if (parser.getCurrentToken() == null && parser.nextToken() == null)
+            return;
+
+        walk(root, parser, listener, null);
+    }
+
+    /**
+     * Evaluate all pointers of this set against JSON input read from an
+     * {@link InputStream}
+     *
+     * <p>The stream is closed when this method returns.</p>
+     *
+     * @param in the input stream
+     * @param listener the listener
+     * @throws IOException malformed input, or I/O error
+     * @throws NullPointerException input or listener is null
+     * @see #read(JsonParser, JsonPointerListener)
+     */
+    public void read(final InputStream in, final JsonPointerListener listener)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(in, "nullInput");
+        final Closer closer = Closer.create();
+
+        try {
+            read(closer.register(READER.getFactory().createParser(in)),
+                listener);
+        } finally {
+            closer.close();
+        }
+    }
+
+    /**
+     * Evaluate all pointers of this set against JSON input read from a {@link
+     * Reader}
+     *
+     * <p>The reader is closed when this method returns.</p>
+     *
+     * @param r the reader
+     * @param listener the listener
+     * @throws IOException malformed input, or I/O error
+     * @throws NullPointerException input or listener is null
+     * @see #read(JsonParser, JsonPointerListener)
+     */
+    public void read(final Reader r, final JsonPointerListener listener)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(r, "nullInput");
+        final Closer closer = Closer.create();
+
+        try {
+            read(closer.register(READER.getFactory().createParser(r)),
+                listener);
+        } finally {
+            closer.close();
+        }
+    }
+
+    @Override
+    public Iterator<JsonPointer> iterator()
+    {
+        return pointers.iterator();
+    }
+
+    @Override
+    public String toString()
+    {
+        return pointers.toString();
+    }
+
+    private static void resolve(final Node trie, final JsonNode node,
+        final JsonNode[] results)
+    {
+        for (final int target: trie.targets)
+            results[target] = node;
+
+        if (!node.isContainerNode())
+            return;
+
+        final boolean isObject = node.isObject();
+
+        JsonNode child;
+
+        for (final Node c: trie.children) {
+            child = isObject ? node.get(c.raw) : node.get(c.index);
+            if (child != null)
+                resolve(c, child, results);
+        }
+    }
+
+    /**
+     * Walk the value at the current token of a parser
+     *
+     * <p>On exit, the value has been entirely consumed.</p>
+     *
+     * <p>Within an object, matches are kept pending, by pointer index and in
+     * the order they were found, until the outermost object is complete: a
+     * later member with the same name replaces the matches of an earlier one.
+     * </p>
+     *
+     * @param trie the current node of the prefix tree
+     * @param parser the parser
+     * @param listener the listener
+     * @param pending pending matches ({@code null} if not within an object)
+     * @throws IOException malformed input, or I/O error
+     */
+    private void walk(final Node trie, final JsonParser parser,
+        final JsonPointerListener listener,
+        final Map<Integer, JsonNode> pending)
+        throws IOException
+    {
+        /*
+         * If a pointer ends here, we need the value anyway: build it, and
+         * report matches for all pointers below this one from the tree.
+         */
+        if (trie.targets.length != 0) {
+            report(trie, READER.<JsonNode>readTree(parser), listener, pending);
+            return;
+        }
+
+        final JsonToken token = parser.getCurrentToken();
+
+        if (trie.children.length == 0) {
+            parser.skipChildren();
+            return;
+        }
+
+        Node child;
+
+        if (token == JsonToken.START_OBJECT) {
+            final Map<Integer, JsonNode> matches = pending != null ? pending
+                : Maps.<Integer, JsonNode>newLinkedHashMap();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                child = trie.childByName(parser.getCurrentName());
+                parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (!matches.isEmpty())
+                    forget(child, matches);
+                walk(child, parser, listener, matches);
+            }
+            if (pending == null)
+                for (final Map.Entry<Integer, JsonNode> entry:
+                    matches.entrySet())
+                    listener.onMatch(entry.getKey(),
+                        pointers.get(entry.getKey()), entry.getValue());
+            return;
+        }
+
+        if (token != JsonToken.START_ARRAY)
+            return;
+
+        JsonToken next;
+        int i = 0;
+
+        while ((next = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (next == null)
+                return;
+            child = trie.childByIndex(i++);
+            if (child == null)
+                parser.skipChildren();
+            else
+                walk(child, parser, listener, pending);
+        }
+    }
+
+    private void report(final Node trie, final JsonNode node,
+        final JsonPointerListener listener,
+        final Map<Integer, JsonNode> pending)
+    {
+        if (node.isContainerNode()) {
+            final boolean isObject = node.isObject();
+            JsonNode child;
+            for (final Node c: trie.children) {
+                child = isObject ? node.get(c.raw) : node.get(c.index);
+                if (child != null)
+                    report(c, child, listener, pending);
+            }
+        }
+
+        for (final int target: trie.targets)
+            if (pending == null)
+                listener.onMatch(target, pointers.get(target), node);
+            else
+                pending.put(target, node);
+    }
+
+    /*
+     * Drop the pending matches of all pointers going through a node
+     */
+    private static void forget(final Node trie,
+        final Map<Integer, JsonNode> pending)
+    {
+        for (final int target: trie.targets)
+            pending.remove(target);
+        for (final Node c: trie.children)
+            forget(c, pending);
+    }
+
+    /**
+     * One node of the prefix tree
+     */
+    private static final class Node
+    {
+        /**
+         * The raw token, used as a member name for objects
+         */
+        private final String raw;
+
+        /**
+         * The array index for this token (-1 if not a valid index)
+         */
+        private final int index;
+
+        /**
+         * Indices of the pointers ending at this node
+         */
+        private final int[] targets;
+
+        /**
+         * Children of this node
+         */
+        private final Node[] children;
+
+        /**
+         * Children of this node, by member name
+         */
+        private final Map<String, Node> byName;
+
+        /**
+         * Sorted array indices of the children which are valid indices
+         */
+        private final int[] indices;
+
+        /**
+         * Children of this node matching the indices in {@link #indices}
+         */
+        private final Node[] byIndex;
+
+        private Node(final String raw, final int index, final int[] targets,
+            final Node[] children)
+        {
+            this.raw = raw;
+            this.index = index;
+            this.targets = targets;
+            this.children = children;
+
+            final ImmutableMap.Builder<String, Node> builder
+                = ImmutableMap.builder();
+            final List<Node> indexed = Lists.newArrayList();
+
+            for (final Node child: children) {
+                builder.put(child.raw, child);
+                if (child.index != -1)
+                    indexed.add(child);
+            }
+
+            byName = builder.build();
+
+            final int size = indexed.size();
+            indices = new int[size];
+            for (int i = 0; i < size; i++)
+                indices[i] = indexed.get(i).index;
+            Arrays.sort(indices);
+
+            byIndex = new Node[size];
+            for (final Node child: indexed)
+                byIndex[Arrays.binarySearch(indices, child.index)] = child;
+        }
+
+        private Node childByName(final String name)
+        {
+            return byName.get(name);
+        }
+
+        private Node childByIndex(final int i)
+        {
+            final int pos = Arrays.binarySearch(indices, i);
+            return pos < 0 ? null : byIndex[pos];
+        }
+    }
+
+    /**
+     * Mutable version of a {@link Node}, used while building the tree
+     */
+    private static final class NodeBuilder
+    {
+        private final String raw;
+        private final int index;
+        private final List<Integer> targets = Lists.newArrayList();
+        private final Map<String, NodeBuilder> children
+            = Maps.newLinkedHashMap();
+
+        private NodeBuilder(final String raw, final int index)
+        {
+            this.raw = raw;
+            this.index = index;
+        }
+
+        private NodeBuilder child(final String childRaw, final int childIndex)
+        {
+            NodeBuilder ret = children.get(childRaw);
+            if (ret == null) {
+                ret = new NodeBuilder(childRaw, childIndex);
+                children.put(childRaw, ret);
+            }
+            return ret;
+        }
+
+        private Node build()
+        {
+            final Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (final NodeBuilder builder: children.values())
+                nodes[i++] = builder.build();
+
+            return new Node(raw, index, Ints.toArray(targets), nodes);
+        }
+    }
+}
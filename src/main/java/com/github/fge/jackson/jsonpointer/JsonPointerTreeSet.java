@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Lists;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A sorted set of {@link JsonPointer}s, with subtree queries
+ *
+ * <p>Pointers are sorted using their natural ordering (see {@link
+ * JsonPointer#compareTo(JsonPointer)}); in this order, all pointers having a
+ * given prefix are contiguous. This class uses this property to answer the
+ * following questions using binary searches, instead of scanning all
+ * pointers:</p>
+ *
+ * <ul>
+ *     <li>which pointers of this set are under a given pointer (see {@link
+ *     #subtree(JsonPointer)});</li>
+ *     <li>which pointer of this set is the longest prefix of a given pointer
+ *     (see {@link #coveringPrefix(JsonPointer)}).</li>
+ * </ul>
+ *
+ * <p>Unlike {@link JsonPointerSet}, duplicate pointers are removed.</p>
+ */
+@Immutable
+public final class JsonPointerTreeSet
+    implements Iterable<JsonPointer>
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    /**
+     * The pointers, sorted, without duplicates
+     */
+    private final List<JsonPointer> pointers;
+
+    private JsonPointerTreeSet(final Iterable<JsonPointer> pointers)
+    {
+        this.pointers = ImmutableSortedSet.copyOf(pointers).asList();
+    }
+
+    /**
+     * Build a set out of a series of pointers
+     *
+     * @param first the first pointer
+     * @param other other pointers
+     * @return a new set
+     * @throws NullPointerException one pointer is null
+     */
+    public static JsonPointerTreeSet of(final JsonPointer first,
+        final JsonPointer... other)
+    {
+        BUNDLE.checkNotNull(first, "nullInput");
+        for (final JsonPointer pointer: other)
+            BUNDLE.checkNotNull(pointer, "nullInput");
+        return new JsonPointerTreeSet(Lists.asList(first, other));
+    }
+
+    /**
+     * Build a set out of an iterable of pointers
+     *
+     * @param pointers the pointers
+     * @return a new set
+     * @throws NullPointerException iterable, or one of its elements, is null
+     */
+    public static JsonPointerTreeSet copyOf(
+        final Iterable<JsonPointer> pointers)
+    {
+        BUNDLE.checkNotNull(pointers, "nullInput");
+        for (final JsonPointer pointer: pointers)
+            BUNDLE.checkNotNull(pointer, "nullInput");
+        return new JsonPointerTreeSet(pointers);
+    }
+
+    /**
+     * Return the number of pointers in this set
+     *
+     * @return the number of pointers
+     */
+    public int size()
+    {
+        return pointers.size();
+    }
+
+    /**
+     * Tell whether this set contains a given pointer
+     *
+     * @param pointer the pointer
+     * @return true if the pointer is in this set
+     * @throws NullPointerException pointer is null
+     */
+    public boolean contains(final JsonPointer pointer)
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+        return Collections.binarySearch(pointers, pointer) >= 0;
+    }
+
+    /**
+     * Return all pointers of this set which have a given prefix
+     *
+     * <p>The prefix itself is included if it is in this set.</p>
+     *
+     * @param prefix the prefix
+     * @return the pointers, sorted
+     * @throws NullPointerException prefix is null
+     * @see JsonPointer#isPrefixOf(TreePointer)
+     */
+    public List<JsonPointer> subtree(final JsonPointer prefix)
+    {
+        BUNDLE.checkNotNull(prefix, "nullInput");
+        final int from = ceilingIndex(prefix);
+
+        /*
+         * Starting from the prefix, pointers first have this prefix, then
+         * they are all greater than the prefix without having it.
+         */
+        int low = from;
+        int high = pointers.size();
+        int mid;
+
+        while (low < high) {
+            mid = (low + high) >>> 1;
+            if (prefix.isPrefixOf(pointers.get(mid)))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+
+        return pointers.subList(from, low);
+    }
+
+    /**
+     * Return the longest pointer of this set which is a prefix of a given
+     * pointer
+     *
+     * <p>The pointer itself is returned if it is in this set.</p>
+     *
+     * @param pointer the pointer
+     * @return the longest prefix, or {@code null} if there is none
+     * @throws NullPointerException pointer is null
+     */
+    public JsonPointer coveringPrefix(final JsonPointer pointer)
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+
+        /*
+         * All prefixes of the target are less than or equal to it, so the
+         * longest prefix in this set, if any, is less than or equal to the
+         * greatest element of this set not greater than the target. If this
+         * element is not a prefix of the target itself, the longest prefix can
+         * only be a prefix of the common ancestor of both: search again from
+         * there. The target gets strictly shorter on each iteration.
+         */
+        JsonPointer target = pointer;
+        JsonPointer candidate;
+        int index;
+
+        while (true) {
+            index = floorIndex(target);
+            if (index == -1)
+                return null;
+            candidate = pointers.get(index);
+            if (candidate.isPrefixOf(target))
+                return candidate;
+            target = candidate.commonAncestor(target);
+        }
+    }
+
+    /**
+     * Tell whether a pointer is equal to, or under, a pointer of this set
+     *
+     * @param pointer the pointer
+     * @return true if a pointer of this set is a prefix of this pointer
+     * @throws NullPointerException pointer is null
+     */
+    public boolean covers(final JsonPointer pointer)
+    {
+        return coveringPrefix(pointer) != null;
+    }
+
+    @Override
+    public Iterator<JsonPointer> iterator()
+    {
+        return pointers.iterator();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return pointers.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (obj == null)
+            return false;
+        if (this == obj)
+            return true;
+        if (getClass() != obj.getClass())
+            return false;
+        final JsonPointerTreeSet other = (JsonPointerTreeSet) obj;
+        return pointers.equals(other.pointers);
+    }
+
+    @Override
+    public String toString()
+    {
+        return pointers.toString();
+    }
+
+    /**
+     * Return the index of the first pointer not less than a given pointer
+     *
+     * @param pointer the pointer
+     * @return the index (the size of this set if there is none)
+     */
+    private int ceilingIndex(final JsonPointer pointer)
+    {
+        final int index = Collections.binarySearch(pointers, pointer);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Return the index of the last pointer not greater than a given pointer
+     *
+     * @param pointer the pointer
+     * @return the index (-1 if there is none)
+     */
+    private int floorIndex(final JsonPointer pointer)
+    {
+        final int index = Collections.binarySearch(pointers, pointer);
+        return index >= 0 ? index : -index - 2;
+    }
+}
@@ -0,0 +1,574 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonNumEquals;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closer;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A streaming equivalence check of two JSON inputs
+ *
+ * <p>This class reads two {@link JsonParser}s in lockstep, and stops at the
+ * first difference, whose {@link JsonPointer} it reports. Values are compared
+ * exactly as {@link JsonNumEquals} compares them once read by {@link
+ * com.github.fge.jackson.JsonLoader}; however, no tree is built unless object
+ * members appear in a different order in both inputs.</p>
+ *
+ * <p>When they do, members which cannot be matched yet are read as trees and
+ * buffered until their counterpart is found in the other input; members which
+ * appear in the same order are still compared as streams. The number of
+ * members buffered at any given time is bounded (see {@link
+ * #withMaxBufferedMembers(int)}).</p>
+ *
+ * <p>Parsers are not closed; when a difference is found, they are left
+ * positioned where the difference was detected.</p>
+ */
+@ThreadSafe
+public final class JsonStreamComparator
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+    private static final ObjectReader READER = JacksonUtils.getReader();
+    private static final JsonFactory JSON_FACTORY = READER.getFactory();
+
+    private static final int DEFAULT_MAX_BUFFERED_MEMBERS = 1024;
+
+    private static final JsonStreamComparator DEFAULT
+        = new JsonStreamComparator(DEFAULT_MAX_BUFFERED_MEMBERS);
+
+    /**
+     * The maximum number of members buffered at any given time
+     */
+    private final int maxBufferedMembers;
+
+    private JsonStreamComparator(final int maxBufferedMembers)
+    {
+        this.maxBufferedMembers = maxBufferedMembers;
+    }
+
+    /**
+     * Return a comparator buffering at most 1024 members
+     *
+     * @return a comparator
+     */
+    public static JsonStreamComparator getInstance()
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Return a comparator buffering at most a given number of members
+     *
+     * @param maxBufferedMembers the maximum number of buffered members
+     * @return a comparator
+     * @throws IllegalArgumentException maximum is negative
+     */
+    public static JsonStreamComparator withMaxBufferedMembers(
+        final int maxBufferedMembers)
+    {
+        BUNDLE.checkArgument(maxBufferedMembers >= 0, "negativeBufferSize");
+        return new JsonStreamComparator(maxBufferedMembers);
+    }
+
+    /**
+     * Tell whether two inputs are equivalent
+     *
+     * @param parser1 the first input
+     * @param parser2 the second input
+     * @return true if both inputs are equivalent
+     * @throws IOException failed to read from an input, or too many members
+     * had to be buffered
+     * @throws NullPointerException one input is null
+     * @see #firstDifference(JsonParser, JsonParser)
+     */
+    public boolean equivalent(final JsonParser parser1,
+        final JsonParser parser2)
+        throws IOException
+    {
+        return firstDifference(parser1, parser2) == null;
+    }
+
+    /**
+     * Return the first difference between two inputs
+     *
+     * @param reader1 the first input
+     * @param reader2 the second input
+     * @return the pointer to the first difference, or {@code null} if both
+     * inputs are equivalent
+     * @throws IOException failed to read from an input, or too many members
+     * had to be buffered
+     * @throws NullPointerException one input is null
+     * @see #firstDifference(JsonParser, JsonParser)
+     */
+    public JsonPointer firstDifference(final Reader reader1,
+        final Reader reader2)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(reader1, "nullInput");
+        BUNDLE.checkNotNull(reader2, "nullInput");
+        final Closer closer = Closer.create();
+
+        try {
+            return firstDifference(
+                closer.register(JSON_FACTORY.createParser(reader1)),
+                closer.register(JSON_FACTORY.createParser(reader2)));
+        } finally {
+            closer.close();
+        }
+    }
+
+    /**
+     * Return the first difference between two inputs
+     *
+     * <p>Parsers may or may not have been advanced already; if one has, its
+     * current token is considered to be the start of the value to compare.
+     * Both inputs are read up to the end of this value. The difference
+     * reported is:</p>
+     *
+     * <ul>
+     *     <li>for two values of different types, or two different scalar
+     *     values, the pointer to these values;</li>
+     *     <li>for two arrays of different sizes, the pointer to the first
+     *     element found in only one of them;</li>
+     *     <li>for two objects with different member names, the pointer to
+     *     the first member found in only one of them.</li>
+     * </ul>
+     *
+     * @param parser1 the first input
+     * @param parser2 the second input
+     * @return the pointer to the first difference, or {@code null} if both
+     * inputs are equivalent
+     * @throws IOException failed to read from an input, or too many members
+     * had to be buffered
+     * @throws NullPointerException one input is null
+     */
+    public JsonPointer firstDifference(final JsonParser parser1,
+        final JsonParser parser2)
+        throws IOException
+    {
+        BUNDLE.checkNotNull(parser1, "nullInput");
+        BUNDLE.checkNotNull(parser2, "nullInput");
+        final LinkedJsonPointer ret = new Comparison(parser1, parser2).run();
+        return ret == null ? null : ret.toJsonPointer();
+    }
+
+    /**
+     * Return the first difference between two trees
+     *
+     * <p>Differences are reported as they are by {@link
+     * #firstDifference(JsonParser, JsonParser)}, except that object members
+     * are visited in the order of the first tree.</p>
+     *
+     * @param path the path to both trees
+     * @param node1 the first tree
+     * @param node2 the second tree
+     * @return the pointer to the first difference, or {@code null}
+     */
+    private static LinkedJsonPointer firstDifference(
+        final LinkedJsonPointer path, final JsonNode node1,
+        final JsonNode node2)
+    {
+        final Deque<Pair> stack = new ArrayDeque<Pair>();
+        stack.push(new Pair(path, node1, node2));
+
+        Pair pair;
+        LinkedJsonPointer ptr;
+        JsonNode a, b;
+        int size;
+        Iterator<String> names;
+        String name;
+
+        while (!stack.isEmpty()) {
+            pair = stack.pop();
+            ptr = pair.path;
+            a = pair.a;
+            b = pair.b;
+
+            /*
+             * Missing array elements are pushed as null values
+             */
+            if (a == null)
+                return ptr;
+            if (a.getNodeType() != b.getNodeType())
+                return ptr;
+            if (!a.isContainerNode()) {
+                if (!EQUIVALENCE.equivalent(a, b))
+                    return ptr;
+                continue;
+            }
+
+            if (a.isArray()) {
+                size = Math.min(a.size(), b.size());
+                if (a.size() != b.size())
+                    stack.push(new Pair(ptr.append(size), null, null));
+                for (int i = size - 1; i >= 0; i--)
+                    stack.push(new Pair(ptr.append(i), a.get(i), b.get(i)));
+                continue;
+            }
+
+            names = b.fieldNames();
+            while (names.hasNext()) {
+                name = names.next();
+                if (!a.has(name))
+                    stack.push(new Pair(ptr.append(name), null, null));
+            }
+            names = a.fieldNames();
+            while (names.hasNext()) {
+                name = names.next();
+                if (!b.has(name))
+                    return ptr.append(name);
+            }
+            names = a.fieldNames();
+            while (names.hasNext()) {
+                name = names.next();
+                stack.push(new Pair(ptr.append(name), a.get(name),
+                    b.get(name)));
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isContainerStart(final JsonToken token)
+    {
+        return token == JsonToken.START_ARRAY
+            || token == JsonToken.START_OBJECT;
+    }
+
+    /**
+     * The state of one comparison
+     *
+     * <p>This holds one frame per container being compared.</p>
+     */
+    private final class Comparison
+    {
+        private final JsonParser parser1;
+        private final JsonParser parser2;
+        private final Deque<Frame> stack = new ArrayDeque<Frame>();
+        private int bufferedMembers = 0;
+
+        private Comparison(final JsonParser parser1, final JsonParser parser2)
+        {
+            this.parser1 = parser1;
+            this.parser2 = parser2;
+        }
+
+        private LinkedJsonPointer run()
+            throws IOException
+        {
+            final JsonToken token1 = firstToken(parser1);
+            final JsonToken token2 = firstToken(parser2);
+
+            if (token1 == null || token2 == null)
+                return token1 == token2 ? null : LinkedJsonPointer.empty();
+
+            LinkedJsonPointer ret = startValue(LinkedJsonPointer.empty());
+
+            Frame frame;
+
+            while (ret == null && !stack.isEmpty()) {
+                frame = stack.peek();
+                ret = frame.array ? nextElement(frame) : nextMember(frame);
+            }
+
+            return ret;
+        }
+
+        private JsonToken firstToken(final JsonParser parser)
+            throws IOException
+        {
+            final JsonToken token = parser.getCurrentToken();
+            return token != null ? token : parser.nextToken();
+        }
+
+        /**
+         * Compare the values both parsers are positioned on
+         *
+         * <p>If both values are containers, a frame is pushed for them.</p>
+         *
+         * @param path the path to both values
+         * @return the pointer to the first difference, or {@code null}
+         * @throws IOException failed to read from an input
+         */
+        private LinkedJsonPointer startValue(final LinkedJsonPointer path)
+            throws IOException
+        {
+            final JsonToken token = parser1.getCurrentToken();
+            final boolean container = isContainerStart(token);
+
+            /*
+             * Compare token kinds first: a scalar is never read against a
+             * container, which would mean reading the container as a tree
+             */
+            if (container || isContainerStart(parser2.getCurrentToken())) {
+                if (parser2.getCurrentToken() != token)
+                    return path;
+                stack.push(new Frame(path, token == JsonToken.START_ARRAY));
+                return null;
+            }
+
+            return EQUIVALENCE.equivalent(scalar(parser1), scalar(parser2))
+                ? null : path;
+        }
+
+        private LinkedJsonPointer nextElement(final Frame frame)
+            throws IOException
+        {
+            final boolean end1 = parser1.nextToken() == JsonToken.END_ARRAY;
+            final boolean end2 = parser2.nextToken() == JsonToken.END_ARRAY;
+
+            if (end1 && end2) {
+                stack.pop();
+                return null;
+            }
+
+            final LinkedJsonPointer path = frame.path.append(frame.index++);
+            return end1 || end2 ? path : startValue(path);
+        }
+
+        private LinkedJsonPointer nextMember(final Frame frame)
+            throws IOException
+        {
+            if (!frame.end1)
+                frame.end1 = parser1.nextToken() == JsonToken.END_OBJECT;
+            if (!frame.end2)
+                frame.end2 = parser2.nextToken() == JsonToken.END_OBJECT;
+
+            if (frame.end1 && frame.end2) {
+                stack.pop();
+                return frame.pending();
+            }
+
+            if (frame.end1)
+                return nextRemainingMember(frame, parser2, frame.pending2,
+                    frame.pending1, false);
+            if (frame.end2)
+                return nextRemainingMember(frame, parser1, frame.pending1,
+                    frame.pending2, true);
+
+            if (!(frame.end1 || frame.end2)) {
+                final String name = parser1.getCurrentName();
+                if (name.equals(parser2.getCurrentName())) {
+                    parser1.nextToken();
+                    parser2.nextToken();
+                    return startValue(frame.path.append(name));
+                }
+            }
+
+            final LinkedJsonPointer ret = buffer(frame, parser1,
+                frame.pending1, frame.pending2, true);
+            return ret != null ? ret : buffer(frame, parser2, frame.pending2,
+                frame.pending1, false);
+        }
+
+        /**
+         * Read a member as a tree, and match it against pending members of
+         * the other input
+         *
+         * @param frame the frame
+         * @param parser the parser, positioned on the member name
+         * @param pending pending members of this input
+         * @param others pending members of the other input
+         * @param first whether this is the first input
+         * @return the pointer to the first difference, or {@code null}
+         * @throws IOException failed to read from the input, or too many
+         * members buffered
+         */
+        private LinkedJsonPointer buffer(final Frame frame,
+            final JsonParser parser, final Map<String, JsonNode> pending,
+            final Map<String, JsonNode> others, final boolean first)
+            throws IOException
+        {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            final JsonNode node = READER.readTree(parser);
+
+            final JsonNode other = others.remove(name);
+
+            if (other == null) {
+                if (bufferedMembers == maxBufferedMembers)
+                    throw new IOException(BUNDLE.printf("bufferLimitExceeded",
+                        maxBufferedMembers));
+                pending.put(name, node);
+                bufferedMembers++;
+                return null;
+            }
+
+            bufferedMembers--;
+            final LinkedJsonPointer path = frame.path.append(name);
+            return first ? firstDifference(path, node, other)
+                : firstDifference(path, other, node);
+        }
+
+        /**
+         * Handle a member of an input once the other input has reached the
+         * end of the object
+         *
+         * <p>Only the pending members of the other input can still be matched;
+         * members which match none of them are skipped instead of being
+         * buffered. Once no pending member of the other input is left, the
+         * first unmatched member of this input is returned without reading
+         * any further.</p>
+         *
+         * @param frame the frame
+         * @param parser the parser, positioned on the member name
+         * @param pending pending members of this input
+         * @param others pending members of the other input
+         * @param first whether this is the first input
+         * @return the pointer to the first difference, or {@code null}
+         * @throws IOException failed to read from the input
+         */
+        private LinkedJsonPointer nextRemainingMember(final Frame frame,
+            final JsonParser parser, final Map<String, JsonNode> pending,
+            final Map<String, JsonNode> others, final boolean first)
+            throws IOException
+        {
+            final String name = parser.getCurrentName();
+
+            if (others.isEmpty())
+                return frame.path.append(pending.isEmpty() ? name
+                    : pending.keySet().iterator().next());
+
+            if (others.containsKey(name))
+                return buffer(frame, parser, pending, others, first);
+
+            /*
+             * Only the first pending member is ever reported, so a skipped
+             * member only needs to be recorded if there is none; its value is
+             * never needed.
+             */
+            if (pending.isEmpty())
+                pending.put(name, null);
+            parser.nextToken();
+            parser.skipChildren();
+            return null;
+        }
+
+        private JsonNode scalar(final JsonParser parser)
+            throws IOException
+        {
+            switch (parser.getCurrentToken()) {
+                case VALUE_STRING:
+                    return FACTORY.textNode(parser.getText());
+                case VALUE_NUMBER_INT:
+                    switch (parser.getNumberType()) {
+                        case INT:
+                            return FACTORY.numberNode(parser.getIntValue());
+                        case LONG:
+                            return FACTORY.numberNode(parser.getLongValue());
+                        default:
+                            return FACTORY.numberNode(
+                                parser.getBigIntegerValue());
+                    }
+                case VALUE_NUMBER_FLOAT:
+                    return FACTORY.numberNode(parser.getDecimalValue());
+                case VALUE_TRUE:
+                    return FACTORY.booleanNode(true);
+                case VALUE_FALSE:
+                    return FACTORY.booleanNode(false);
+                case VALUE_NULL:
+                    return FACTORY.nullNode();
+                default:
+                    return READER.readTree(parser);
+            }
+        }
+    }
+
+    private static final class Pair
+    {
+        private final LinkedJsonPointer path;
+        private final JsonNode a;
+        private final JsonNode b;
+
+        private Pair(final LinkedJsonPointer path, final JsonNode a,
+            final JsonNode b)
+        {
+            this.path = path;
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    /**
+     * A container being compared
+     */
+    private static final class Frame
+    {
+        private final LinkedJsonPointer path;
+        private final boolean array;
+
+        /*
+         * For arrays: the index of the next element
+         */
+        private int index = 0;
+
+        /*
+         * For objects: whether each input has reached the end of the object,
+         * and members read from each input not yet matched
+         */
+        private boolean end1 = false;
+        private boolean end2 = false;
+        private final Map<String, JsonNode> pending1;
+        private final Map<String, JsonNode> pending2;
+        private Frame(final LinkedJsonPointer path, final boolean array)
+        {
+            this.path = path;
+            this.array = array;
+            pending1 = array ? null : Maps.<String, JsonNode>newLinkedHashMap();
+            pending2 = array ? null : Maps.<String, JsonNode>newLinkedHashMap();
+        }
+
+        /*
+         * Once both inputs have reached the end of the object: the pointer to
+         * a member found in only one of them, if any
+         */
+        private LinkedJsonPointer pending()
+        {
+            if (!pending1.isEmpty())
+                return path.append(pending1.keySet().iterator().next());
+            if (!pending2.isEmpty())
+                return path.append(pending2.keySet().iterator().next());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+
+/**
+ * A persistent JSON Pointer, where each pointer links to its parent
+ *
+ * <p>Appending a token to a {@link JsonPointer} copies all of its tokens;
+ * building pointers one token at a time (during a recursive walk of a
+ * document, for instance) is therefore quadratic in the depth of the walk.
+ * With this class, {@link #append(String)}, {@link #append(int)} and {@link
+ * #parent()} are constant time operations, and all pointers built from the
+ * same parent share it.</p>
+ *
+ * <p>Two linked pointers are equal if and only if they have the same reference
+ * tokens. A linked pointer has the same hash code as the {@link JsonPointer}
+ * it converts to.</p>
+ *
+ * <p>Use {@link #toJsonPointer()} and {@link #copyOf(JsonPointer)} to convert
+ * from and to {@link JsonPointer}s.</p>
+ */
+@Immutable
+public final class LinkedJsonPointer
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private static final LinkedJsonPointer EMPTY
+        = new LinkedJsonPointer(JsonPointer.empty());
+
+    /**
+     * The parent of this pointer ({@code null} for the empty pointer)
+     */
+    private final LinkedJsonPointer parent;
+
+    /**
+     * The resolver for the last token of this pointer ({@code null} for the
+     * empty pointer)
+     */
+    private final TokenResolver<JsonNode> resolver;
+
+    /**
+     * The number of tokens in this pointer
+     */
+    private final int size;
+
+    /**
+     * The hash code, computed from the hash code of the parent
+     *
+     * <p>This is the same hash code as {@link List#hashCode()} would compute
+     * for the list of token resolvers, and therefore as {@link
+     * JsonPointer#hashCode()}.</p>
+     */
+    private final int hashCode;
+
+    /**
+     * The equivalent JSON Pointer ({@code null} if not computed yet)
+     */
+    private JsonPointer pointer;
+
+    private LinkedJsonPointer(final JsonPointer pointer)
+    {
+        parent = null;
+        resolver = null;
+        size = 0;
+        hashCode = 1;
+        this.pointer = pointer;
+    }
+
+    private LinkedJsonPointer(final LinkedJsonPointer parent,
+        final TokenResolver<JsonNode> resolver)
+    {
+        this.parent = parent;
+        this.resolver = resolver;
+        size = parent.size + 1;
+        hashCode = 31 * parent.hashCode + resolver.hashCode();
+    }
+
+    /**
+     * Return an empty linked pointer
+     *
+     * @return an empty, statically allocated pointer
+     */
+    public static LinkedJsonPointer empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * Build a linked pointer from a JSON Pointer
+     *
+     * @param pointer the JSON Pointer
+     * @return a linked pointer
+     * @throws NullPointerException null input
+     */
+    public static LinkedJsonPointer copyOf(final JsonPointer pointer)
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+        LinkedJsonPointer ret = EMPTY;
+        for (final TokenResolver<JsonNode> tokenResolver: pointer)
+            ret = new LinkedJsonPointer(ret, tokenResolver);
+        if (ret != EMPTY)
+            ret.pointer = pointer;
+        return ret;
+    }
+
+    /**
+     * Return a new pointer with a new token appended
+     *
+     * @param raw the raw token to append
+     * @return a new pointer
+     * @throws NullPointerException input is null
+     */
+    public LinkedJsonPointer append(final String raw)
+    {
+        final ReferenceToken refToken = ReferenceToken.fromRaw(raw);
+        return new LinkedJsonPointer(this, new JsonNodeResolver(refToken));
+    }
+
+    /**
+     * Return a new pointer with a new integer token appended
+     *
+     * @param index the integer token to append
+     * @return a new pointer
+     */
+    public LinkedJsonPointer append(final int index)
+    {
+        final ReferenceToken refToken = ReferenceToken.fromInt(index);
+        return new LinkedJsonPointer(this, new JsonNodeResolver(refToken));
+    }
+
+    /**
+     * Return a new pointer with all tokens of a JSON Pointer appended
+     *
+     * <p>This pointer is shared by the result.</p>
+     *
+     * @param other the other pointer
+     * @return a new pointer
+     * @throws NullPointerException other pointer is null
+     */
+    public LinkedJsonPointer append(final JsonPointer other)
+    {
+        BUNDLE.checkNotNull(other, "nullInput");
+        LinkedJsonPointer ret = this;
+        for (final TokenResolver<JsonNode> tokenResolver: other)
+            ret = new LinkedJsonPointer(ret, tokenResolver);
+        return ret;
+    }
+
+    /**
+     * Return the immediate parent of this pointer
+     *
+     * <p>The parent of the empty pointer is itself.</p>
+     *
+     * @return the parent pointer
+     */
+    public LinkedJsonPointer parent()
+    {
+        return size == 0 ? this : parent;
+    }
+
+    /**
+     * Return the last reference token of this pointer
+     *
+     * @return the last token, or {@code null} if this pointer is empty
+     */
+    public ReferenceToken getLastToken()
+    {
+        return size == 0 ? null : resolver.getToken();
+    }
+
+    /**
+     * Return the number of reference tokens in this pointer
+     *
+     * @return the number of tokens
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Tell whether this pointer is empty
+     *
+     * @return true if this pointer has no reference tokens
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Traverse a node and return the result
+     *
+     * <p>This behaves exactly like {@link JsonPointer#get(JsonNode)}.</p>
+     *
+     * @param node the node to traverse
+     * @return the resulting node, {@code null} if not found
+     */
+    public JsonNode get(final JsonNode node)
+    {
+        JsonNode ret = node;
+        for (final TokenResolver<JsonNode> r: resolvers()) {
+            if (ret == null)
+                break;
+            ret = r.get(ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Traverse a node and return the result
+     *
+     * <p>This behaves exactly like {@link JsonPointer#path(JsonNode)}.</p>
+     *
+     * @param node the node to traverse
+     * @return the result, or a {@link MissingNode}
+     */
+    public JsonNode path(final JsonNode node)
+    {
+        final JsonNode ret = get(node);
+        return ret == null ? MissingNode.getInstance() : ret;
+    }
+
+    /**
+     * Convert this pointer to a {@link JsonPointer}
+     *
+     * <p>The result is computed once, then cached.</p>
+     *
+     * @return a JSON Pointer
+     */
+    public JsonPointer toJsonPointer()
+    {
+        JsonPointer ret = pointer;
+        if (ret == null) {
+            ret = new JsonPointer(ImmutableList.copyOf(resolvers()));
+            pointer = ret;
+        }
+        return ret;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (obj == null)
+            return false;
+        if (this == obj)
+            return true;
+        if (getClass() != obj.getClass())
+            return false;
+        final LinkedJsonPointer other = (LinkedJsonPointer) obj;
+        if (hashCode != other.hashCode || size != other.size)
+            return false;
+
+        /*
+         * Stop as soon as both pointers share the same parent
+         */
+        LinkedJsonPointer p1 = this;
+        LinkedJsonPointer p2 = other;
+
+        while (p1 != p2) {
+            if (!p1.resolver.equals(p2.resolver))
+                return false;
+            p1 = p1.parent;
+            p2 = p2.parent;
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        for (final TokenResolver<JsonNode> r: resolvers())
+            sb.append('/').append(r);
+        return sb.toString();
+    }
+
+    /**
+     * Return the resolvers of this pointer, from the first to the last
+     *
+     * @return an array of resolvers
+     */
+    @SuppressWarnings("unchecked")
+    private TokenResolver<JsonNode>[] resolvers()
+    {
+        final TokenResolver<JsonNode>[] ret
+            = (TokenResolver<JsonNode>[]) new TokenResolver<?>[size];
+        LinkedJsonPointer p = this;
+        for (int i = size - 1; i >= 0; i--) {
+            ret[i] = p.resolver;
+            p = p.parent;
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A JSON Pointer evaluated against plain Java objects
+ *
+ * <p>{@link JsonPointer} only traverses {@link JsonNode}s; applying it to data
+ * held as {@link Map}s and {@link List}s requires converting this data to a
+ * {@link JsonNode} first. This class instead evaluates a pointer directly
+ * against such data:</p>
+ *
+ * <ul>
+ *     <li>a {@link Map} is traversed like a JSON object, using the raw
+ *     reference token as a key;</li>
+ *     <li>a {@link List} or an array is traversed like a JSON array, using the
+ *     same rules for indices as {@link JsonNodeResolver};</li>
+ *     <li>other {@link Collection}s (sets, for instance) are not traversed;
+ *     </li>
+ *     <li>if enabled (see {@link #withGetters()}), any other object, save for
+ *     scalars, is traversed using its bean getters, using the raw reference
+ *     token as a property name.</li>
+ * </ul>
+ *
+ * <p>A map which throws when looked up with a string key (such as a {@link
+ * java.util.TreeMap} with {@link Integer} keys) is treated as not having the
+ * member.</p>
+ *
+ * <p>Since {@code null} is a legal value, {@link #get(Object)} cannot tell a
+ * {@code null} value from a missing one; use {@link #has(Object)} for this.
+ * </p>
+ *
+ * <p>If a bean getter throws an exception, it is rethrown as is if it is
+ * unchecked, or wrapped in a {@link RuntimeException} otherwise.</p>
+ */
+@Immutable
+public final class ObjectPointer
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    /**
+     * The pointer this object pointer was built from
+     */
+    private final JsonPointer pointer;
+
+    /**
+     * The precomputed tokens of the pointer
+     */
+    private final RawTokens tokens;
+
+    /**
+     * Whether bean getters are used
+     */
+    private final boolean getters;
+
+    private ObjectPointer(final JsonPointer pointer,
+        final RawTokens tokens, final boolean getters)
+    {
+        this.pointer = pointer;
+        this.tokens = tokens;
+        this.getters = getters;
+    }
+
+    /**
+     * Build an object pointer from a JSON Pointer
+     *
+     * <p>The returned pointer only traverses maps, lists and arrays.</p>
+     *
+     * @param pointer the JSON Pointer
+     * @return an object pointer
+     * @throws NullPointerException pointer is null
+     */
+    public static ObjectPointer of(final JsonPointer pointer)
+    {
+        BUNDLE.checkNotNull(pointer, "nullInput");
+        return new ObjectPointer(pointer, RawTokens.of(pointer), false);
+    }
+
+    /**
+     * Build an object pointer from its string representation
+     *
+     * @param input the input string
+     * @return an object pointer
+     * @throws JsonPointerException malformed JSON Pointer
+     * @throws NullPointerException null input
+     * @see #of(JsonPointer)
+     */
+    public static ObjectPointer of(final String input)
+        throws JsonPointerException
+    {
+        return of(new JsonPointer(input));
+    }
+
+    /**
+     * Return a copy of this pointer which also traverses bean getters
+     *
+     * @return a new pointer
+     */
+    public ObjectPointer withGetters()
+    {
+        return getters ? this : new ObjectPointer(pointer, tokens, true);
+    }
+
+    /**
+     * Return the JSON Pointer this pointer was built from
+     *
+     * @return the JSON Pointer
+     */
+    public JsonPointer getPointer()
+    {
+        return pointer;
+    }
+
+    /**
+     * Traverse an object and return the result
+     *
+     * @param node the object to traverse
+     * @return the result; {@code null} if the value is {@code null} or
+     * traversal failed
+     */
+    public Object get(final Object node)
+    {
+        final Object ret = resolve(node);
+        return ret == ObjectResolver.MISSING ? null : ret;
+    }
+
+    /**
+     * Tell whether this pointer leads to a value in an object
+     *
+     * @param node the object to traverse
+     * @return true if traversal succeeds (even if the value is {@code null})
+     */
+    public boolean has(final Object node)
+    {
+        return resolve(node) != ObjectResolver.MISSING;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * pointer.hashCode() + (getters ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(final Object obj)
+    {
+        if (obj == null)
+            return false;
+        if (this == obj)
+            return true;
+        if (getClass() != obj.getClass())
+            return false;
+        final ObjectPointer other = (ObjectPointer) obj;
+        return getters == other.getters && pointer.equals(other.pointer);
+    }
+
+    @Override
+    public String toString()
+    {
+        return pointer.toString();
+    }
+
+    private Object resolve(final Object node)
+    {
+        final int size = tokens.size();
+        Object ret = node;
+
+        for (int i = 0; i < size; i++) {
+            ret = ObjectResolver.get(ret, tokens.name(i), tokens.index(i),
+                getters);
+            if (ret == ObjectResolver.MISSING)
+                break;
+        }
+
+        return ret;
+    }
+}
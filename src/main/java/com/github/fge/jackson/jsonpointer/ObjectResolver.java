@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolution of reference tokens over plain Java objects
+ *
+ * <p>This is the equivalent of {@link JsonNodeResolver} for {@link
+ * ObjectPointer}: {@link Map}s play the role of JSON objects, and {@link
+ * List}s and arrays the role of JSON arrays. Optionally, other objects can be
+ * traversed using their bean getters.</p>
+ *
+ * @see ObjectPointer
+ */
+final class ObjectResolver
+{
+    /**
+     * Value returned when traversal fails
+     *
+     * <p>{@code null} cannot be used for this, since it is a legal value.</p>
+     */
+    static final Object MISSING = new Object();
+
+    /**
+     * Bean getters, by property name, for each class traversed so far
+     *
+     * <p>The getters reference their declaring class, so weak keys alone would
+     * never let an entry go; values are therefore soft, which lets both the
+     * getters and the class be collected when memory runs low.</p>
+     */
+    private static final LoadingCache<Class<?>, Map<String, Method>> GETTERS
+        = CacheBuilder.newBuilder().weakKeys().softValues()
+        .build(new CacheLoader<Class<?>, Map<String, Method>>()
+        {
+            @Override
+            public Map<String, Method> load(final Class<?> key)
+            {
+                return gettersFor(key);
+            }
+        });
+
+    private ObjectResolver()
+    {
+    }
+
+    /**
+     * Advance one level into an object graph
+     *
+     * @param node the object to traverse
+     * @param raw the raw token, used as a map key or property name
+     * @param index the array index for the token (-1 if not a valid index)
+     * @param getters whether to traverse objects using their bean getters
+     * @return the value, or {@link #MISSING} if there is none
+     * @see RawTokens
+     */
+    static Object get(final Object node, final String raw, final int index,
+        final boolean getters)
+    {
+        if (node == null)
+            return MISSING;
+        if (node instanceof Map)
+            return fromMap((Map<?, ?>) node, raw);
+        if (node instanceof List)
+            return fromList((List<?>) node, index);
+        if (node.getClass().isArray())
+            return index >= 0 && index < Array.getLength(node)
+                ? Array.get(node, index) : MISSING;
+        /*
+         * Other collections (sets, queues...) have no indices; and their bean
+         * properties (isEmpty() and the like) are not part of their contents.
+         */
+        if (node instanceof Collection)
+            return MISSING;
+        return getters ? fromBean(node, raw) : MISSING;
+    }
+
+    private static Object fromMap(final Map<?, ?> map, final String raw)
+    {
+        /*
+         * Maps whose keys are not strings, or which do not accept them (a
+         * TreeMap with Integer keys, for instance), may throw on lookup
+         */
+        try {
+            final Object ret = map.get(raw);
+            if (ret != null)
+                return ret;
+            return map.containsKey(raw) ? null : MISSING;
+        } catch (ClassCastException ignored) {
+            return MISSING;
+        } catch (NullPointerException ignored) {
+            return MISSING;
+        }
+    }
+
+    private static Object fromList(final List<?> list, final int index)
+    {
+        return index >= 0 && index < list.size() ? list.get(index) : MISSING;
+    }
+
+    private static Object fromBean(final Object bean, final String raw)
+    {
+        final Method method = GETTERS.getUnchecked(bean.getClass()).get(raw);
+        if (method == null)
+            return MISSING;
+        try {
+            return method.invoke(bean);
+        } catch (IllegalAccessException ignored) {
+            return MISSING;
+        } catch (InvocationTargetException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Find the bean getters of a class
+     *
+     * <p>Scalar values (strings, numbers, booleans, characters and enums) are
+     * not considered to be beans. The {@code class} property is excluded.</p>
+     *
+     * @param c the class
+     * @return a map of getters, by property name
+     */
+    private static Map<String, Method> gettersFor(final Class<?> c)
+    {
+        if (c.isPrimitive() || c.isEnum() || c == String.class
+            || c == Boolean.class || c == Character.class
+            || Number.class.isAssignableFrom(c))
+            return ImmutableMap.of();
+
+        final PropertyDescriptor[] descriptors;
+
+        try {
+            descriptors = Introspector.getBeanInfo(c, Object.class)
+                .getPropertyDescriptors();
+        } catch (IntrospectionException ignored) {
+            return ImmutableMap.of();
+        }
+
+        final ImmutableMap.Builder<String, Method> builder
+            = ImmutableMap.builder();
+        Method method;
+
+        for (final PropertyDescriptor descriptor: descriptors) {
+            method = descriptor.getReadMethod();
+            if (method == null)
+                continue;
+            try {
+                method.setAccessible(true);
+            } catch (SecurityException ignored) {
+                // Will be reported as missing if it cannot be invoked
+            }
+            builder.put(descriptor.getName(), method);
+        }
+
+        return builder.build();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.List;
+
+/**
+ * The reference tokens of a pointer, precomputed for traversal
+ *
+ * <p>For each token, this class stores its raw value, used as a member name,
+ * and the array index it designates, as computed by {@link
+ * JsonNodeResolver#arrayIndexFor(String)}. Classes which evaluate the same
+ * tokens many times use it instead of going through {@link TokenResolver}s.
+ * </p>
+ */
+@Immutable
+final class RawTokens
+{
+    /**
+     * The raw tokens, used as member names ({@code null} for wildcards)
+     */
+    private final String[] names;
+
+    /**
+     * The tokens as array indices (-1 for wildcards and invalid indices)
+     */
+    private final int[] indices;
+
+    private RawTokens(final int size)
+    {
+        names = new String[size];
+        indices = new int[size];
+    }
+
+    /**
+     * Precompute the tokens of a pointer
+     *
+     * @param pointer the pointer
+     * @return the precomputed tokens
+     */
+    static RawTokens of(final TreePointer<?> pointer)
+    {
+        final List<? extends TokenResolver<?>> list = pointer.tokenResolvers;
+        final int size = list.size();
+        final RawTokens ret = new RawTokens(size);
+
+        for (int i = 0; i < size; i++)
+            ret.set(i, list.get(i).getToken().getRaw());
+
+        return ret;
+    }
+
+    /**
+     * Precompute a list of tokens, with a wildcard
+     *
+     * <p>Tokens equal to the wildcard have a {@code null} name and index -1.
+     * </p>
+     *
+     * @param tokens the tokens
+     * @param wildcard the raw value of the wildcard token
+     * @return the precomputed tokens
+     */
+    static RawTokens of(final List<ReferenceToken> tokens,
+        final String wildcard)
+    {
+        final int size = tokens.size();
+        final RawTokens ret = new RawTokens(size);
+
+        String raw;
+
+        for (int i = 0; i < size; i++) {
+            raw = tokens.get(i).getRaw();
+            if (wildcard.equals(raw))
+                ret.indices[i] = -1;
+            else
+                ret.set(i, raw);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Return the number of tokens
+     *
+     * @return the number of tokens
+     */
+    int size()
+    {
+        return names.length;
+    }
+
+    /**
+     * Return a token as a member name
+     *
+     * @param i the token position
+     * @return the raw token ({@code null} for a wildcard)
+     */
+    String name(final int i)
+    {
+        return names[i];
+    }
+
+    /**
+     * Return a token as an array index
+     *
+     * @param i the token position
+     * @return the array index (-1 if not a valid index)
+     */
+    int index(final int i)
+    {
+        return indices[i];
+    }
+
+    private void set(final int i, final String raw)
+    {
+        names[i] = raw;
+        indices[i] = JsonNodeResolver.arrayIndexFor(raw);
+    }
+}
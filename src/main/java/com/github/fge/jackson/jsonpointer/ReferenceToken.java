@@ -21,11 +21,8 @@ package com.github.fge.jackson.jsonpointer;
 
 import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
-import com.google.common.collect.ImmutableList;
 
 import javax.annotation.concurrent.Immutable;
-import java.nio.CharBuffer;
-import java.util.List;
 
 
 /**
@@ -47,22 +44,29 @@ public final class ReferenceToken
 {
     private static final MessageBundle BUNDLE
         = MessageBundles.getBundle(JsonPointerMessages.class);
+    private static final String EMPTY_ESCAPE
+        = BUNDLE.getMessage("emptyEscape");
+    private static final String ILLEGAL_ESCAPE
+        = BUNDLE.getMessage("illegalEscape");
     /**
      * The escape character in a cooked token
      */
     private static final char ESCAPE = '~';
 
     /**
-     * List of encoding characters in a cooked token
+     * The encoded form of {@code ~} in a cooked token
      */
-    private static final List<Character> ENCODED = ImmutableList.of('0', '1');
+    private static final char ENCODED_TILDE = '0';
 
     /**
-     * List of sequences to encode in a raw token
-     *
-     * <p>This list and {@link #ENCODED} have matching indices on purpose.</p>
+     * The encoded form of {@code /} in a cooked token
+     */
+    private static final char ENCODED_SLASH = '1';
+
+    /**
+     * The reference token separator, which needs to be encoded
      */
-    private static final List<Character> DECODED = ImmutableList.of('~', '/');
+    private static final char SLASH = '/';
 
     /**
      * The cooked representation of that token
@@ -106,6 +110,26 @@ public final class ReferenceToken
         return new ReferenceToken(cooked, asRaw(cooked));
     }
 
+    /**
+     * Generate a reference token from part of an encoded (cooked) input
+     *
+     * <p>This is used when decoding a full JSON Pointer: the token is built
+     * directly from its offsets into the input string.</p>
+     *
+     * @param input the input
+     * @param start the start offset of the token (inclusive)
+     * @param end the end offset of the token (exclusive)
+     * @return a token
+     * @throws JsonPointerException illegal token (bad encode sequence)
+     */
+    static ReferenceToken fromCooked(final String input, final int start,
+        final int end)
+        throws JsonPointerException
+    {
+        final String cooked = input.substring(start, end);
+        return new ReferenceToken(cooked, asRaw(cooked));
+    }
+
     /**
      * Generate a reference token from a decoded (raw) representation
      *
@@ -169,6 +193,8 @@ public final class ReferenceToken
     /**
      * Decode an encoded token
      *
+     * <p>If the token contains no escape character, it is returned as is.</p>
+     *
      * @param cooked the encoded token
      * @return the decoded token
      * @throws JsonPointerException bad encoded representation
@@ -176,70 +202,81 @@ public final class ReferenceToken
     private static String asRaw(final String cooked)
         throws JsonPointerException
     {
-        final StringBuilder raw = new StringBuilder(cooked.length());
+        final int index = cooked.indexOf(ESCAPE);
+
+        if (index == -1)
+            return cooked;
+
+        final int length = cooked.length();
+        final StringBuilder raw = new StringBuilder(length);
+        raw.append(cooked, 0, index);
 
-        final CharBuffer buffer = CharBuffer.wrap(cooked);
-        boolean inEscape = false;
         char c;
 
-        while (buffer.hasRemaining()) {
-            c = buffer.get();
-            if (inEscape) {
-                appendEscaped(raw, c);
-                inEscape = false;
-                continue;
-            }
-            if (c == ESCAPE) {
-                inEscape = true;
+        for (int i = index; i < length; i++) {
+            c = cooked.charAt(i);
+            if (c != ESCAPE) {
+                raw.append(c);
                 continue;
             }
-            raw.append(c);
+            if (++i == length)
+                throw new JsonPointerException(EMPTY_ESCAPE);
+            raw.append(decode(cooked.charAt(i)));
         }
 
-        if (inEscape)
-            throw new JsonPointerException(BUNDLE.getMessage("emptyEscape"));
-
         return raw.toString();
     }
 
     /**
-     * Append a decoded sequence to a {@link StringBuilder}
+     * Decode the character following an escape character
      *
-     * @param sb the string builder to append to
      * @param c the escaped character
+     * @return the decoded character
      * @throws JsonPointerException illegal escaped character
      */
-    private static void appendEscaped(final StringBuilder sb, final char c)
+    private static char decode(final char c)
         throws JsonPointerException
     {
-        final int index = ENCODED.indexOf(c);
-        if (index == -1)
-            throw new JsonPointerException(BUNDLE.getMessage("illegalEscape"));
-
-        sb.append(DECODED.get(index));
+        switch (c) {
+            case ENCODED_TILDE:
+                return ESCAPE;
+            case ENCODED_SLASH:
+                return SLASH;
+            default:
+                throw new JsonPointerException(ILLEGAL_ESCAPE);
+        }
     }
 
     /**
      * Encode a raw token
      *
+     * <p>If the token contains no character to encode, it is returned as is.
+     * </p>
+     *
      * @param raw the raw representation
      * @return the cooked, encoded representation
      */
     private static String asCooked(final String raw)
     {
-        final StringBuilder cooked = new StringBuilder(raw.length());
+        if (raw.indexOf(ESCAPE) == -1 && raw.indexOf(SLASH) == -1)
+            return raw;
 
-        final CharBuffer buffer = CharBuffer.wrap(raw);
+        final int length = raw.length();
+        final StringBuilder cooked = new StringBuilder(length + 2);
         char c;
-        int index;
-
-        while (buffer.hasRemaining()) {
-            c = buffer.get();
-            index = DECODED.indexOf(c);
-            if (index != -1)
-                cooked.append('~').append(ENCODED.get(index));
-            else
-                cooked.append(c);
+
+        for (int i = 0; i < length; i++) {
+            c = raw.charAt(i);
+            switch (c) {
+                case ESCAPE:
+                    cooked.append(ESCAPE).append(ENCODED_TILDE);
+                    break;
+                case SLASH:
+                    cooked.append(ESCAPE).append(ENCODED_SLASH);
+                    break;
+                default:
+                    cooked.append(c);
+            }
         }
 
         return cooked.toString();
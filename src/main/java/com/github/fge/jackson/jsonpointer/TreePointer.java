@@ -64,6 +64,7 @@ public abstract class TreePointer<T extends TreeNode>
 {
     protected static final MessageBundle BUNDLE
         = MessageBundles.getBundle(JsonPointerMessages.class);
+    private static final String NOT_SLASH = BUNDLE.getMessage("notSlash");
     /**
      * The reference token separator
      */
@@ -90,9 +91,26 @@ public abstract class TreePointer<T extends TreeNode>
      */
     protected TreePointer(final T missing,
         final List<TokenResolver<T>> tokenResolvers)
+    {
+        this(missing, tokenResolvers, true);
+    }
+
+    /**
+     * Constructor sharing a list of token resolvers
+     *
+     * <p>The list is not copied: it must be immutable, and support fast index
+     * access.</p>
+     *
+     * @param missing the representation of a missing node (may be null)
+     * @param tokenResolvers the list of reference token resolvers
+     * @param copy whether the list should be copied
+     */
+    TreePointer(final T missing, final List<TokenResolver<T>> tokenResolvers,
+        final boolean copy)
     {
         this.missing = missing;
-        this.tokenResolvers = ImmutableList.copyOf(tokenResolvers);
+        this.tokenResolvers = copy ? ImmutableList.copyOf(tokenResolvers)
+            : tokenResolvers;
     }
 
     /**
@@ -119,11 +137,16 @@ public abstract class TreePointer<T extends TreeNode>
      */
     public final T get(final T node)
     {
+        /*
+         * The list supports fast index access; and unlike a foreach loop, this
+         * does not allocate an iterator.
+         */
+        final int size = tokenResolvers.size();
         T ret = node;
-        for (final TokenResolver<T> tokenResolver: tokenResolvers) {
+        for (int i = 0; i < size; i++) {
             if (ret == null)
                 break;
-            ret = tokenResolver.get(ret);
+            ret = tokenResolvers.get(i).get(ret);
         }
 
         return ret;
@@ -155,6 +178,28 @@ public abstract class TreePointer<T extends TreeNode>
         return tokenResolvers.isEmpty();
     }
 
+    /**
+     * Tell whether this pointer is a prefix of another pointer
+     *
+     * <p>A pointer is a prefix of itself; the empty pointer is a prefix of all
+     * pointers.</p>
+     *
+     * @param other the other pointer
+     * @return true if all tokens of this pointer start the other pointer
+     * @throws NullPointerException other pointer is null
+     */
+    public final boolean isPrefixOf(final TreePointer<T> other)
+    {
+        BUNDLE.checkNotNull(other, "nullInput");
+        final int size = tokenResolvers.size();
+        if (size > other.tokenResolvers.size())
+            return false;
+        for (int i = 0; i < size; i++)
+            if (!tokenResolvers.get(i).equals(other.tokenResolvers.get(i)))
+                return false;
+        return true;
+    }
+
     @Override
     public final Iterator<TokenResolver<T>> iterator()
     {
@@ -197,6 +242,9 @@ public abstract class TreePointer<T extends TreeNode>
     /**
      * Decode an input into a list of reference tokens
      *
+     * <p>This is done in one pass over the input: each reference token is
+     * built directly from its offsets in the input string.</p>
+     *
      * @param input the input
      * @return the list of reference tokens
      * @throws JsonPointerException input is not a valid JSON Pointer
@@ -205,24 +253,25 @@ public abstract class TreePointer<T extends TreeNode>
     protected static List<ReferenceToken> tokensFromInput(final String input)
         throws JsonPointerException
     {
-        String s = BUNDLE.checkNotNull(input, "nullInput");
+        final String s = BUNDLE.checkNotNull(input, "nullInput");
         final List<ReferenceToken> ret = Lists.newArrayList();
-        String cooked;
-        int index;
-        char c;
-
-        // TODO: see how this can be replaced with a CharBuffer -- seek etc
-        while (!s.isEmpty()) {
-            c = s.charAt(0);
-            if (c != SLASH)
-                throw new JsonPointerException(BUNDLE.getMessage("notSlash"));
-            s = s.substring(1);
-            index = s.indexOf(SLASH);
-            cooked = index == -1 ? s : s.substring(0, index);
-            ret.add(ReferenceToken.fromCooked(cooked));
-            if (index == -1)
-                break;
-            s = s.substring(index);
+        final int length = s.length();
+        int start = 0;
+        int end;
+
+        /*
+         * After the first iteration, start always points to a slash; only the
+         * first character of the input can therefore be illegal.
+         */
+        while (start < length) {
+            if (s.charAt(start) != SLASH)
+                throw new JsonPointerException(NOT_SLASH);
+            start++;
+            end = s.indexOf(SLASH, start);
+            if (end == -1)
+                end = length;
+            ret.add(ReferenceToken.fromCooked(s, start, end));
+            start = end;
         }
 
         return ret;
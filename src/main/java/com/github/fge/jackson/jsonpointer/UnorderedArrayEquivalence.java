@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonNumEquals;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An {@link Equivalence} treating some arrays as unordered
+ *
+ * <p>This equivalence behaves like {@link JsonNumEquals}, except that arrays
+ * selected when building it are compared as multisets (bags): two such arrays
+ * are equivalent if their elements can be paired so that each element of one
+ * is equivalent to its counterpart in the other, regardless of their order.
+ * Either all arrays are unordered (see {@link #allArrays()}), or only arrays
+ * whose pointer matches one of a set of {@link JsonPointerPattern}s (see
+ * {@link #forPatterns(Iterable)}).</p>
+ *
+ * <p>Elements of an unordered array have no position: within them, only
+ * wildcard tokens of a pattern match the element token. For instance, if
+ * {@code /tags} is unordered, pattern {@code /tags/*&#47;ids} matches the
+ * {@code ids} array of every element of {@code /tags}, but pattern {@code
+ * /tags/0/ids} matches nothing. Pointers are relative to the values being
+ * compared or hashed.</p>
+ *
+ * <p>Unordered arrays are compared in expected linear time: elements of one
+ * array are bucketed by their hash under this equivalence (which is
+ * consistent with {@link JsonNumEquals}), and elements of the other array are
+ * only fully compared with elements of the same bucket.</p>
+ */
+@Immutable
+public final class UnorderedArrayEquivalence
+    extends Equivalence<JsonNode>
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private static final Equivalence<JsonNode> NUM_EQUALS
+        = JsonNumEquals.getInstance();
+
+    /**
+     * The reference token used for elements of unordered arrays
+     */
+    private static final String ANY_ELEMENT = "*";
+
+    /*
+     * Hash seeds for containers
+     */
+    private static final int ARRAY = 0x2f0f4f6d;
+    private static final int UNORDERED_ARRAY = 0x6a09e667;
+    private static final int OBJECT = 0x3c6ef372;
+
+    private static final UnorderedArrayEquivalence ALL_ARRAYS
+        = new UnorderedArrayEquivalence(null);
+
+    /**
+     * Patterns matching unordered arrays ({@code null} if all arrays are)
+     */
+    private final List<JsonPointerPattern> patterns;
+
+    /**
+     * The size of the longest pattern
+     *
+     * <p>No array deeper than this can be unordered: values below are
+     * compared using {@link JsonNumEquals}.</p>
+     */
+    private final int maxSize;
+
+    private UnorderedArrayEquivalence(final List<JsonPointerPattern> patterns)
+    {
+        this.patterns = patterns;
+        int size = -1;
+        if (patterns != null)
+            for (final JsonPointerPattern pattern: patterns)
+                size = Math.max(size, pattern.size());
+        maxSize = size;
+    }
+
+    /**
+     * Return an equivalence treating all arrays as unordered
+     *
+     * @return an equivalence
+     */
+    public static UnorderedArrayEquivalence allArrays()
+    {
+        return ALL_ARRAYS;
+    }
+
+    /**
+     * Return an equivalence treating arrays matching patterns as unordered
+     *
+     * @param first the first pattern
+     * @param others other patterns, if any
+     * @return an equivalence
+     * @throws NullPointerException one pattern is null
+     */
+    public static UnorderedArrayEquivalence forPatterns(
+        final JsonPointerPattern first, final JsonPointerPattern... others)
+    {
+        return forPatterns(Lists.asList(first, others));
+    }
+
+    /**
+     * Return an equivalence treating arrays matching patterns as unordered
+     *
+     * @param patterns the patterns
+     * @return an equivalence
+     * @throws NullPointerException patterns, or one pattern, is null
+     */
+    public static UnorderedArrayEquivalence forPatterns(
+        final Iterable<JsonPointerPattern> patterns)
+    {
+        BUNDLE.checkNotNull(patterns, "nullInput");
+        for (final JsonPointerPattern pattern: patterns)
+            BUNDLE.checkNotNull(pattern, "nullInput");
+        return new UnorderedArrayEquivalence(ImmutableList.copyOf(patterns));
+    }
+
+    @Override
+    protected boolean doEquivalent(final JsonNode a, final JsonNode b)
+    {
+        return equivalent(LinkedJsonPointer.empty(), a, b);
+    }
+
+    @Override
+    protected int doHash(final JsonNode t)
+    {
+        return hash(LinkedJsonPointer.empty(), t);
+    }
+
+    /**
+     * Compare two values
+     *
+     * <p>Containers are walked using an explicit stack. Unordered arrays are
+     * compared by {@link #multisetEquals(LinkedJsonPointer, JsonNode,
+     * JsonNode)}, which calls this method for each candidate pair: the depth
+     * of the call stack is therefore bounded by the number of nested unordered
+     * arrays.</p>
+     *
+     * @param path the path to both values, or {@code null} if no array
+     * below this path is unordered
+     * @param a the first value
+     * @param b the second value
+     * @return true if both values are equivalent
+     */
+    private boolean equivalent(final LinkedJsonPointer path, final JsonNode a,
+        final JsonNode b)
+    {
+        final Deque<Pair> stack = new ArrayDeque<Pair>();
+        stack.push(new Pair(path, a, b));
+
+        Pair pair;
+        LinkedJsonPointer ptr;
+        JsonNode nodeA, nodeB, childB;
+        Iterator<Map.Entry<String, JsonNode>> iterator;
+        Map.Entry<String, JsonNode> entry;
+        int size;
+
+        while (!stack.isEmpty()) {
+            pair = stack.pop();
+            ptr = pair.path;
+            nodeA = pair.a;
+            nodeB = pair.b;
+
+            if (nodeA == nodeB)
+                continue;
+            if (ptr == null || !nodeA.isContainerNode()
+                || nodeA.getNodeType() != nodeB.getNodeType()) {
+                if (!NUM_EQUALS.equivalent(nodeA, nodeB))
+                    return false;
+                continue;
+            }
+            size = nodeA.size();
+            if (size != nodeB.size())
+                return false;
+
+            if (nodeA.isObject()) {
+                iterator = nodeA.fields();
+                while (iterator.hasNext()) {
+                    entry = iterator.next();
+                    childB = nodeB.get(entry.getKey());
+                    if (childB == null)
+                        return false;
+                    stack.push(new Pair(child(ptr, entry.getKey()),
+                        entry.getValue(), childB));
+                }
+                continue;
+            }
+
+            if (isUnordered(ptr)) {
+                if (!multisetEquals(child(ptr, ANY_ELEMENT), nodeA, nodeB))
+                    return false;
+                continue;
+            }
+
+            for (int i = 0; i < size; i++)
+                stack.push(new Pair(child(ptr, i), nodeA.get(i),
+                    nodeB.get(i)));
+        }
+
+        return true;
+    }
+
+    /**
+     * Compare the elements of two arrays of the same size as multisets
+     *
+     * <p>Elements of the second array are bucketed by hash; each element of
+     * the first array is then looked up in its bucket, and removed from it if
+     * an equivalent element is found. Since this is an equivalence relation,
+     * which element is removed does not matter.</p>
+     *
+     * @param path the path to elements of both arrays
+     * @param a the first array
+     * @param b the second array
+     * @return true if both arrays have the same elements
+     */
+    private boolean multisetEquals(final LinkedJsonPointer path,
+        final JsonNode a, final JsonNode b)
+    {
+        final int size = a.size();
+        final Map<Integer, List<JsonNode>> buckets
+            = Maps.newHashMapWithExpectedSize(size);
+
+        List<JsonNode> bucket;
+        int hash;
+
+        for (final JsonNode element: b) {
+            hash = hash(path, element);
+            bucket = buckets.get(hash);
+            if (bucket == null) {
+                bucket = Lists.newArrayListWithCapacity(1);
+                buckets.put(hash, bucket);
+            }
+            bucket.add(element);
+        }
+
+        JsonNode element;
+        int last;
+        boolean found;
+
+        for (int i = 0; i < size; i++) {
+            element = a.get(i);
+            bucket = buckets.get(hash(path, element));
+            if (bucket == null)
+                return false;
+            last = bucket.size() - 1;
+            found = false;
+            for (int j = last; j >= 0; j--)
+                if (equivalent(path, element, bucket.get(j))) {
+                    bucket.set(j, bucket.get(last));
+                    bucket.remove(last);
+                    found = true;
+                    break;
+                }
+            if (!found)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Hash a value
+     *
+     * <p>Containers are walked using an explicit stack, each frame combining
+     * the hashes of its children: in order for ordered arrays, and with an
+     * order independent sum for objects and unordered arrays.</p>
+     *
+     * @param path the path to the value, or {@code null} if no array below
+     * this path is unordered
+     * @param node the value
+     * @return the hash
+     */
+    private int hash(final LinkedJsonPointer path, final JsonNode node)
+    {
+        if (path == null || !hasChildren(node))
+            return NUM_EQUALS.hash(node);
+
+        final Deque<Frame> stack = new ArrayDeque<Frame>();
+        stack.push(new Frame(path, node, isUnordered(path)));
+
+        Frame frame;
+        JsonNode child;
+        LinkedJsonPointer childPath;
+        int value;
+
+        while (true) {
+            frame = stack.peek();
+            child = frame.next();
+            if (child != null) {
+                childPath = frame.unordered ? child(frame.path, ANY_ELEMENT)
+                    : frame.name != null ? child(frame.path, frame.name)
+                    : child(frame.path, frame.index - 1);
+                if (childPath == null || !hasChildren(child))
+                    frame.add(NUM_EQUALS.hash(child));
+                else
+                    stack.push(new Frame(childPath, child,
+                        isUnordered(childPath)));
+                continue;
+            }
+            stack.pop();
+            value = frame.finish();
+            if (stack.isEmpty())
+                return value;
+            stack.peek().add(value);
+        }
+    }
+
+    private boolean isUnordered(final LinkedJsonPointer path)
+    {
+        if (patterns == null)
+            return true;
+        for (final JsonPointerPattern pattern: patterns)
+            if (pattern.matches(path))
+                return true;
+        return false;
+    }
+
+    /*
+     * When all arrays are unordered, the path is not needed: it is never
+     * extended. Otherwise, it is dropped (null) below the longest pattern.
+     */
+    private LinkedJsonPointer child(final LinkedJsonPointer path,
+        final String name)
+    {
+        if (patterns == null)
+            return path;
+        return path.size() >= maxSize ? null : path.append(name);
+    }
+
+    private LinkedJsonPointer child(final LinkedJsonPointer path,
+        final int index)
+    {
+        if (patterns == null)
+            return path;
+        return path.size() >= maxSize ? null : path.append(index);
+    }
+
+    private static boolean hasChildren(final JsonNode node)
+    {
+        return node.isContainerNode() && node.size() != 0;
+    }
+
+    /**
+     * Finalization step of MurmurHash3, used to mix element hashes before
+     * summing them
+     */
+    private static int mix(final int value)
+    {
+        int h = value;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static final class Pair
+    {
+        private final LinkedJsonPointer path;
+        private final JsonNode a;
+        private final JsonNode b;
+
+        private Pair(final LinkedJsonPointer path, final JsonNode a,
+            final JsonNode b)
+        {
+            this.path = path;
+            this.a = a;
+            this.b = b;
+        }
+    }
+
+    /**
+     * A container being hashed
+     */
+    private static final class Frame
+    {
+        private final LinkedJsonPointer path;
+        private final JsonNode node;
+        private final boolean unordered;
+        private final Iterator<Map.Entry<String, JsonNode>> fields;
+        /*
+         * The name of the current member (objects only), and the index of the
+         * next element
+         */
+        private String name;
+        private int index = 0;
+        private int acc = 0;
+
+        private Frame(final LinkedJsonPointer path, final JsonNode node,
+            final boolean unordered)
+        {
+            this.path = path;
+            this.node = node;
+            this.unordered = node.isArray() && unordered;
+            fields = node.isObject() ? node.fields() : null;
+        }
+
+        /*
+         * Returns null when there are no more children
+         */
+        private JsonNode next()
+        {
+            if (index == node.size())
+                return null;
+            index++;
+            if (fields == null)
+                return node.get(index - 1);
+            final Map.Entry<String, JsonNode> entry = fields.next();
+            name = entry.getKey();
+            return entry.getValue();
+        }
+
+        private void add(final int value)
+        {
+            if (fields != null)
+                acc += mix(31 * name.hashCode() + value);
+            else if (unordered)
+                acc += mix(value);
+            else
+                acc = 31 * acc + value;
+        }
+
+        private int finish()
+        {
+            final int seed = fields != null ? OBJECT
+                : unordered ? UNORDERED_ARRAY : ARRAY;
+            return mix(seed ^ acc ^ node.size());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.common.collect.Lists;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class JsonFingerprintTest
+{
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+    private JsonNode testData;
+
+    @BeforeClass
+    public void initData()
+        throws IOException
+    {
+        testData = JsonLoader.fromResource("/testfile.json");
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        JsonNode reference;
+
+        for (final JsonNode element: testData) {
+            reference = element.get("reference");
+            for (final JsonNode node: element.get("equivalences"))
+                list.add(new Object[]{reference, node});
+        }
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void equivalentValuesHaveTheSameFingerprint(
+        final JsonNode reference, final JsonNode node)
+    {
+        assertEquals(JsonFingerprint.of(reference), JsonFingerprint.of(node));
+    }
+
+    @Test
+    public void memberOrderDoesNotMatter()
+        throws IOException
+    {
+        final JsonNode node1
+            = JsonLoader.fromString("{\"a\":1,\"b\":[2,{\"c\":3.0}]}");
+        final JsonNode node2
+            = JsonLoader.fromString("{\"b\":[2.0,{\"c\":3}],\"a\":1}");
+
+        assertEquals(JsonFingerprint.of(node1), JsonFingerprint.of(node2));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> differentValues()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "{\"a\":1,\"b\":2}", "{\"a\":2,\"b\":1}" });
+        list.add(new Object[] { "{\"a\":1}", "{\"b\":1}" });
+        list.add(new Object[] { "{\"a\":{}}", "{\"a\":[]}" });
+        list.add(new Object[] { "[1,2]", "[2,1]" });
+        list.add(new Object[] { "[[1],2]", "[1,[2]]" });
+        list.add(new Object[] { "[[]]", "[]" });
+        list.add(new Object[] { "[null]", "[]" });
+        list.add(new Object[] { "1", "\"1\"" });
+        list.add(new Object[] { "true", "false" });
+        list.add(new Object[] { "null", "{}" });
+        list.add(new Object[] { "\"ab\"", "\"ba\"" });
+        list.add(new Object[] { "{\"a\":[1,2]}", "{\"a\":1,\"b\":2}" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "differentValues")
+    public void differentValuesHaveDifferentFingerprints(final String first,
+        final String second)
+        throws IOException
+    {
+        final JsonNode node1 = JsonLoader.fromString(first);
+        final JsonNode node2 = JsonLoader.fromString(second);
+
+        assertNotEquals(JsonFingerprint.of(node1), JsonFingerprint.of(node2));
+    }
+
+    @Test
+    public void numbersAreFingerprintedByValue()
+    {
+        assertEquals(JsonFingerprint.of(FACTORY.numberNode(1)),
+            JsonFingerprint.of(FACTORY.numberNode(new BigDecimal("1.000"))));
+        assertEquals(JsonFingerprint.of(FACTORY.numberNode(-0.0)),
+            JsonFingerprint.of(FACTORY.numberNode(0L)));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> numbersRoundingToTheSameDouble()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { FACTORY.numberNode(9007199254740993L),
+            FACTORY.numberNode(9007199254740992L) });
+        list.add(new Object[] {
+            FACTORY.numberNode(new BigDecimal("0.1000000000000000000001")),
+            FACTORY.numberNode(0.1) });
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal("0.1")),
+            FACTORY.numberNode(0.1) });
+        final BigInteger big = BigInteger.ONE.shiftLeft(64).add(BigInteger.ONE);
+        list.add(new Object[] { FACTORY.numberNode(big),
+            FACTORY.numberNode(0x1p64) });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "numbersRoundingToTheSameDouble")
+    public void numbersRoundingToTheSameDoubleHaveDifferentFingerprints(
+        final JsonNode first, final JsonNode second)
+    {
+        assertNotEquals(JsonFingerprint.of(first), JsonFingerprint.of(second));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> sameNumbersOfDifferentTypes()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { FACTORY.numberNode(9007199254740993L),
+            FACTORY.numberNode(BigInteger.valueOf(9007199254740993L)) });
+        list.add(new Object[] { FACTORY.numberNode(9007199254740993L),
+            FACTORY.numberNode(new BigDecimal("9007199254740993.00")) });
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal(0.1)),
+            FACTORY.numberNode(0.1) });
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal("0.25")),
+            FACTORY.numberNode(0.25f) });
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal("1E+400")),
+            FACTORY.numberNode(BigInteger.TEN.pow(400)) });
+        list.add(new Object[] { FACTORY.numberNode(Long.MAX_VALUE),
+            FACTORY.numberNode(new BigDecimal(Long.MAX_VALUE)) });
+        list.add(new Object[] { FACTORY.numberNode(Long.MIN_VALUE),
+            FACTORY.numberNode(-0x1p63) });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "sameNumbersOfDifferentTypes")
+    public void sameNumbersOfDifferentTypesHaveTheSameFingerprint(
+        final JsonNode first, final JsonNode second)
+    {
+        assertEquals(JsonFingerprint.of(first), JsonFingerprint.of(second));
+    }
+
+    @Test
+    public void fingerprintsAreStable()
+        throws IOException
+    {
+        final JsonNode node = JsonLoader.fromString(
+            "{\"a\":[1,\"x\",null,true,{}],\"b\":{\"c\":1.5}}");
+
+        assertEquals(JsonFingerprint.of(node), -8906791698578933956L);
+    }
+
+    @Test
+    public void deeplyNestedValuesDoNotOverflowTheStack()
+    {
+        JsonNode node = FACTORY.numberNode(1);
+        ArrayNode array;
+
+        for (int i = 0; i < 100000; i++) {
+            array = FACTORY.arrayNode();
+            array.add(node);
+            node = array;
+        }
+
+        assertNotEquals(JsonFingerprint.of(node), 0L);
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public final class JsonNodeHashMapTest
+{
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+
+    private JsonNode testData;
+
+    @BeforeClass
+    public void initData()
+        throws IOException
+    {
+        testData = JsonLoader.fromResource("/testfile.json");
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        JsonNode reference;
+
+        for (final JsonNode element: testData) {
+            reference = element.get("reference");
+            for (final JsonNode node: element.get("equivalences"))
+                list.add(new Object[]{reference, node});
+        }
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void equivalentKeysMapToTheSameValue(final JsonNode reference,
+        final JsonNode node)
+    {
+        final JsonNodeHashMap<String> map = new JsonNodeHashMap<String>();
+
+        assertNull(map.put(reference, "foo"));
+        assertTrue(map.containsKey(node));
+        assertEquals(map.get(node), "foo");
+        assertSame(map.getKey(node), reference);
+        assertEquals(map.put(node, "bar"), "foo");
+        assertEquals(map.size(), 1);
+        assertSame(map.getKey(node), reference);
+    }
+
+    @Test
+    public void nullKeysAreRejected()
+    {
+        try {
+            new JsonNodeHashMap<String>().put(null, "foo");
+            fail("No exception thrown!!");
+        } catch (NullPointerException ignored) {
+        }
+    }
+
+    @Test
+    public void nullValuesAreAllowed()
+    {
+        final JsonNodeHashMap<String> map = new JsonNodeHashMap<String>();
+        final JsonNode key = FACTORY.numberNode(1);
+
+        map.put(key, null);
+
+        assertTrue(map.containsKey(key));
+        assertNull(map.get(key));
+        assertEquals(map.size(), 1);
+    }
+
+    @Test
+    public void nonJsonNodeKeysAreNotFound()
+    {
+        final JsonNodeHashMap<String> map = new JsonNodeHashMap<String>();
+        map.put(FACTORY.textNode("foo"), "bar");
+
+        assertFalse(map.containsKey("foo"));
+        assertNull(map.get("foo"));
+        assertNull(map.remove("foo"));
+    }
+
+    @Test
+    public void mapsWithEquivalentKeysAreEqual()
+    {
+        final JsonNodeHashMap<String> map1 = new JsonNodeHashMap<String>();
+        final JsonNodeHashMap<String> map2 = new JsonNodeHashMap<String>();
+
+        map1.put(FACTORY.numberNode(1), "a");
+        map1.put(FACTORY.numberNode(2.5), "b");
+        map2.put(FACTORY.numberNode(new BigDecimal("2.50")), "b");
+        map2.put(FACTORY.numberNode(1.0), "a");
+
+        assertEquals(map1, map2);
+        assertEquals(map2, map1);
+    }
+
+    @Test
+    public void equalityWithOtherMapsFollowsTheMapContract()
+    {
+        final JsonNodeHashMap<String> map = new JsonNodeHashMap<String>();
+        map.put(FACTORY.numberNode(1), "a");
+        map.put(FACTORY.textNode("1"), "b");
+
+        final Map<JsonNode, String> other = Maps.newHashMap(map);
+
+        assertTrue(map.equals(other));
+        assertTrue(other.equals(map));
+        assertEquals(map.hashCode(), other.hashCode());
+
+        other.put(FACTORY.nullNode(), "c");
+
+        assertFalse(map.equals(other));
+        assertFalse(other.equals(map));
+    }
+
+    @Test
+    public void mapBehavesLikeAWrappedKeyHashMap()
+    {
+        final Random random = new Random(0L);
+        final JsonNodeHashMap<Integer> map = new JsonNodeHashMap<Integer>();
+        final Map<Equivalence.Wrapper<JsonNode>, Integer> reference
+            = Maps.newHashMap();
+
+        JsonNode key;
+        int value;
+
+        for (int i = 0; i < 20000; i++) {
+            key = randomKey(random);
+            value = random.nextInt();
+            switch (random.nextInt(3)) {
+                case 0:
+                case 1:
+                    assertEquals(map.put(key, value),
+                        reference.put(EQUIVALENCE.wrap(key), value));
+                    break;
+                default:
+                    assertEquals(map.remove(key),
+                        reference.remove(EQUIVALENCE.wrap(key)));
+            }
+            assertEquals(map.size(), reference.size());
+        }
+
+        checkSameContents(map, reference);
+
+        final Iterator<JsonNode> iterator = map.keySet().iterator();
+        while (iterator.hasNext())
+            if (random.nextBoolean()) {
+                reference.remove(EQUIVALENCE.wrap(iterator.next()));
+                iterator.remove();
+            } else
+                iterator.next();
+
+        checkSameContents(map, reference);
+    }
+
+    @Test
+    public void iteratorRemovalVisitsEveryEntryOnce()
+    {
+        /*
+         * A small table with colliding keys, so that entries are shifted
+         * back, and possibly across the end of the table, on removal
+         */
+        final JsonNodeHashMap<Integer> map = new JsonNodeHashMap<Integer>();
+        for (int i = 0; i < 5; i++)
+            map.put(FACTORY.numberNode(i), i);
+
+        final Iterator<Map.Entry<JsonNode, Integer>> iterator
+            = map.entrySet().iterator();
+        int count = 0;
+
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            count++;
+        }
+
+        assertEquals(count, 5);
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void modificationDuringIterationIsDetected()
+    {
+        final JsonNodeHashMap<Integer> map = new JsonNodeHashMap<Integer>();
+        map.put(FACTORY.numberNode(1), 1);
+        map.put(FACTORY.numberNode(2), 2);
+
+        final Iterator<JsonNode> iterator = map.keySet().iterator();
+        iterator.next();
+        map.put(FACTORY.numberNode(3), 3);
+
+        try {
+            iterator.next();
+            fail("No exception thrown!!");
+        } catch (ConcurrentModificationException ignored) {
+        }
+    }
+
+    @Test
+    public void entrySetValueWritesThrough()
+    {
+        final JsonNodeHashMap<Integer> map = new JsonNodeHashMap<Integer>();
+        final JsonNode key = FACTORY.textNode("foo");
+        map.put(key, 1);
+
+        final Map.Entry<JsonNode, Integer> entry
+            = map.entrySet().iterator().next();
+
+        assertEquals(entry.setValue(2), Integer.valueOf(1));
+        assertEquals(map.get(key), Integer.valueOf(2));
+    }
+
+    private static void checkSameContents(final JsonNodeHashMap<Integer> map,
+        final Map<Equivalence.Wrapper<JsonNode>, Integer> reference)
+    {
+        assertEquals(map.size(), reference.size());
+        for (final Map.Entry<Equivalence.Wrapper<JsonNode>, Integer> entry:
+            reference.entrySet())
+            assertEquals(map.get(entry.getKey().get()), entry.getValue());
+
+        int count = 0;
+        for (final Map.Entry<JsonNode, Integer> entry: map.entrySet()) {
+            assertEquals(entry.getValue(),
+                reference.get(EQUIVALENCE.wrap(entry.getKey())));
+            count++;
+        }
+        assertEquals(count, reference.size());
+    }
+
+    private static JsonNode randomKey(final Random random)
+    {
+        final int n = random.nextInt(500);
+        switch (random.nextInt(3)) {
+            case 0:
+                return FACTORY.numberNode(n);
+            case 1:
+                return FACTORY.numberNode((double) n);
+            default:
+                return FACTORY.arrayNode().add(n).add("x");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+public final class JsonNodeHashSetTest
+{
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    @Test
+    public void equivalentValuesAreAddedOnlyOnce()
+        throws IOException
+    {
+        final JsonNode node1 = JsonLoader.fromString("{\"a\":[1,2.0]}");
+        final JsonNode node2 = JsonLoader.fromString("{\"a\":[1.0,2]}");
+        final JsonNodeHashSet set = new JsonNodeHashSet();
+
+        assertTrue(set.add(node1));
+        assertFalse(set.add(node2));
+        assertEquals(set.size(), 1);
+        assertTrue(set.contains(node2));
+        assertSame(set.get(node2), node1);
+    }
+
+    @Test
+    public void removeRemovesEquivalentValues()
+    {
+        final JsonNodeHashSet set = new JsonNodeHashSet(ImmutableList.of(
+            FACTORY.numberNode(1), FACTORY.textNode("1")));
+
+        assertTrue(set.remove(FACTORY.numberNode(1.0)));
+        assertFalse(set.remove(FACTORY.numberNode(1.0)));
+        assertEquals(set.size(), 1);
+        assertTrue(set.contains(FACTORY.textNode("1")));
+    }
+
+    @Test
+    public void setsWithEquivalentElementsAreEqual()
+    {
+        final JsonNodeHashSet set1 = new JsonNodeHashSet(ImmutableList.of(
+            FACTORY.numberNode(1), FACTORY.numberNode(2.0)));
+        final JsonNodeHashSet set2 = new JsonNodeHashSet(ImmutableList.of(
+            FACTORY.numberNode(2), FACTORY.numberNode(1.0)));
+
+        assertEquals(set1, set2);
+        assertEquals(set2, set1);
+    }
+
+    @Test
+    public void equalityWithOtherSetsFollowsTheSetContract()
+    {
+        final JsonNodeHashSet set = new JsonNodeHashSet(ImmutableList.of(
+            FACTORY.numberNode(1), FACTORY.textNode("1")));
+        final Set<JsonNode> other = Sets.newHashSet(set);
+
+        assertTrue(set.equals(other));
+        assertTrue(other.equals(set));
+        assertEquals(set.hashCode(), other.hashCode());
+    }
+
+    @Test
+    public void nullElementsAreRejected()
+    {
+        try {
+            new JsonNodeHashSet().add(null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException ignored) {
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.Lists;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class JsonNodeInternerTest
+{
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+    private static final Equivalence<JsonNode> EQUIVALENCE
+        = JsonNumEquals.getInstance();
+
+    private JsonNode testData;
+
+    @BeforeClass
+    public void initData()
+        throws IOException
+    {
+        testData = JsonLoader.fromResource("/testfile.json");
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        JsonNode reference;
+
+        for (final JsonNode element: testData) {
+            reference = element.get("reference");
+            for (final JsonNode node: element.get("equivalences"))
+                list.add(new Object[]{reference, node});
+        }
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void equivalentValuesAreInternedToTheSameInstance(
+        final JsonNode reference, final JsonNode node)
+    {
+        final JsonNodeInterner interner = JsonNodeInterner.weak();
+        final JsonNode interned = interner.intern(reference);
+
+        assertTrue(EQUIVALENCE.equivalent(interned, reference));
+        assertSame(interner.intern(node), interned);
+    }
+
+    @Test
+    public void nullInputIsRejected()
+    {
+        try {
+            JsonNodeInterner.weak().intern(null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException ignored) {
+        }
+    }
+
+    @Test
+    public void negativeMaximumSizeIsRejected()
+    {
+        try {
+            JsonNodeInterner.bounded(-1);
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void equalSubtreesAreShared()
+        throws IOException
+    {
+        final JsonNodeInterner interner = JsonNodeInterner.weak();
+        final JsonNode node1 = interner.intern(JsonLoader
+            .fromString("{\"a\":{\"b\":[1,\"x\"]},\"c\":true}"));
+        final JsonNode node2 = interner.intern(JsonLoader
+            .fromString("[{\"b\":[1,\"x\"]},{\"d\":[1,\"x\"]}]"));
+
+        assertSame(node2.get(0), node1.get("a"));
+        assertSame(node2.get(1).get("d"), node1.get("a").get("b"));
+    }
+
+    @Test
+    public void internedValuesAreEquivalentToTheirInput()
+        throws IOException
+    {
+        final JsonNodeInterner interner = JsonNodeInterner.weak();
+        final JsonNode node
+            = JsonLoader.fromString("[{\"a\":1},{\"a\":1.0},[[]],\"a\"]");
+        final JsonNode copy = node.deepCopy();
+        final JsonNode interned = interner.intern(node);
+
+        assertTrue(EQUIVALENCE.equivalent(interned, node));
+        assertSame(interned.get(1), interned.get(0));
+        assertEquals(node, copy, "input was modified");
+    }
+
+    @Test
+    public void unchangedValuesAreNotCopied()
+        throws IOException
+    {
+        final JsonNodeInterner interner = JsonNodeInterner.weak();
+        final JsonNode node
+            = JsonLoader.fromString("{\"a\":[1,2],\"b\":{\"c\":\"d\"}}");
+
+        assertSame(interner.intern(node), node);
+    }
+
+    @Test
+    public void distinctValuesAreNotMerged()
+    {
+        final JsonNodeInterner interner = JsonNodeInterner.weak();
+        final ObjectNode node1 = FACTORY.objectNode();
+        node1.put("a", 1);
+        final ObjectNode node2 = FACTORY.objectNode();
+        node2.put("a", 2);
+
+        assertSame(interner.intern(node1), node1);
+        assertSame(interner.intern(node2), node2);
+        assertSame(interner.intern(node1.deepCopy()), node1);
+    }
+
+    @Test
+    public void deeplyNestedValuesCanBeInterned()
+    {
+        final JsonNodeInterner interner = JsonNodeInterner.weak();
+        JsonNode node1 = FACTORY.nullNode();
+        JsonNode node2 = FACTORY.nullNode();
+
+        for (int i = 0; i < 100000; i++) {
+            node1 = FACTORY.arrayNode().add(node1);
+            node2 = FACTORY.arrayNode().add(node2);
+        }
+
+        assertSame(interner.intern(node2), interner.intern(node1));
+    }
+
+    @Test
+    public void boundedInternerHoldsAtMostMaximumSizeValues()
+        throws IOException
+    {
+        final JsonNodeInterner interner = JsonNodeInterner.bounded(3);
+        final JsonNode node = JsonLoader.fromString("[1,2,3,4,5,6,7,8,9,10]");
+
+        assertTrue(EQUIVALENCE.equivalent(interner.intern(node), node));
+        assertTrue(interner.size() <= 3L);
+    }
+
+    @Test
+    public void nodeFactoryInternsScalarValuesWhileParsing()
+        throws IOException
+    {
+        final JsonNodeInterner interner = JsonNodeInterner.weak();
+        final ObjectMapper mapper = JacksonUtils.newMapper();
+        mapper.setNodeFactory(interner.nodeFactory());
+
+        final JsonNode node = mapper.readTree("[\"foo\",\"foo\",1,1,1.0]");
+
+        assertSame(node.get(1), node.get(0));
+        assertSame(node.get(3), node.get(2));
+        assertNotSame(node.get(4), node.get(2));
+        assertTrue(node.get(4).isBigDecimal() || node.get(4).isDouble());
+    }
+}
@@ -23,12 +23,15 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Equivalence;
 import com.google.common.collect.Lists;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.Iterator;
 import java.util.List;
 
@@ -92,4 +95,219 @@ public final class JsonNumEqualsTest
 
         assertTrue(JsonNumEquals.getInstance().equivalent(node1, node2));
     }
+
+    @Test(dataProvider = "getInputs")
+    public void equivalentNodesHaveTheSameHashCode(final JsonNode reference,
+        final JsonNode node)
+    {
+        final Equivalence<JsonNode> equivalence
+            = JsonNumEquals.getInstance();
+        assertEquals(equivalence.hash(reference), equivalence.hash(node));
+    }
+
+    @Test
+    public void memberOrderDoesNotMatter()
+        throws IOException
+    {
+        final Equivalence<JsonNode> equivalence
+            = JsonNumEquals.getInstance();
+        final JsonNode node1
+            = JsonLoader.fromString("{\"a\":1,\"b\":[2,{\"c\":3.0}]}");
+        final JsonNode node2
+            = JsonLoader.fromString("{\"b\":[2.0,{\"c\":3}],\"a\":1}");
+        final JsonNode node3
+            = JsonLoader.fromString("{\"a\":[2,{\"c\":3.0}],\"b\":1}");
+
+        assertTrue(equivalence.equivalent(node1, node2));
+        assertEquals(equivalence.hash(node1), equivalence.hash(node2));
+        assertFalse(equivalence.equivalent(node1, node3));
+        assertNotEquals(equivalence.hash(node1), equivalence.hash(node3));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> differentNodes()
+        throws IOException
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "{\"a\":1}", "{\"b\":1}" });
+        list.add(new Object[] { "{\"a\":1}", "{\"a\":1,\"b\":1}" });
+        list.add(new Object[] { "[1,2]", "[2,1]" });
+        list.add(new Object[] { "[[]]", "[{}]" });
+        list.add(new Object[] { "[[1]]", "[[1.5]]" });
+        list.add(new Object[] { "{\"a\":{\"b\":null}}",
+            "{\"a\":{\"b\":false}}" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "differentNodes")
+    public void differencesAreDetected(final String first,
+        final String second)
+        throws IOException
+    {
+        final Equivalence<JsonNode> equivalence
+            = JsonNumEquals.getInstance();
+        final JsonNode node1 = JsonLoader.fromString(first);
+        final JsonNode node2 = JsonLoader.fromString(second);
+
+        assertFalse(equivalence.equivalent(node1, node2));
+        assertFalse(equivalence.equivalent(node2, node1));
+    }
+
+    @Test
+    public void deeplyNestedNodesDoNotOverflowTheStack()
+    {
+        final Equivalence<JsonNode> equivalence
+            = JsonNumEquals.getInstance();
+        final JsonNode node1 = nested(100000, FACTORY.numberNode(1));
+        final JsonNode node2 = nested(100000, FACTORY.numberNode(1.0));
+        final JsonNode node3 = nested(100000, FACTORY.numberNode(2));
+
+        assertTrue(equivalence.equivalent(node1, node2));
+        assertEquals(equivalence.hash(node1), equivalence.hash(node2));
+        assertFalse(equivalence.equivalent(node1, node3));
+    }
+
+    private static JsonNode nested(final int depth, final JsonNode leaf)
+    {
+        JsonNode ret = leaf;
+        ArrayNode array;
+        ObjectNode object;
+
+        for (int i = 0; i < depth; i++) {
+            if (i % 2 == 0) {
+                array = FACTORY.arrayNode();
+                array.add(ret);
+                ret = array;
+            } else {
+                object = FACTORY.objectNode();
+                object.put("x", ret);
+                ret = object;
+            }
+        }
+
+        return ret;
+    }
+
+    @DataProvider
+    public Iterator<Object[]> equivalentNumbers()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { FACTORY.numberNode(1),
+            FACTORY.numberNode(1L) });
+        list.add(new Object[] { FACTORY.numberNode((short) 1),
+            FACTORY.numberNode(1.0) });
+        list.add(new Object[] { FACTORY.numberNode(1.5f),
+            FACTORY.numberNode(1.5) });
+        list.add(new Object[] { FACTORY.numberNode(0.0),
+            FACTORY.numberNode(-0.0) });
+        list.add(new Object[] { FACTORY.numberNode(Double.NaN),
+            FACTORY.numberNode(Double.NaN) });
+        list.add(new Object[] { FACTORY.numberNode(1L << 60),
+            FACTORY.numberNode((double) (1L << 60)) });
+        list.add(new Object[] { FACTORY.numberNode(Long.MIN_VALUE),
+            FACTORY.numberNode((double) Long.MIN_VALUE) });
+        list.add(new Object[] { FACTORY.numberNode(3L),
+            FACTORY.numberNode(BigInteger.valueOf(3L)) });
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal("0.5")),
+            FACTORY.numberNode(0.5) });
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal(0.1)),
+            FACTORY.numberNode(0.1) });
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal("-25E2")),
+            FACTORY.numberNode(-2500) });
+        list.add(new Object[] {
+            FACTORY.numberNode(new BigDecimal("123456789.123456789")),
+            FACTORY.numberNode(new BigDecimal("123456789.1234567890")) });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "equivalentNumbers")
+    public void equivalentNumbersAreDetectedAndHashTheSame(final JsonNode a,
+        final JsonNode b)
+    {
+        final Equivalence<JsonNode> equivalence = JsonNumEquals.getInstance();
+
+        assertTrue(equivalence.equivalent(a, b));
+        assertTrue(equivalence.equivalent(b, a));
+        assertEquals(equivalence.hash(a), equivalence.hash(b));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> differentNumbers()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { FACTORY.numberNode(1),
+            FACTORY.numberNode(1.5) });
+        list.add(new Object[] { FACTORY.numberNode(Long.MAX_VALUE),
+            FACTORY.numberNode((double) Long.MAX_VALUE) });
+        list.add(new Object[] { FACTORY.numberNode((1L << 60) + 1),
+            FACTORY.numberNode((double) (1L << 60)) });
+        list.add(new Object[] { FACTORY.numberNode(0.1f),
+            FACTORY.numberNode(0.1) });
+        list.add(new Object[] { FACTORY.numberNode(2L),
+            FACTORY.numberNode(BigInteger.valueOf(3L)) });
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal("0.11")),
+            FACTORY.numberNode(0.1) });
+        /*
+         * 0.1 is not exactly representable as a double
+         */
+        list.add(new Object[] { FACTORY.numberNode(new BigDecimal("0.10")),
+            FACTORY.numberNode(0.1) });
+        list.add(new Object[] {
+            FACTORY.numberNode(BigDecimal.valueOf((double) (1L << 60))),
+            FACTORY.numberNode((double) (1L << 60)) });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "differentNumbers")
+    public void differentNumbersAreDetected(final JsonNode a,
+        final JsonNode b)
+    {
+        final Equivalence<JsonNode> equivalence = JsonNumEquals.getInstance();
+
+        assertFalse(equivalence.equivalent(a, b));
+        assertFalse(equivalence.equivalent(b, a));
+    }
+
+    @Test
+    public void numericEqualityIsTransitive()
+    {
+        final Equivalence<JsonNode> equivalence = JsonNumEquals.getInstance();
+        final long[] longs = { 0L, 1L, 1L << 53, (1L << 53) + 1, 1L << 60,
+            (1L << 60) + 1, Long.MAX_VALUE, Long.MIN_VALUE };
+        final List<JsonNode> nodes = Lists.newArrayList();
+        double d;
+
+        for (final long l: longs) {
+            d = (double) l;
+            nodes.add(FACTORY.numberNode(l));
+            nodes.add(FACTORY.numberNode(d));
+            nodes.add(FACTORY.numberNode(BigInteger.valueOf(l)));
+            nodes.add(FACTORY.numberNode(BigDecimal.valueOf(l)));
+            nodes.add(FACTORY.numberNode(BigDecimal.valueOf(d)));
+            nodes.add(FACTORY.numberNode(new BigDecimal(d)));
+        }
+        for (final double value: new double[] { 0.1, 0.5, 1e22, 1e23 }) {
+            nodes.add(FACTORY.numberNode(value));
+            nodes.add(FACTORY.numberNode(BigDecimal.valueOf(value)));
+            nodes.add(FACTORY.numberNode(new BigDecimal(value)));
+        }
+
+        for (final JsonNode a: nodes)
+            for (final JsonNode b: nodes) {
+                if (!equivalence.equivalent(a, b))
+                    continue;
+                assertEquals(equivalence.hash(a), equivalence.hash(b),
+                    a + " and " + b + " should hash the same");
+                for (final JsonNode c: nodes)
+                    if (equivalence.equivalent(b, c))
+                        assertTrue(equivalence.equivalent(a, c),
+                            a + " ~ " + b + " ~ " + c);
+            }
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public final class CompactJsonPointerTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private final JsonNode testData;
+    private final JsonNode document;
+
+    public CompactJsonPointerTest()
+        throws IOException
+    {
+        testData = JsonLoader.fromResource("/jsonpointer/jsonpointer.json");
+        document = testData.get("document");
+    }
+
+    @DataProvider
+    public Iterator<Object[]> illegalInputs()
+    {
+        return ImmutableList.of(
+            new Object[] { "a", "notSlash" },
+            new Object[] { "/~", "emptyEscape" },
+            new Object[] { "/a~/b", "emptyEscape" },
+            new Object[] { "/~2", "illegalEscape" }
+        ).iterator();
+    }
+
+    @Test(dataProvider = "illegalInputs")
+    public void illegalInputsAreRejected(final String input, final String key)
+    {
+        try {
+            CompactJsonPointer.of(input);
+            fail("No exception thrown!!");
+        } catch (JsonPointerException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage(key));
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> rawPointers()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+        final JsonNode testNode = testData.get("pointers");
+        final Map<String, JsonNode> map = JacksonUtils.asMap(testNode);
+
+        for (final Map.Entry<String, JsonNode> entry: map.entrySet())
+            list.add(new Object[] { entry.getKey(), entry.getValue() });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "rawPointers")
+    public void resolvingWorksLikeJsonPointer(final String input,
+        final JsonNode expected)
+        throws JsonPointerException
+    {
+        final JsonPointer pointer = new JsonPointer(input);
+        final CompactJsonPointer compact = CompactJsonPointer.of(input);
+
+        assertEquals(compact.get(document), expected);
+        assertEquals(compact, CompactJsonPointer.copyOf(pointer));
+        assertEquals(compact.hashCode(),
+            CompactJsonPointer.copyOf(pointer).hashCode());
+        assertEquals(compact.toJsonPointer(), pointer);
+        assertEquals(compact.size(), Lists.newArrayList(pointer).size());
+    }
+
+    @Test
+    public void escapedTokensAreDecoded()
+        throws JsonPointerException
+    {
+        final JsonPointer pointer = JsonPointer.of("a/b", "c~d", 1);
+        final CompactJsonPointer compact = CompactJsonPointer.copyOf(pointer);
+
+        assertEquals(compact.toString(), "/a~1b/c~0d/1");
+        assertEquals(compact.getRaw(0), "a/b");
+        assertEquals(compact.getRaw(1), "c~d");
+        assertEquals(compact.getRaw(2), "1");
+        assertEquals(compact.toJsonPointer(), pointer);
+        assertEquals(CompactJsonPointer.of("/a~1b/c~0d/1"), compact);
+    }
+
+    @Test(timeOut = 5000L)
+    public void deepPointersAreResolvedInLinearTime()
+        throws JsonPointerException
+    {
+        final int depth = 100000;
+        JsonNode node = JacksonUtils.nodeFactory().objectNode()
+            .put("b/c", true);
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < depth; i++) {
+            node = JacksonUtils.nodeFactory().objectNode().set("a", node);
+            sb.append("/a");
+        }
+
+        final CompactJsonPointer compact
+            = CompactJsonPointer.of(sb.append("/b~1c").toString());
+
+        assertTrue(compact.get(node).booleanValue());
+        assertEquals(compact.getRaw(depth - 1), "a");
+        assertEquals(compact.getRaw(depth), "b/c");
+    }
+
+    @Test
+    public void missingValuesAreReported()
+        throws JsonPointerException
+    {
+        final CompactJsonPointer compact = CompactJsonPointer.of("/foo/2/x");
+
+        assertNull(compact.get(document));
+        assertSame(compact.path(document), MissingNode.getInstance());
+        assertNull(CompactJsonPointer.of("/foo/01").get(document));
+    }
+
+    @Test
+    public void emptyPointerReturnsDocument()
+        throws JsonPointerException
+    {
+        final CompactJsonPointer compact = CompactJsonPointer.of("");
+
+        assertTrue(compact.isEmpty());
+        assertSame(compact, CompactJsonPointer.empty());
+        assertSame(compact.get(document), document);
+        assertEquals(compact.toJsonPointer(), JsonPointer.empty());
+        assertSame(CompactJsonPointer.copyOf(JsonPointer.empty()), compact);
+    }
+}
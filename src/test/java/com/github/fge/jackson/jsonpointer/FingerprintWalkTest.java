@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public final class FingerprintWalkTest
+{
+    @Test
+    public void collidingFingerprintsAreConfirmed()
+        throws IOException
+    {
+        final JsonNode source = JsonLoader.fromString("{\"a\":[1,2]}");
+        final JsonNode target = JsonLoader.fromString("{\"a\":[1,3.0]}");
+
+        /*
+         * Make both documents, and both arrays, collide
+         */
+        final Map<JsonNode, Long> cache = Maps.newIdentityHashMap();
+        cache.put(source, 0L);
+        cache.put(target, 0L);
+        cache.put(source.get("a"), 1L);
+        cache.put(target.get("a"), 1L);
+
+        final Recorder recorder = new Recorder(cache);
+        recorder.run(source, target);
+        assertEquals(recorder.pointers, ImmutableList.of("/a/1"));
+    }
+
+    @Test
+    public void differencesAreReportedInDocumentOrder()
+        throws IOException
+    {
+        final JsonNode source = JsonLoader.fromString(
+            "{\"a\":1,\"b\":[true,false],\"c\":{}}");
+        final JsonNode target = JsonLoader.fromString(
+            "{\"b\":[true],\"a\":1.0,\"c\":[],\"d\":null}");
+        final Map<JsonNode, Long> cache = Maps.newIdentityHashMap();
+
+        final Recorder recorder = new Recorder(cache);
+        recorder.run(source, target);
+        assertEquals(recorder.pointers, ImmutableList.of("/b/1", "/c", "/d"));
+    }
+
+    private static final class Recorder
+        extends FingerprintWalk
+    {
+        private final List<String> pointers = Lists.newArrayList();
+
+        private Recorder(final Map<JsonNode, Long> cache)
+        {
+            super(cache, cache);
+        }
+
+        @Override
+        void changed(final Step step)
+        {
+            pointers.add(step.targetPath.toString());
+        }
+
+        @Override
+        void added(final Step step)
+        {
+            pointers.add(step.targetPath.toString());
+        }
+
+        @Override
+        void removed(final Step step)
+        {
+            pointers.add(step.sourcePath.toString());
+        }
+
+        @Override
+        void compareArrays(final Step step, final List<Step> steps)
+        {
+            final int min = Math.min(step.source.size(), step.target.size());
+            LinkedJsonPointer ptr;
+
+            for (int i = 0; i < min; i++) {
+                ptr = step.path.append(i);
+                steps.add(Step.compare(ptr, ptr, ptr, step.source.get(i),
+                    step.target.get(i)));
+            }
+            for (int i = min; i < step.source.size(); i++) {
+                ptr = step.path.append(i);
+                steps.add(Step.remove(ptr, ptr));
+            }
+            for (int i = min; i < step.target.size(); i++) {
+                ptr = step.path.append(i);
+                steps.add(Step.add(ptr, ptr, step.target.get(i)));
+            }
+        }
+    }
+}
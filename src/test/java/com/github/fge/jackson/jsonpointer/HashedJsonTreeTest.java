@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JsonFingerprint;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class HashedJsonTreeTest
+{
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    private final HashedJsonTree tree;
+
+    public HashedJsonTreeTest()
+        throws IOException
+    {
+        tree = HashedJsonTree.of(JsonLoader.fromString("{\"a\":{\"b\":[1,2,"
+            + "{\"c\":\"x\"}],\"d\":true},\"e\":{\"f\":null},\"g\":[]}"));
+    }
+
+    @Test
+    public void fingerprintIsTheFingerprintOfTheDocument()
+        throws JsonPointerException
+    {
+        assertEquals(tree.fingerprint(),
+            JsonFingerprint.of(tree.getRoot()));
+
+        final HashedJsonTree modified = tree.replace(
+            new JsonPointer("/a/b/2/c"), FACTORY.textNode("y"));
+
+        assertEquals(modified.fingerprint(),
+            JsonFingerprint.of(modified.getRoot()));
+        assertNotEquals(modified.fingerprint(), tree.fingerprint());
+        assertSame(modified.getRoot().get("e"), tree.getRoot().get("e"));
+    }
+
+    @Test
+    public void equivalenceIsDetected()
+        throws IOException, JsonPointerException
+    {
+        final HashedJsonTree reordered = HashedJsonTree.of(JsonLoader
+            .fromString("{\"g\":[],\"e\":{\"f\":null},\"a\":{\"d\":true,"
+            + "\"b\":[1.0,2,{\"c\":\"x\"}]}}"));
+        final JsonPointer ptr = new JsonPointer("/a/d");
+
+        assertTrue(tree.isEquivalentTo(tree));
+        assertTrue(tree.isEquivalentTo(reordered));
+        assertTrue(reordered.isEquivalentTo(tree));
+        assertFalse(tree.isEquivalentTo(tree.replace(ptr,
+            FACTORY.booleanNode(false))));
+        assertTrue(tree.isEquivalentTo(tree.replace(ptr,
+            FACTORY.booleanNode(false)).replace(ptr,
+            FACTORY.booleanNode(true))));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> changes()
+        throws IOException
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "replace", "/a/b/2/c", "\"y\"",
+            ImmutableList.of("/a/b/2/c") });
+        list.add(new Object[] { "replace", "/a/b/0", "1.0",
+            ImmutableList.of() });
+        list.add(new Object[] { "add", "/a/b/-", "3",
+            ImmutableList.of("/a/b/3") });
+        list.add(new Object[] { "add", "/a/b/0", "0",
+            ImmutableList.of("/a/b/0", "/a/b/1", "/a/b/2", "/a/b/3") });
+        list.add(new Object[] { "add", "/e/h", "{}",
+            ImmutableList.of("/e/h") });
+        list.add(new Object[] { "remove", "/a", null,
+            ImmutableList.of("/a") });
+        list.add(new Object[] { "replace", "/e", "[]",
+            ImmutableList.of("/e") });
+        list.add(new Object[] { "replace", "", "[]",
+            ImmutableList.of("") });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "changes")
+    public void changesAreReported(final String op, final String path,
+        final String value, final List<String> expected)
+        throws IOException, JsonPointerException
+    {
+        final JsonPointer ptr = new JsonPointer(path);
+        final HashedJsonTree modified;
+
+        if (op.equals("remove"))
+            modified = tree.remove(ptr);
+        else if (op.equals("add"))
+            modified = tree.add(ptr, JsonLoader.fromString(value));
+        else
+            modified = tree.replace(ptr, JsonLoader.fromString(value));
+
+        final List<String> changes = Lists.newArrayList();
+        for (final JsonPointer pointer: tree.changes(modified))
+            changes.add(pointer.toString());
+
+        assertEquals(changes, expected);
+        assertEquals(modified.isEquivalentTo(tree), expected.isEmpty());
+    }
+
+    @DataProvider
+    public Iterator<Object[]> collidingNumbers()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "{\"a\":{\"x\":9007199254740993}}",
+            "{\"a\":{\"x\":9007199254740992}}", "/a/x" });
+        list.add(new Object[] { "{\"a\":0.1000000000000000000001}",
+            "{\"a\":0.1}", "/a" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "collidingNumbers")
+    public void numbersRoundingToTheSameDoubleAreChanges(final String input1,
+        final String input2, final String pointer)
+        throws IOException, JsonPointerException
+    {
+        final HashedJsonTree tree1
+            = HashedJsonTree.of(JsonLoader.fromString(input1));
+        final HashedJsonTree tree2
+            = HashedJsonTree.of(JsonLoader.fromString(input2));
+
+        assertFalse(tree1.isEquivalentTo(tree2));
+        assertEquals(tree1.changes(tree2),
+            ImmutableList.of(new JsonPointer(pointer)));
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.jackson.JsonNumEquals;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public final class JsonDiffTest
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    @DataProvider
+    public Iterator<Object[]> getDiffs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[]{ "{\"a\":1}", "{\"a\":1.0}", "[]", "[]", "[]" });
+        list.add(new Object[]{ "1", "2", "[]", "[]", "[\"\"]" });
+        list.add(new Object[]{ "{\"a\":1,\"b\":2}", "{\"b\":3,\"c\":4}",
+            "[\"/c\"]", "[\"/a\"]", "[\"/b\"]" });
+        list.add(new Object[]{ "[1,2,3]", "[0,1,2,3]", "[\"/0\"]", "[]",
+            "[]" });
+        list.add(new Object[]{ "[1,2,3]", "[1,3]", "[]", "[\"/1\"]", "[]" });
+        list.add(new Object[]{ "[1,2,3,4]", "[1,5,3,4]", "[]", "[]",
+            "[\"/1\"]" });
+        list.add(new Object[]{ "[{\"a\":1},{\"b\":2}]",
+            "[{\"b\":2},{\"a\":1}]", "[\"/1\"]", "[\"/0\"]", "[]" });
+        list.add(new Object[]{ "{\"a\":[1,{\"b\":true}]}",
+            "{\"a\":[1,{\"b\":false}]}", "[]", "[]", "[\"/a/1/b\"]" });
+        list.add(new Object[]{ "{\"a\":[]}", "{\"a\":{}}", "[]", "[]",
+            "[\"/a\"]" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getDiffs")
+    public void differencesAreReported(final String source,
+        final String target, final String added, final String removed,
+        final String changed)
+        throws IOException, JsonPointerException
+    {
+        final JsonDiff diff = JsonDiff.between(JsonLoader.fromString(source),
+            JsonLoader.fromString(target));
+
+        assertEquals(diff.getAdded(), pointers(added));
+        assertEquals(diff.getRemoved(), pointers(removed));
+        assertEquals(diff.getChanged(), pointers(changed));
+        assertEquals(diff.isEmpty(), diff.asJsonPatch().size() == 0);
+    }
+
+    @Test(dataProvider = "getDiffs")
+    public void patchTurnsSourceIntoTarget(final String source,
+        final String target, final String added, final String removed,
+        final String changed)
+        throws IOException, JsonPointerException
+    {
+        checkPatch(JsonLoader.fromString(source),
+            JsonLoader.fromString(target));
+    }
+
+    @Test
+    public void patchTurnsRandomSourceIntoRandomTarget()
+        throws JsonPointerException
+    {
+        final Random random = new Random(0L);
+        JsonNode source, target;
+
+        for (int i = 0; i < 500; i++) {
+            source = randomValue(random, 3);
+            target = random.nextBoolean() ? randomValue(random, 3)
+                : mutate(random, source);
+            checkPatch(source, target);
+        }
+    }
+
+    @Test
+    public void patchOperationsAreWellFormed()
+        throws IOException
+    {
+        final JsonNode patch = JsonDiff.between(
+            JsonLoader.fromString("{\"a\":[1,2],\"b\":1}"),
+            JsonLoader.fromString("{\"a\":[1],\"b\":2,\"c\":null}"))
+            .asJsonPatch();
+
+        assertEquals(patch, JsonLoader.fromString("["
+            + "{\"op\":\"remove\",\"path\":\"/a/1\"},"
+            + "{\"op\":\"replace\",\"path\":\"/b\",\"value\":2},"
+            + "{\"op\":\"add\",\"path\":\"/c\",\"value\":null}]"));
+    }
+
+    @Test(timeOut = 10000L)
+    public void largeArraysAreDiffedQuickly()
+        throws JsonPointerException
+    {
+        final ArrayNode source = FACTORY.arrayNode();
+        ObjectNode element;
+
+        for (int i = 0; i < 100000; i++) {
+            element = source.addObject();
+            element.put("id", i);
+            element.put("name", "element " + i);
+        }
+
+        final ArrayNode target = source.deepCopy();
+        for (int i = 0; i < 100; i++)
+            target.remove(500 + i * 999);
+        for (int i = 0; i < 100; i++)
+            target.insert(i * 1000, FACTORY.textNode("new " + i));
+        ((ObjectNode) target.get(50250)).put("name", "changed");
+
+        final JsonDiff diff = JsonDiff.between(source, target);
+
+        assertEquals(diff.getAdded().size(), 100);
+        assertEquals(diff.getRemoved().size(), 100);
+        assertEquals(diff.getChanged().size(), 1);
+        checkPatch(source, target);
+    }
+
+    private static void checkPatch(final JsonNode source,
+        final JsonNode target)
+        throws JsonPointerException
+    {
+        JsonNode node = source;
+        JsonPointer pointer;
+
+        for (final JsonNode operation: JsonDiff.between(source, target)
+            .asJsonPatch()) {
+            pointer = new JsonPointer(operation.get("path").textValue());
+            final String op = operation.get("op").textValue();
+            if ("add".equals(op))
+                node = pointer.add(node, operation.get("value"));
+            else if ("replace".equals(op))
+                node = pointer.replace(node, operation.get("value"));
+            else
+                node = pointer.remove(node);
+        }
+
+        assertTrue(JsonNumEquals.getInstance().equivalent(node, target),
+            "patched source " + node + " differs from target " + target);
+    }
+
+    private static List<JsonPointer> pointers(final String input)
+        throws IOException, JsonPointerException
+    {
+        final List<JsonPointer> ret = Lists.newArrayList();
+        for (final JsonNode node: JsonLoader.fromString(input))
+            ret.add(new JsonPointer(node.textValue()));
+        return ImmutableList.copyOf(ret);
+    }
+
+    private static JsonNode randomValue(final Random random, final int depth)
+    {
+        final int type = random.nextInt(depth == 0 ? 3 : 5);
+        switch (type) {
+            case 0:
+                return FACTORY.numberNode(random.nextInt(4));
+            case 1:
+                return FACTORY.textNode("s" + random.nextInt(4));
+            case 2:
+                return FACTORY.nullNode();
+            case 3:
+                final ArrayNode array = FACTORY.arrayNode();
+                for (int i = random.nextInt(6); i > 0; i--)
+                    array.add(randomValue(random, depth - 1));
+                return array;
+            default:
+                final ObjectNode object = FACTORY.objectNode();
+                for (int i = random.nextInt(4); i > 0; i--)
+                    object.set("k" + random.nextInt(5),
+                        randomValue(random, depth - 1));
+                return object;
+        }
+    }
+
+    private static JsonNode mutate(final Random random, final JsonNode node)
+    {
+        if (!node.isContainerNode() || random.nextInt(4) == 0)
+            return randomValue(random, 2);
+
+        if (node.isObject()) {
+            final ObjectNode ret = FACTORY.objectNode();
+            final Iterator<String> names = node.fieldNames();
+            String name;
+            while (names.hasNext()) {
+                name = names.next();
+                if (random.nextInt(5) != 0)
+                    ret.set(name, mutate(random, node.get(name)));
+            }
+            if (random.nextBoolean())
+                ret.set("k" + random.nextInt(5), randomValue(random, 1));
+            return ret;
+        }
+
+        final ArrayNode ret = FACTORY.arrayNode();
+        for (final JsonNode element: node) {
+            if (random.nextInt(4) == 0)
+                ret.add(randomValue(random, 1));
+            if (random.nextInt(5) != 0)
+                ret.add(random.nextBoolean() ? element
+                    : mutate(random, element));
+        }
+        return ret;
+    }
+}
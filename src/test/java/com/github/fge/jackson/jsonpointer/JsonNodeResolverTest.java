@@ -101,6 +101,22 @@ public final class JsonNodeResolverTest
         assertEquals(target, resolver.get(node));
     }
 
+    @Test
+    public void sameResolverWorksForBothObjectsAndArrays()
+    {
+        final JsonNodeResolver resolver
+            = new JsonNodeResolver(ReferenceToken.fromInt(0));
+        final JsonNode target = FACTORY.textNode("b");
+
+        final ObjectNode object = FACTORY.objectNode();
+        object.put("0", target);
+        assertSame(resolver.get(object), target);
+
+        final ArrayNode array = FACTORY.arrayNode();
+        array.add(target);
+        assertSame(resolver.get(array), target);
+    }
+
     @DataProvider
     public Iterator<Object[]> invalidIndices()
     {
@@ -111,6 +127,9 @@ public final class JsonNodeResolverTest
         list.add(new Object[] { "00" });
         list.add(new Object[] { "0 " });
         list.add(new Object[] { " 0" });
+        list.add(new Object[] { "+1" });
+        list.add(new Object[] { "2147483648" });
+        list.add(new Object[] { "1a" });
 
         return list.iterator();
     }
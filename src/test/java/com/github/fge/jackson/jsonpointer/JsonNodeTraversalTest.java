@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.*;
+
+public final class JsonNodeTraversalTest
+{
+    private final JsonNode document;
+
+    public JsonNodeTraversalTest()
+        throws IOException
+    {
+        document = JsonLoader.fromString("{\"a\":[1,{\"b~/\":null},[]],"
+            + "\"c\":{},\"d\":\"e\"}");
+    }
+
+    @Test
+    public void allNodesAreEnumeratedInDocumentOrder()
+        throws JsonPointerException
+    {
+        final List<JsonPointer> expected = ImmutableList.of(
+            JsonPointer.empty(),
+            new JsonPointer("/a"),
+            new JsonPointer("/a/0"),
+            new JsonPointer("/a/1"),
+            new JsonPointer("/a/1/b~0~1"),
+            new JsonPointer("/a/2"),
+            new JsonPointer("/c"),
+            new JsonPointer("/d")
+        );
+
+        final List<JsonPointer> actual = Lists.newArrayList();
+
+        for (final Map.Entry<JsonPointer, JsonNode> entry:
+            JsonNodeTraversal.allNodes(document)) {
+            assertSame(entry.getKey().get(document), entry.getValue());
+            actual.add(entry.getKey());
+        }
+
+        assertEquals(actual, expected);
+        for (int i = 0; i < actual.size(); i++)
+            assertEquals(actual.get(i).hashCode(), expected.get(i).hashCode());
+    }
+
+    @Test
+    public void leavesIncludeEmptyContainers()
+        throws JsonPointerException
+    {
+        final List<JsonPointer> expected = ImmutableList.of(
+            new JsonPointer("/a/0"),
+            new JsonPointer("/a/1/b~0~1"),
+            new JsonPointer("/a/2"),
+            new JsonPointer("/c"),
+            new JsonPointer("/d")
+        );
+
+        final List<JsonPointer> actual = Lists.newArrayList();
+
+        for (final Map.Entry<JsonPointer, JsonNode> entry:
+            JsonNodeTraversal.leaves(document))
+            actual.add(entry.getKey());
+
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void scalarDocumentIsItsOwnLeaf()
+        throws IOException
+    {
+        final JsonNode node = JsonLoader.fromString("3");
+        final List<Map.Entry<JsonPointer, JsonNode>> entries
+            = Lists.newArrayList(JsonNodeTraversal.leaves(node));
+
+        assertEquals(entries.size(), 1);
+        assertEquals(entries.get(0).getKey(), JsonPointer.empty());
+        assertSame(entries.get(0).getValue(), node);
+    }
+
+    @Test
+    public void splitTraversalsEnumerateTheSameEntries()
+    {
+        for (final JsonNodeTraversal traversal: ImmutableList.of(
+            JsonNodeTraversal.allNodes(document),
+            JsonNodeTraversal.leaves(document))) {
+            final List<Map.Entry<JsonPointer, JsonNode>> expected
+                = Lists.newArrayList(traversal);
+            final List<Map.Entry<JsonPointer, JsonNode>> actual
+                = Lists.newArrayList();
+            for (final JsonNodeTraversal part: traversal.split())
+                for (final JsonNodeTraversal subPart: part.split())
+                    actual.addAll(Lists.newArrayList(subPart));
+            assertEquals(actual, expected);
+        }
+    }
+
+    @Test(timeOut = 30000L)
+    public void splitTraversalsCanBeWalkedByConcurrentThreads()
+        throws InterruptedException, ExecutionException
+    {
+        final ArrayNode elements = JacksonUtils.nodeFactory().arrayNode();
+        ObjectNode element;
+
+        for (int i = 0; i < 64; i++) {
+            element = elements.addObject();
+            element.putArray("c").add(i).add(true);
+            element.putObject("d").putObject("e").putNull("f");
+        }
+
+        final JsonNode node = JacksonUtils.nodeFactory().objectNode()
+            .set("a", JacksonUtils.nodeFactory().objectNode()
+                .set("b", elements));
+        final List<JsonPointer> expected = Lists.newArrayList();
+
+        for (final Map.Entry<JsonPointer, JsonNode> entry:
+            JsonNodeTraversal.allNodes(node))
+            expected.add(entry.getKey());
+
+        final int nrThreads = 8;
+        final ExecutorService executor
+            = Executors.newFixedThreadPool(nrThreads);
+
+        try {
+            for (int round = 0; round < 50; round++) {
+                final List<JsonNodeTraversal> parts = Lists.newArrayList();
+                splitAll(JsonNodeTraversal.allNodes(node), 4, parts);
+                final CountDownLatch start = new CountDownLatch(1);
+                final List<Future<List<JsonPointer>>> futures
+                    = Lists.newArrayList();
+                for (int i = 0; i < nrThreads; i++)
+                    futures.add(executor.submit(
+                        new Callable<List<JsonPointer>>()
+                        {
+                            @Override
+                            public List<JsonPointer> call()
+                                throws InterruptedException
+                            {
+                                start.await();
+                                return walk(node, parts);
+                            }
+                        }));
+                start.countDown();
+                for (final Future<List<JsonPointer>> future: futures)
+                    assertEquals(future.get(), expected);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void splitAll(final JsonNodeTraversal traversal,
+        final int depth, final List<JsonNodeTraversal> parts)
+    {
+        final List<JsonNodeTraversal> split = traversal.split();
+
+        if (depth == 0 || split.size() == 1) {
+            parts.addAll(split);
+            return;
+        }
+
+        for (final JsonNodeTraversal part: split)
+            splitAll(part, depth - 1, parts);
+    }
+
+    private static List<JsonPointer> walk(final JsonNode node,
+        final List<JsonNodeTraversal> parts)
+    {
+        final List<JsonPointer> ret = Lists.newArrayList();
+        JsonPointer pointer;
+
+        for (final JsonNodeTraversal part: parts)
+            for (final Map.Entry<JsonPointer, JsonNode> entry: part) {
+                pointer = entry.getKey();
+                assertSame(pointer.get(node), entry.getValue());
+                ret.add(pointer);
+            }
+
+        return ret;
+    }
+
+    @Test(timeOut = 10000L)
+    public void pointersOfDeepChainsAreBuiltInLinearTime()
+    {
+        final int depth = 100000;
+        JsonNode node = JacksonUtils.nodeFactory().nullNode();
+
+        for (int i = 0; i < depth; i++)
+            node = JacksonUtils.nodeFactory().objectNode().set("a", node);
+
+        JsonPointer last = null;
+        JsonNode value = null;
+        int count = 0;
+
+        for (final Map.Entry<JsonPointer, JsonNode> entry:
+            JsonNodeTraversal.allNodes(node)) {
+            last = entry.getKey();
+            value = entry.getValue();
+            count++;
+        }
+
+        assertSame(last.get(node), value);
+        assertTrue(value.isNull());
+        assertEquals(count, depth + 1);
+    }
+
+    @Test
+    public void pointersOfSiblingsDoNotShareTokens()
+        throws IOException, JsonPointerException
+    {
+        final JsonNode node
+            = JsonLoader.fromString("{\"a\":{\"b\":{\"c\":1},\"d\":2}}");
+        final List<JsonPointer> actual = Lists.newArrayList();
+
+        for (final Map.Entry<JsonPointer, JsonNode> entry:
+            JsonNodeTraversal.allNodes(node))
+            actual.add(entry.getKey());
+
+        assertEquals(actual, ImmutableList.of(JsonPointer.empty(),
+            new JsonPointer("/a"), new JsonPointer("/a/b"),
+            new JsonPointer("/a/b/c"), new JsonPointer("/a/d")));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public final class JsonPointerAccessorTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private final JsonNode testData;
+    private final JsonNode document;
+
+    public JsonPointerAccessorTest()
+        throws IOException
+    {
+        testData = JsonLoader.fromResource("/jsonpointer/jsonpointer.json");
+        document = testData.get("document");
+    }
+
+    @Test
+    public void cannotCompileNullPointer()
+    {
+        try {
+            JsonPointerAccessor.compile(null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage("nullInput"));
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> rawPointers()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+        final JsonNode testNode = testData.get("pointers");
+        final Map<String, JsonNode> map = JacksonUtils.asMap(testNode);
+
+        for (final Map.Entry<String, JsonNode> entry: map.entrySet())
+            list.add(new Object[] { entry.getKey(), entry.getValue() });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "rawPointers")
+    public void accessorsResolveLikePointers(final String input,
+        final JsonNode expected)
+        throws JsonPointerException
+    {
+        final JsonPointer pointer = new JsonPointer(input);
+        final JsonPointerAccessor accessor
+            = JsonPointerAccessor.compile(pointer);
+
+        assertSame(accessor.getPointer(), pointer);
+        assertEquals(accessor.get(document), expected);
+        assertSame(accessor.get(document), pointer.get(document));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> missingPaths()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "/foo/2" });
+        list.add(new Object[] { "/foo/-1" });
+        list.add(new Object[] { "/foo/01" });
+        list.add(new Object[] { "/foo/bar" });
+        list.add(new Object[] { "/foo/0/x" });
+        list.add(new Object[] { "/nope" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "missingPaths")
+    public void missingValuesAreReported(final String input)
+        throws JsonPointerException
+    {
+        final JsonPointer pointer = new JsonPointer(input);
+        final JsonPointerAccessor accessor
+            = JsonPointerAccessor.compile(pointer);
+
+        assertNull(pointer.get(document));
+        assertNull(accessor.get(document));
+        assertSame(accessor.path(document), MissingNode.getInstance());
+    }
+
+    @Test
+    public void nullDocumentYieldsNull()
+        throws JsonPointerException
+    {
+        assertNull(JsonPointerAccessor.compile(new JsonPointer("/a"))
+            .get(null));
+    }
+}
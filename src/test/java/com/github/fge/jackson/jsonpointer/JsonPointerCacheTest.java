@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public final class JsonPointerCacheTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    @Test
+    public void cannotBuildCacheWithNegativeSize()
+    {
+        try {
+            new JsonPointerCache(-1L);
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(),
+                BUNDLE.getMessage("negativeCacheSize"));
+        }
+    }
+
+    @Test
+    public void cannotGetNullInput()
+        throws JsonPointerException
+    {
+        try {
+            new JsonPointerCache(1L).get(null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage("nullInput"));
+        }
+    }
+
+    @Test
+    public void sameInputYieldsSameInstance()
+        throws JsonPointerException
+    {
+        final JsonPointerCache cache = new JsonPointerCache(16L);
+        final JsonPointer ptr = cache.get("/a/b");
+
+        assertEquals(ptr, new JsonPointer("/a/b"));
+        assertSame(cache.get("/a/b"), ptr);
+        assertEquals(cache.missCount(), 1L);
+        assertEquals(cache.hitCount(), 1L);
+    }
+
+    @Test
+    public void illegalInputsAreReportedAndNotCached()
+    {
+        final JsonPointerCache cache = new JsonPointerCache(16L);
+
+        for (int i = 0; i < 2; i++)
+            try {
+                cache.get("a/b");
+                fail("No exception thrown!!");
+            } catch (JsonPointerException e) {
+                assertEquals(e.getMessage(), BUNDLE.getMessage("notSlash"));
+            }
+
+        assertEquals(cache.size(), 0L);
+        assertEquals(cache.missCount(), 2L);
+    }
+
+    @Test
+    public void cacheSizeIsBounded()
+        throws JsonPointerException
+    {
+        final JsonPointerCache cache = new JsonPointerCache(4L);
+
+        for (int i = 0; i < 100; i++)
+            cache.get("/" + i);
+
+        assertTrue(cache.size() <= 4L);
+        assertTrue(cache.stats().evictionCount() >= 96L);
+    }
+
+    @Test
+    public void compiledPointersAreShared()
+        throws JsonPointerException
+    {
+        final JsonPointer ptr = JsonPointer.compile("/x/y/0");
+
+        assertEquals(ptr, JsonPointer.of("x", "y", 0));
+        assertSame(JsonPointer.compile("/x/y/0"), ptr);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public final class JsonPointerIndexTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private final JsonNode testData;
+    private final JsonNode document;
+    private final JsonPointerIndex index;
+
+    public JsonPointerIndexTest()
+        throws IOException
+    {
+        testData = JsonLoader.fromResource("/jsonpointer/jsonpointer.json");
+        document = testData.get("document");
+        index = JsonPointerIndex.of(document);
+    }
+
+    @Test
+    public void cannotBuildIndexWithNegativeDepth()
+    {
+        try {
+            JsonPointerIndex.of(document, -1);
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage("negativeDepth"));
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> rawPointers()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+        final JsonNode testNode = testData.get("pointers");
+        final Map<String, JsonNode> map = JacksonUtils.asMap(testNode);
+
+        for (final Map.Entry<String, JsonNode> entry: map.entrySet())
+            list.add(new Object[] { entry.getKey(), entry.getValue() });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "rawPointers")
+    public void indexLookupsWork(final String input, final JsonNode expected)
+        throws JsonPointerException
+    {
+        assertEquals(index.get(input), expected);
+        assertEquals(index.get(new JsonPointer(input)), expected);
+    }
+
+    @Test
+    public void allValuesAreIndexed()
+    {
+        /*
+         * The document itself, its 10 members and the 2 elements of /foo
+         */
+        assertEquals(index.size(), 13);
+        assertTrue(index.estimatedMemoryUsage() > 0L);
+        assertNull(index.get("/foo/2"));
+    }
+
+    @Test
+    public void depthLimitedIndexStopsAtMaximumDepth()
+    {
+        final JsonPointerIndex limited = JsonPointerIndex.of(document, 1);
+
+        assertEquals(limited.size(), 11);
+        assertEquals(limited.getMaxDepth(), 1);
+        assertSame(limited.get("/foo"), document.get("foo"));
+        assertNull(limited.get("/foo/0"));
+        assertTrue(limited.estimatedMemoryUsage()
+            < index.estimatedMemoryUsage());
+    }
+
+    @Test
+    public void invalidPointersAreNotFound()
+    {
+        assertNull(index.get("foo"));
+        assertNull(index.get("/foo~2"));
+    }
+
+    @Test(timeOut = 10000L)
+    public void indexOfDeepChainIsBuiltInLinearTime()
+        throws JsonPointerException
+    {
+        final int depth = 50000;
+        JsonNode node = JacksonUtils.nodeFactory().nullNode();
+
+        for (int i = 0; i < depth; i++)
+            node = JacksonUtils.nodeFactory().objectNode().set("a", node);
+
+        final JsonPointerIndex deepIndex = JsonPointerIndex.of(node);
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            sb.append("/a");
+        final JsonPointer pointer = new JsonPointer(sb.toString());
+
+        assertEquals(deepIndex.size(), depth + 1);
+        assertTrue(deepIndex.get(pointer).isNull());
+    }
+}
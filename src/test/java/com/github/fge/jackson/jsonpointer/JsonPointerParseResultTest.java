@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package com.github.fge.jackson.jsonpointer;
+
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+
+import static org.testng.Assert.*;
+
+public final class JsonPointerParseResultTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    @Test
+    public void cannotParseNull()
+    {
+        try {
+            JsonPointer.tryParse(null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage("nullInput"));
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> illegalInputs()
+    {
+        return ImmutableList.of(
+            new Object[] { "a", "notSlash", 0 },
+            new Object[] { "/~", "emptyEscape", 1 },
+            new Object[] { "/a~/b", "emptyEscape", 2 },
+            new Object[] { "/foo/b~2r", "illegalEscape", 6 },
+            new Object[] { "/~0~1/~x", "illegalEscape", 6 }
+        ).iterator();
+    }
+
+    @Test(dataProvider = "illegalInputs")
+    public void failuresAreReportedWithoutThrowing(final String input,
+        final String key, final int position)
+    {
+        final JsonPointerParseResult result = JsonPointer.tryParse(input);
+
+        assertFalse(result.isValid());
+        assertNull(result.getPointer());
+        assertEquals(result.getMessage(), BUNDLE.getMessage(key));
+        assertEquals(result.getPosition(), position);
+    }
+
+    @Test(dataProvider = "illegalInputs")
+    public void failuresMatchExceptionMessages(final String input,
+        final String key, final int position)
+    {
+        try {
+            new JsonPointer(input);
+            fail("No exception thrown!!");
+        } catch (JsonPointerException e) {
+            assertEquals(e.getMessage(),
+                JsonPointer.tryParse(input).getMessage());
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> legalInputs()
+    {
+        return ImmutableList.of(
+            new Object[] { "" },
+            new Object[] { "/" },
+            new Object[] { "/a~0b/c~1d" },
+            new Object[] { "/foo/0/~01" }
+        ).iterator();
+    }
+
+    @Test(dataProvider = "legalInputs")
+    public void validInputsAreParsed(final String input)
+        throws JsonPointerException
+    {
+        final JsonPointerParseResult result = JsonPointer.tryParse(input);
+
+        assertTrue(result.isValid());
+        assertEquals(result.getPointer(), new JsonPointer(input));
+        assertNull(result.getMessage());
+        assertEquals(result.getPosition(), -1);
+    }
+
+    @Test
+    public void exceptionsHaveStackTracesByDefault()
+    {
+        assertFalse(JsonPointerException.isStackless());
+        assertTrue(new JsonPointerException("foo").getStackTrace().length > 0);
+    }
+}
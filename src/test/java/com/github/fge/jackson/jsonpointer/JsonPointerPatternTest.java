@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public final class JsonPointerPatternTest
+{
+    private static final String INPUT = "{\"items\":[{\"price\":1,\"id\":\"a\"},"
+        + "{\"id\":\"b\"},{\"price\":3}],\"meta\":{\"id\":\"m\",\"x\":[]}}";
+
+    private final JsonNode document;
+
+    public JsonPointerPatternTest()
+        throws IOException
+    {
+        document = JsonLoader.fromString(INPUT);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> patterns()
+    {
+        return ImmutableList.of(
+            new Object[] { "/items/*/price",
+                ImmutableList.of("/items/0/price", "/items/2/price") },
+            new Object[] { "/*/id", ImmutableList.of("/meta/id") },
+            new Object[] { "/*/*/id",
+                ImmutableList.of("/items/0/id", "/items/1/id") },
+            new Object[] { "/items/1", ImmutableList.of("/items/1") },
+            new Object[] { "/items/*/*/*", ImmutableList.<String>of() },
+            new Object[] { "/meta/x/*", ImmutableList.<String>of() },
+            new Object[] { "", ImmutableList.of("") }
+        ).iterator();
+    }
+
+    @Test(dataProvider = "patterns")
+    public void patternsMatchInMemory(final String input,
+        final List<String> expected)
+        throws JsonPointerException
+    {
+        final JsonPointerPattern pattern = new JsonPointerPattern(input);
+        final Map<JsonPointer, JsonNode> matches = pattern.get(document);
+        final List<String> actual = Lists.newArrayList();
+
+        for (final Map.Entry<JsonPointer, JsonNode> entry: matches.entrySet()) {
+            assertSame(entry.getKey().get(document), entry.getValue());
+            assertTrue(pattern.matches(entry.getKey()));
+            actual.add(entry.getKey().toString());
+        }
+
+        assertEquals(actual, expected);
+    }
+
+    @Test(dataProvider = "patterns")
+    public void patternsMatchOverStreams(final String input,
+        final List<String> expected)
+        throws JsonPointerException, IOException
+    {
+        final JsonPointerPattern pattern = new JsonPointerPattern(input);
+        final Map<JsonPointer, JsonNode> matches = Maps.newLinkedHashMap();
+
+        pattern.read(new StringReader(INPUT), new JsonPointerListener()
+        {
+            @Override
+            public void onMatch(final int index, final JsonPointer pointer,
+                final JsonNode value)
+            {
+                matches.put(pointer, value);
+            }
+        });
+
+        assertEquals(matches, pattern.get(document));
+        assertEquals(matches.size(), expected.size());
+    }
+
+    @Test
+    public void pointerMatchingWorks()
+        throws JsonPointerException
+    {
+        final JsonPointerPattern pattern = new JsonPointerPattern("/a/*/b");
+
+        assertTrue(pattern.matches(JsonPointer.of("a", 0, "b")));
+        assertTrue(pattern.matches(JsonPointer.of("a", "x", "b")));
+        assertFalse(pattern.matches(JsonPointer.of("a", 0)));
+        assertFalse(pattern.matches(JsonPointer.of("a", 0, "b", "c")));
+        assertFalse(pattern.matches(JsonPointer.of("b", 0, "b")));
+        assertEquals(pattern.toString(), "/a/*/b");
+    }
+}
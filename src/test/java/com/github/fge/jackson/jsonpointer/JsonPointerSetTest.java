@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public final class JsonPointerSetTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
+    private final JsonNode testData;
+    private final JsonNode document;
+
+    public JsonPointerSetTest()
+        throws IOException
+    {
+        testData = JsonLoader.fromResource("/jsonpointer/jsonpointer.json");
+        document = testData.get("document");
+    }
+
+    @Test
+    public void cannotBuildSetWithNullPointer()
+    {
+        try {
+            JsonPointerSet.of(JsonPointer.empty(), (JsonPointer) null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage("nullInput"));
+        }
+    }
+
+    @Test
+    public void setResolvesLikeIndividualPointers()
+        throws JsonPointerException
+    {
+        final List<JsonPointer> list = Lists.newArrayList();
+        final Iterator<String> iterator = testData.get("pointers").fieldNames();
+
+        while (iterator.hasNext())
+            list.add(new JsonPointer(iterator.next()));
+
+        list.add(JsonPointer.of("foo", 2));
+        list.add(JsonPointer.of("foo", "0"));
+        list.add(JsonPointer.of("foo", 0, "bar"));
+        list.add(JsonPointer.of("nope"));
+
+        final JsonPointerSet set = JsonPointerSet.copyOf(list);
+        final JsonNode[] results = set.get(document);
+
+        assertEquals(results.length, list.size());
+        for (int i = 0; i < results.length; i++)
+            assertEquals(results[i], list.get(i).get(document),
+                "mismatch for pointer " + list.get(i));
+    }
+
+    @Test
+    public void streamingMatchesInMemoryResolution()
+        throws JsonPointerException, IOException
+    {
+        final List<JsonPointer> list = Lists.newArrayList();
+        final Iterator<String> iterator = testData.get("pointers").fieldNames();
+
+        while (iterator.hasNext())
+            list.add(new JsonPointer(iterator.next()));
+
+        list.add(JsonPointer.of("foo", 2));
+        list.add(JsonPointer.of("nope"));
+
+        final JsonPointerSet set = JsonPointerSet.copyOf(list);
+        final JsonNode[] expected = set.get(document);
+        final JsonNode[] actual = new JsonNode[list.size()];
+
+        set.read(new StringReader(document.toString()),
+            new JsonPointerListener()
+            {
+                @Override
+                public void onMatch(final int index, final JsonPointer pointer,
+                    final JsonNode value)
+                {
+                    assertNull(actual[index], "reported twice: " + pointer);
+                    actual[index] = value;
+                }
+            });
+
+        assertEquals(actual, expected);
+    }
+
+    @Test
+    public void nestedMatchesAreReportedInnermostFirst()
+        throws IOException
+    {
+        final JsonPointerSet set = JsonPointerSet.of(JsonPointer.of("a"),
+            JsonPointer.of("a", "b", 1), JsonPointer.of("c"));
+        final List<Integer> order = Lists.newArrayList();
+        final String input = "{\"c\":0,\"a\":{\"b\":[1,2],\"x\":[]}}";
+
+        set.read(new StringReader(input), new JsonPointerListener()
+        {
+            @Override
+            public void onMatch(final int index, final JsonPointer pointer,
+                final JsonNode value)
+            {
+                order.add(index);
+            }
+        });
+
+        assertEquals(order, ImmutableList.of(2, 1, 0));
+    }
+
+    @Test
+    public void streamOfValuesCanBeRead()
+        throws IOException
+    {
+        final JsonPointerSet set = JsonPointerSet.of(JsonPointer.of("id"));
+        final List<JsonNode> ids = Lists.newArrayList();
+        final String input = "{\"x\":{\"id\":-1},\"id\":1} [] {\"id\":2}";
+        final JsonParser parser = JacksonUtils.getReader().getFactory()
+            .createParser(input);
+        final JsonPointerListener listener = new JsonPointerListener()
+        {
+            @Override
+            public void onMatch(final int index, final JsonPointer pointer,
+                final JsonNode value)
+            {
+                ids.add(value);
+            }
+        };
+
+        while (parser.nextToken() != null)
+            set.read(parser, listener);
+
+        assertEquals(ids, ImmutableList.of(FACTORY.numberNode(1),
+            FACTORY.numberNode(2)));
+    }
+
+    @Test
+    public void streamingUsesTheLastDuplicateMemberLikeTrees()
+        throws IOException
+    {
+        final JsonPointerSet set = JsonPointerSet.of(JsonPointer.of("a", "b"),
+            JsonPointer.of("a", "c"), JsonPointer.of("a"),
+            JsonPointer.of("d", 0, "e"));
+        final String input = "{\"a\":{\"b\":1,\"c\":2},\"d\":[{\"e\":3,"
+            + "\"e\":4}],\"a\":{\"b\":5,\"b\":6}}";
+        final Map<Integer, JsonNode> actual = Maps.newLinkedHashMap();
+
+        set.read(new StringReader(input), new JsonPointerListener()
+        {
+            @Override
+            public void onMatch(final int index, final JsonPointer pointer,
+                final JsonNode value)
+            {
+                assertNull(actual.put(index, value));
+            }
+        });
+
+        final JsonNode[] expected = set.get(JsonLoader.fromString(input));
+
+        assertEquals(actual.keySet(), ImmutableList.of(3, 0, 2));
+        for (final Map.Entry<Integer, JsonNode> entry: actual.entrySet())
+            assertEquals(entry.getValue(), expected[entry.getKey()]);
+        assertNull(expected[1]);
+    }
+
+    @Test
+    public void duplicatePointersAreResolvedAtEachIndex()
+        throws JsonPointerException
+    {
+        final JsonPointer ptr = new JsonPointer("/foo/1");
+        final JsonPointerSet set = JsonPointerSet.of(ptr, ptr);
+        final JsonNode[] results = set.get(document);
+
+        assertSame(results[0], document.get("foo").get(1));
+        assertSame(results[1], results[0]);
+    }
+
+    @Test
+    public void mapOnlyContainsResolvedPointers()
+        throws JsonPointerException
+    {
+        final JsonPointer found = new JsonPointer("/a~1b");
+        final JsonPointer missing = new JsonPointer("/a/b");
+        final JsonPointerSet set = JsonPointerSet.of(missing, found);
+        final Map<JsonPointer, JsonNode> map = set.getAsMap(document);
+
+        assertEquals(map.size(), 1);
+        assertEquals(map.get(found), document.get("a/b"));
+    }
+
+    @Test
+    public void resolvingNullYieldsNoResults()
+    {
+        final JsonNode[] results = JsonPointerSet.of(JsonPointer.empty())
+            .get(null);
+
+        assertEquals(results.length, 1);
+        assertNull(results[0]);
+    }
+}
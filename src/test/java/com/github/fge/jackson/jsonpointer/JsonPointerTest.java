@@ -20,6 +20,7 @@
 package com.github.fge.jackson.jsonpointer;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.github.fge.jackson.JacksonUtils;
 import com.github.fge.jackson.JsonLoader;
 import com.github.fge.jackson.NodeType;
@@ -31,8 +32,11 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
@@ -45,6 +49,8 @@ public final class JsonPointerTest
     private static final MessageBundle BUNDLE
         = MessageBundles.getBundle(JsonPointerMessages.class);
 
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+
     private final JsonNode testData;
     private final JsonNode document;
 
@@ -90,6 +96,70 @@ public final class JsonPointerTest
         assertEquals(pointer.get(document), expected);
     }
 
+    @Test(dataProvider = "rawPointers")
+    public void rawPointerStreamingWorks(final String input,
+        final JsonNode expected)
+        throws JsonPointerException, IOException
+    {
+        final JsonPointer pointer = new JsonPointer(input);
+        final Reader reader = new StringReader(document.toString());
+
+        assertEquals(pointer.read(reader), expected);
+    }
+
+    @Test
+    public void streamingMissingValuesYieldsNull()
+        throws IOException
+    {
+        final String input = "{\"a\":[{\"b\":1},2],\"c\":\"d\"}";
+
+        assertNull(JsonPointer.of("a", 2).read(new StringReader(input)));
+        assertNull(JsonPointer.of("a", "b").read(new StringReader(input)));
+        assertNull(JsonPointer.of("c", "d").read(new StringReader(input)));
+        assertNull(JsonPointer.of("e").read(new StringReader(input)));
+        assertEquals(JsonPointer.of("a", 0, "b")
+            .read(new StringReader(input)), FACTORY.numberNode(1));
+    }
+
+    @Test
+    public void streamingStopsOnceTargetIsRead()
+        throws IOException
+    {
+        final String input = "[{\"b\":[1,2]},[";
+        final JsonPointer ptr = JsonPointer.of(0);
+        final JsonNode expected = JsonLoader.fromString("{\"b\":[1,2]}");
+
+        assertEquals(ptr.read(new StringReader(input)), expected);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> duplicateMembers()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "{\"a\":1,\"a\":2}", JsonPointer.of("a") });
+        list.add(new Object[] { "{\"a\":{\"b\":1},\"a\":{\"c\":2}}",
+            JsonPointer.of("a", "b") });
+        list.add(new Object[] { "{\"a\":{\"b\":1},\"a\":{\"b\":3}}",
+            JsonPointer.of("a", "b") });
+        list.add(new Object[] { "{\"a\":[{\"b\":1,\"b\":[]}],\"c\":0}",
+            JsonPointer.of("a", 0, "b") });
+        list.add(new Object[] { "{\"a\":[0,1],\"x\":null,\"a\":[]}",
+            JsonPointer.of("a", 1) });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "duplicateMembers")
+    public void streamingUsesTheLastDuplicateMemberLikeTrees(
+        final String input, final JsonPointer ptr)
+        throws IOException
+    {
+        final JsonNode node = JsonLoader.fromString(input);
+
+        assertEquals(ptr.read(new StringReader(input)), ptr.get(node));
+    }
+
     @DataProvider
     public Iterator<Object[]> uriPointers()
     {
@@ -207,4 +277,86 @@ public final class JsonPointerTest
     {
         assertEquals(child.parent(), parent);
     }
+
+    @Test
+    public void prefixesAreDetected()
+        throws JsonPointerException
+    {
+        final JsonPointer ptr = new JsonPointer("/a/b");
+
+        assertTrue(JsonPointer.empty().isPrefixOf(ptr));
+        assertTrue(ptr.isPrefixOf(ptr));
+        assertTrue(ptr.isPrefixOf(new JsonPointer("/a/b/c")));
+        assertFalse(ptr.isPrefixOf(new JsonPointer("/a")));
+        assertFalse(ptr.isPrefixOf(new JsonPointer("/a/bc")));
+    }
+
+    @Test
+    public void relativizingWorks()
+        throws JsonPointerException
+    {
+        final JsonPointer ptr = new JsonPointer("/a");
+        final JsonPointer other = new JsonPointer("/a/b~1c/0");
+
+        assertEquals(ptr.relativize(other), new JsonPointer("/b~1c/0"));
+        assertEquals(ptr.append(ptr.relativize(other)), other);
+        assertEquals(other.relativize(other), JsonPointer.empty());
+    }
+
+    @Test
+    public void cannotRelativizeIfNotAPrefix()
+        throws JsonPointerException
+    {
+        try {
+            new JsonPointer("/a/b").relativize(new JsonPointer("/a/c"));
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage("notAPrefix"));
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> commonAncestors()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "/a/b/c", "/a/b/d", "/a/b" });
+        list.add(new Object[] { "/a/b", "/a/b/d", "/a/b" });
+        list.add(new Object[] { "/a/b/d", "/a/b", "/a/b" });
+        list.add(new Object[] { "/a", "/b", "" });
+        list.add(new Object[] { "", "/b", "" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "commonAncestors")
+    public void commonAncestorComputationWorks(final String first,
+        final String second, final String ancestor)
+        throws JsonPointerException
+    {
+        final JsonPointer p1 = new JsonPointer(first);
+        final JsonPointer p2 = new JsonPointer(second);
+        final JsonPointer expected = new JsonPointer(ancestor);
+
+        assertEquals(p1.commonAncestor(p2), expected);
+        assertEquals(p2.commonAncestor(p1), expected);
+    }
+
+    @Test
+    public void pointersAreOrderedTokenByToken()
+        throws JsonPointerException
+    {
+        final List<JsonPointer> expected = Lists.newArrayList(
+            JsonPointer.empty(), new JsonPointer("/a"),
+            new JsonPointer("/a/b"), new JsonPointer("/a/b/c"),
+            new JsonPointer("/a/c"), new JsonPointer("/a~1b"),
+            new JsonPointer("/b")
+        );
+        final List<JsonPointer> list = Lists.reverse(expected);
+        final List<JsonPointer> sorted = Lists.newArrayList(list);
+
+        Collections.sort(sorted);
+        assertEquals(sorted, expected);
+        assertEquals(new JsonPointer("/a").compareTo(JsonPointer.of("a")), 0);
+    }
 }
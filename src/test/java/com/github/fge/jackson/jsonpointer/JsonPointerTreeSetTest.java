@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package com.github.fge.jackson.jsonpointer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class JsonPointerTreeSetTest
+{
+    private final JsonPointerTreeSet set;
+
+    public JsonPointerTreeSetTest()
+        throws JsonPointerException
+    {
+        set = JsonPointerTreeSet.of(
+            new JsonPointer("/users/0/name"),
+            new JsonPointer("/users"),
+            new JsonPointer("/users/1"),
+            new JsonPointer("/admin"),
+            new JsonPointer("/users/10/email"),
+            new JsonPointer("/usersettings"),
+            new JsonPointer("/users")
+        );
+    }
+
+    @Test
+    public void pointersAreSortedAndDeduplicated()
+        throws JsonPointerException
+    {
+        final List<String> expected = ImmutableList.of("/admin", "/users",
+            "/users/0/name", "/users/1", "/users/10/email", "/usersettings");
+        final List<String> actual = Lists.newArrayList();
+
+        for (final JsonPointer pointer: set)
+            actual.add(pointer.toString());
+
+        assertEquals(actual, expected);
+        assertEquals(set.size(), 6);
+        assertTrue(set.contains(new JsonPointer("/users/1")));
+        assertFalse(set.contains(new JsonPointer("/users/2")));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> subtrees()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "", 6 });
+        list.add(new Object[] { "/users", 4 });
+        list.add(new Object[] { "/users/1", 1 });
+        list.add(new Object[] { "/users/0", 1 });
+        list.add(new Object[] { "/users/2", 0 });
+        list.add(new Object[] { "/user", 0 });
+        list.add(new Object[] { "/zzz", 0 });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "subtrees")
+    public void subtreeQueriesWork(final String input, final int count)
+        throws JsonPointerException
+    {
+        final JsonPointer prefix = new JsonPointer(input);
+        final List<JsonPointer> subtree = set.subtree(prefix);
+        int expected = 0;
+
+        for (final JsonPointer pointer: set)
+            if (prefix.isPrefixOf(pointer))
+                expected++;
+
+        assertEquals(subtree.size(), count);
+        assertEquals(expected, count);
+        for (final JsonPointer pointer: subtree)
+            assertTrue(prefix.isPrefixOf(pointer));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> coveringPrefixes()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "/users", "/users" });
+        list.add(new Object[] { "/users/0/name/first", "/users/0/name" });
+        list.add(new Object[] { "/users/0/age", "/users" });
+        list.add(new Object[] { "/users/10/email", "/users/10/email" });
+        list.add(new Object[] { "/users/1/email", "/users/1" });
+        list.add(new Object[] { "/admin/x", "/admin" });
+        list.add(new Object[] { "/user", null });
+        list.add(new Object[] { "/zzz/a", null });
+        list.add(new Object[] { "", null });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "coveringPrefixes")
+    public void coveringPrefixIsTheLongestPrefix(final String input,
+        final String expected)
+        throws JsonPointerException
+    {
+        final JsonPointer pointer = new JsonPointer(input);
+        final JsonPointer prefix = set.coveringPrefix(pointer);
+
+        if (expected == null) {
+            assertNull(prefix);
+            assertFalse(set.covers(pointer));
+        } else {
+            assertEquals(prefix, new JsonPointer(expected));
+            assertTrue(set.covers(pointer));
+        }
+    }
+
+    @Test
+    public void emptyPointerCoversEverything()
+        throws JsonPointerException
+    {
+        final JsonPointerTreeSet all = JsonPointerTreeSet.of(
+            JsonPointer.empty(), new JsonPointer("/b/c"));
+
+        assertEquals(all.coveringPrefix(new JsonPointer("/a/b")),
+            JsonPointer.empty());
+        assertEquals(all.coveringPrefix(new JsonPointer("/b/d")),
+            JsonPointer.empty());
+        assertEquals(all.coveringPrefix(new JsonPointer("/b/c/d")),
+            new JsonPointer("/b/c"));
+    }
+}
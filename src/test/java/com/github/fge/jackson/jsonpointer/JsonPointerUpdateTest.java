@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableList;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import static org.testng.Assert.*;
+
+public final class JsonPointerUpdateTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+    private static final String INPUT
+        = "{\"a\":{\"b\":[1,2,3],\"c\":{\"d\":true}},\"e\":[{\"f\":null}]}";
+
+    private JsonNode document;
+    private JsonNode copy;
+
+    @BeforeMethod
+    public void initDocument()
+        throws IOException
+    {
+        document = JsonLoader.fromString(INPUT);
+        copy = document.deepCopy();
+    }
+
+    @DataProvider
+    public Iterator<Object[]> successfulUpdates()
+    {
+        return ImmutableList.of(
+            new Object[] { "add", "/a/b/1", "{\"a\":{\"b\":[1,\"x\",2,3],"
+                + "\"c\":{\"d\":true}},\"e\":[{\"f\":null}]}" },
+            new Object[] { "add", "/a/b/-", "{\"a\":{\"b\":[1,2,3,\"x\"],"
+                + "\"c\":{\"d\":true}},\"e\":[{\"f\":null}]}" },
+            new Object[] { "add", "/e/0/g", "{\"a\":{\"b\":[1,2,3],"
+                + "\"c\":{\"d\":true}},\"e\":[{\"f\":null,\"g\":\"x\"}]}" },
+            new Object[] { "add", "/a/c", "{\"a\":{\"b\":[1,2,3],"
+                + "\"c\":\"x\"},\"e\":[{\"f\":null}]}" },
+            new Object[] { "add", "", "\"x\"" },
+            new Object[] { "replace", "/a/b/2", "{\"a\":{\"b\":[1,2,\"x\"],"
+                + "\"c\":{\"d\":true}},\"e\":[{\"f\":null}]}" },
+            new Object[] { "replace", "/e/0/f", "{\"a\":{\"b\":[1,2,3],"
+                + "\"c\":{\"d\":true}},\"e\":[{\"f\":\"x\"}]}" },
+            new Object[] { "replace", "", "\"x\"" },
+            new Object[] { "remove", "/a/b/0", "{\"a\":{\"b\":[2,3],"
+                + "\"c\":{\"d\":true}},\"e\":[{\"f\":null}]}" },
+            new Object[] { "remove", "/a/c/d", "{\"a\":{\"b\":[1,2,3],"
+                + "\"c\":{}},\"e\":[{\"f\":null}]}" },
+            new Object[] { "remove", "/e", "{\"a\":{\"b\":[1,2,3],"
+                + "\"c\":{\"d\":true}}}" }
+        ).iterator();
+    }
+
+    @Test(dataProvider = "successfulUpdates")
+    public void updatesWorkAndLeaveOriginalUntouched(final String op,
+        final String input, final String expected)
+        throws JsonPointerException, IOException
+    {
+        final JsonPointer ptr = new JsonPointer(input);
+        final JsonNode value = FACTORY.textNode("x");
+        final JsonNode result;
+
+        if ("add".equals(op))
+            result = ptr.add(document, value);
+        else if ("replace".equals(op))
+            result = ptr.replace(document, value);
+        else
+            result = ptr.remove(document);
+
+        assertEquals(result, JsonLoader.fromString(expected));
+        assertEquals(document, copy);
+    }
+
+    @Test
+    public void untouchedValuesAreShared()
+        throws JsonPointerException
+    {
+        final JsonPointer ptr = JsonPointer.of("a", "c", "d");
+        final JsonNode result = ptr.replace(document, FACTORY.nullNode());
+
+        assertNotSame(result, document);
+        assertNotSame(result.get("a"), document.get("a"));
+        assertSame(result.get("e"), document.get("e"));
+        assertSame(result.get("a").get("b"), document.get("a").get("b"));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> failedUpdates()
+    {
+        return ImmutableList.of(
+            new Object[] { "add", "/x/y", "noSuchParent" },
+            new Object[] { "add", "/a/b/0/x", "noSuchParent" },
+            new Object[] { "add", "/a/b/4", "illegalIndex" },
+            new Object[] { "add", "/a/b/01", "illegalIndex" },
+            new Object[] { "replace", "/a/x", "noSuchTarget" },
+            new Object[] { "replace", "/a/b/3", "noSuchTarget" },
+            new Object[] { "replace", "/a/b/-", "noSuchTarget" },
+            new Object[] { "remove", "/e/1", "noSuchTarget" },
+            new Object[] { "remove", "/e/0/g", "noSuchTarget" },
+            new Object[] { "remove", "", "cannotRemoveRoot" }
+        ).iterator();
+    }
+
+    @Test(dataProvider = "failedUpdates")
+    public void failedUpdatesAreReported(final String op, final String input,
+        final String key)
+        throws JsonPointerException
+    {
+        final JsonPointer ptr = new JsonPointer(input);
+        final JsonNode value = FACTORY.textNode("x");
+
+        try {
+            if ("add".equals(op))
+                ptr.add(document, value);
+            else if ("replace".equals(op))
+                ptr.replace(document, value);
+            else
+                ptr.remove(document);
+            fail("No exception thrown!!");
+        } catch (JsonPointerException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage(key));
+        }
+
+        assertEquals(document, copy);
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public final class JsonStreamComparatorTest
+{
+    private static final JsonStreamComparator COMPARATOR
+        = JsonStreamComparator.getInstance();
+
+    @DataProvider
+    public Iterator<Object[]> getEquivalences()
+        throws IOException
+    {
+        final JsonNode testData = JsonLoader.fromResource("/testfile.json");
+        final List<Object[]> list = Lists.newArrayList();
+
+        String reference;
+
+        for (final JsonNode element: testData) {
+            reference = element.get("reference").toString();
+            for (final JsonNode node: element.get("equivalences"))
+                list.add(new Object[]{ reference, node.toString() });
+        }
+
+        list.add(new Object[]{ "{\"a\":1,\"b\":[2,{\"c\":3.0}]}",
+            "{\"b\":[2.0,{\"c\":3}],\"a\":1}" });
+        list.add(new Object[]{ "{\"a\":1,\"b\":2,\"c\":3,\"d\":4}",
+            "{\"a\":1,\"c\":3,\"b\":2,\"d\":4}" });
+        list.add(new Object[]{ "{\"x\":{\"a\":[],\"b\":{}},\"y\":null}",
+            "{\"y\":null,\"x\":{\"b\":{},\"a\":[]}}" });
+        list.add(new Object[]{ "1e400", "10e399" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getEquivalences")
+    public void equivalentInputsHaveNoDifference(final String input1,
+        final String input2)
+        throws IOException
+    {
+        assertNull(COMPARATOR.firstDifference(new StringReader(input1),
+            new StringReader(input2)));
+        assertNull(COMPARATOR.firstDifference(new StringReader(input2),
+            new StringReader(input1)));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getDifferences()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[]{ "1", "2", "" });
+        list.add(new Object[]{ "1", "\"1\"", "" });
+        list.add(new Object[]{ "[1,2,3]", "[1,2]", "/2" });
+        list.add(new Object[]{ "[1,[2,3]]", "[1,[2,4]]", "/1/1" });
+        list.add(new Object[]{ "[1,{}]", "[1,[]]", "/1" });
+        list.add(new Object[]{ "{\"a\":1,\"b\":2}", "{\"a\":1,\"b\":3}",
+            "/b" });
+        list.add(new Object[]{ "{\"a\":1,\"b\":2}", "{\"a\":1}", "/b" });
+        list.add(new Object[]{ "{\"a\":1,\"b\":2}", "{\"a\":1,\"c\":2}",
+            "/b" });
+        list.add(new Object[]{ "{\"a\":1,\"b\":{\"c\":[1,2]}}",
+            "{\"b\":{\"c\":[1,3]},\"a\":1}", "/b/c/1" });
+        list.add(new Object[]{ "{\"a/b\":{\"c~d\":true}}",
+            "{\"a/b\":{\"c~d\":false}}", "/a~1b/c~0d" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getDifferences")
+    public void firstDifferenceIsReported(final String input1,
+        final String input2, final String pointer)
+        throws IOException, JsonPointerException
+    {
+        assertEquals(COMPARATOR.firstDifference(new StringReader(input1),
+            new StringReader(input2)), new JsonPointer(pointer));
+    }
+
+    @Test
+    public void differentlyOrderedMembersAreBufferedUpToTheLimit()
+        throws IOException
+    {
+        final String input1 = "{\"a\":1,\"b\":2,\"c\":3}";
+        final String input2 = "{\"c\":3,\"b\":2,\"a\":1}";
+
+        assertNull(JsonStreamComparator.withMaxBufferedMembers(2)
+            .firstDifference(new StringReader(input1),
+                new StringReader(input2)));
+
+        try {
+            JsonStreamComparator.withMaxBufferedMembers(1)
+                .firstDifference(new StringReader(input1),
+                    new StringReader(input2));
+            fail("No exception thrown!!");
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Test
+    public void membersUnmatchedOnceAnObjectEndsAreNotBuffered()
+        throws IOException
+    {
+        final StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i <= 100000; i++)
+            sb.append(i == 0 ? "" : ",").append("\"m").append(i)
+                .append("\":").append(i);
+        sb.append('}');
+
+        final JsonPointer ptr = COMPARATOR.firstDifference(
+            new StringReader("{\"q\":1}"), new StringReader(sb.toString()));
+        assertEquals(ptr, JsonPointer.of("q"));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getTruncatedInputs()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[]{ "{\"a\":1}", "{\"a\":1,\"b\":2,\"c\":",
+            "/b" });
+        list.add(new Object[]{ "{\"a\":1}", "{\"b\":2,\"a\":1,\"c\":[",
+            "/b" });
+        list.add(new Object[]{ "[1,2]", "[1,{\"a\":", "/1" });
+        list.add(new Object[]{ "{\"a\":1}", "{\"a\":[", "/a" });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getTruncatedInputs")
+    public void inputIsNotReadPastTheFirstDifference(final String input1,
+        final String input2, final String pointer)
+        throws IOException, JsonPointerException
+    {
+        assertEquals(COMPARATOR.firstDifference(new StringReader(input1),
+            new StringReader(input2)), new JsonPointer(pointer));
+    }
+
+    @Test
+    public void currentTokenOfParsersIsHonored()
+        throws IOException
+    {
+        final JsonFactory factory = JacksonUtils.getReader().getFactory();
+        final JsonParser parser1 = factory.createParser("[1,{\"a\":2}]");
+        parser1.nextToken();
+        parser1.nextToken();
+        parser1.nextToken();
+
+        assertTrue(COMPARATOR.equivalent(parser1,
+            factory.createParser("{\"a\":2.0}")));
+        assertSame(parser1.nextToken(), JsonToken.END_ARRAY);
+    }
+
+    @Test
+    public void negativeBufferSizeIsRejected()
+    {
+        try {
+            JsonStreamComparator.withMaxBufferedMembers(-1);
+            fail("No exception thrown!!");
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void parsersCanBeComparedDirectly()
+        throws IOException
+    {
+        final StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 100000; i++)
+            sb.append('[');
+        for (int i = 0; i < 100000; i++)
+            sb.append(']');
+        sb.append(']');
+        final String input = sb.toString();
+
+        assertTrue(COMPARATOR.equivalent(
+            JacksonUtils.getReader().getFactory().createParser(input),
+            JacksonUtils.getReader().getFactory().createParser(input)));
+    }
+}
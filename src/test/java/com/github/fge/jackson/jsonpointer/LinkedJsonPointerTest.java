@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public final class LinkedJsonPointerTest
+{
+    private final JsonNode testData;
+    private final JsonNode document;
+
+    public LinkedJsonPointerTest()
+        throws IOException
+    {
+        testData = JsonLoader.fromResource("/jsonpointer/jsonpointer.json");
+        document = testData.get("document");
+    }
+
+    @DataProvider
+    public Iterator<Object[]> rawPointers()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+        final JsonNode testNode = testData.get("pointers");
+        final Map<String, JsonNode> map = JacksonUtils.asMap(testNode);
+
+        for (final Map.Entry<String, JsonNode> entry: map.entrySet())
+            list.add(new Object[] { entry.getKey(), entry.getValue() });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "rawPointers")
+    public void conversionsPreserveTokensAndResolution(final String input,
+        final JsonNode expected)
+        throws JsonPointerException
+    {
+        final JsonPointer pointer = new JsonPointer(input);
+        final LinkedJsonPointer linked = LinkedJsonPointer.copyOf(pointer);
+
+        assertEquals(linked.get(document), expected);
+        assertEquals(linked.toString(), pointer.toString());
+        assertEquals(linked.hashCode(), pointer.hashCode());
+        assertEquals(linked.toJsonPointer(), pointer);
+        assertEquals(LinkedJsonPointer.empty().append(pointer), linked);
+    }
+
+    @Test
+    public void appendedPointersShareTheirParent()
+    {
+        final LinkedJsonPointer parent = LinkedJsonPointer.empty()
+            .append("a/b");
+        final LinkedJsonPointer child1 = parent.append(0);
+        final LinkedJsonPointer child2 = parent.append("c~d");
+
+        assertSame(child1.parent(), parent);
+        assertSame(child2.parent(), parent);
+        assertEquals(child1.size(), 2);
+        assertEquals(child2.toString(), "/a~1b/c~0d");
+        assertEquals(child2.getLastToken(), ReferenceToken.fromRaw("c~d"));
+        assertEquals(child2.toJsonPointer(), JsonPointer.of("a/b", "c~d"));
+        assertEquals(child1.toJsonPointer().hashCode(), child1.hashCode());
+    }
+
+    @Test
+    public void equalityDoesNotDependOnSharing()
+    {
+        final LinkedJsonPointer p1 = LinkedJsonPointer.empty().append("foo")
+            .append(1);
+        final LinkedJsonPointer p2 = LinkedJsonPointer.copyOf(
+            JsonPointer.of("foo", 1));
+
+        assertEquals(p1, p2);
+        assertEquals(p1.hashCode(), p2.hashCode());
+        assertFalse(p1.equals(p1.parent().append(2)));
+        assertFalse(p1.equals(p1.parent()));
+    }
+
+    @Test
+    public void emptyPointerIsItsOwnParent()
+    {
+        final LinkedJsonPointer empty = LinkedJsonPointer.empty();
+
+        assertTrue(empty.isEmpty());
+        assertSame(empty.parent(), empty);
+        assertNull(empty.getLastToken());
+        assertSame(empty.get(document), document);
+        assertEquals(empty.toJsonPointer(), JsonPointer.empty());
+        assertSame(LinkedJsonPointer.copyOf(JsonPointer.empty()), empty);
+        assertSame(empty.append("foo").append(0).append("bar")
+            .path(document), MissingNode.getInstance());
+    }
+}
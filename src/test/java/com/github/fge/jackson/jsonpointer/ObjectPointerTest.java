@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.github.fge.msgsimple.bundle.MessageBundle;
+import com.github.fge.msgsimple.load.MessageBundles;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.testng.Assert.*;
+
+public final class ObjectPointerTest
+{
+    private static final MessageBundle BUNDLE
+        = MessageBundles.getBundle(JsonPointerMessages.class);
+
+    private final JsonNode testData;
+    private final Object document;
+
+    public ObjectPointerTest()
+        throws IOException
+    {
+        testData = JsonLoader.fromResource("/jsonpointer/jsonpointer.json");
+        document = JacksonUtils.newMapper().treeToValue(
+            testData.get("document"), Object.class);
+    }
+
+    @Test
+    public void cannotBuildFromNullPointer()
+    {
+        try {
+            ObjectPointer.of((JsonPointer) null);
+            fail("No exception thrown!!");
+        } catch (NullPointerException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage("nullInput"));
+        }
+    }
+
+    @DataProvider
+    public Iterator<Object[]> rawPointers()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+        final JsonNode testNode = testData.get("pointers");
+        final Map<String, JsonNode> map = JacksonUtils.asMap(testNode);
+
+        for (final Map.Entry<String, JsonNode> entry: map.entrySet())
+            list.add(new Object[] { entry.getKey(), entry.getValue() });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "rawPointers")
+    public void resolvingMapsAndListsWorks(final String input,
+        final JsonNode expected)
+        throws JsonPointerException
+    {
+        final ObjectPointer pointer = ObjectPointer.of(input);
+        final Object actual = pointer.get(document);
+
+        assertTrue(pointer.has(document));
+        assertEquals(JacksonUtils.newMapper().valueToTree(actual), expected);
+    }
+
+    @Test
+    public void nullValuesAreTold()
+        throws JsonPointerException
+    {
+        final Map<String, Object> map = Maps.newHashMap();
+        map.put("a", null);
+
+        final ObjectPointer present = ObjectPointer.of("/a");
+        final ObjectPointer missing = ObjectPointer.of("/b");
+
+        assertNull(present.get(map));
+        assertTrue(present.has(map));
+        assertNull(missing.get(map));
+        assertFalse(missing.has(map));
+        assertFalse(ObjectPointer.of("/a/b").has(map));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> indices()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[] { "/1", true });
+        list.add(new Object[] { "/2", true });
+        list.add(new Object[] { "/3", false });
+        list.add(new Object[] { "/01", false });
+        list.add(new Object[] { "/-1", false });
+        list.add(new Object[] { "/x", false });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "indices")
+    public void listsAndArraysFollowArrayIndexRules(final String input,
+        final boolean present)
+        throws JsonPointerException
+    {
+        final ObjectPointer pointer = ObjectPointer.of(input);
+
+        assertEquals(pointer.has(Arrays.asList("a", "b", "c")), present);
+        assertEquals(pointer.has(new String[] { "a", "b", "c" }), present);
+        assertEquals(pointer.has(new int[] { 1, 2, 3 }), present);
+    }
+
+    @Test
+    public void gettersAreOnlyUsedIfEnabled()
+        throws JsonPointerException
+    {
+        final Person person = new Person("John", new Address("Paris"));
+        final Object document = ImmutableMap.of("people",
+            Arrays.asList(person));
+        final ObjectPointer pointer
+            = ObjectPointer.of("/people/0/address/city");
+
+        assertFalse(pointer.has(document));
+        assertEquals(pointer.withGetters().get(document), "Paris");
+        assertTrue(pointer.withGetters().has(document));
+        assertFalse(ObjectPointer.of("/people/0/age").withGetters()
+            .has(document));
+        assertFalse(ObjectPointer.of("/people/0/name/length").withGetters()
+            .has(document));
+        assertFalse(ObjectPointer.of("/people/0/class").withGetters()
+            .has(document));
+        assertEquals(ObjectPointer.of("/people/0/name").withGetters()
+            .get(document), "John");
+    }
+
+    @Test
+    public void mapsNotAcceptingStringKeysHaveNoMembers()
+        throws JsonPointerException
+    {
+        final Map<Integer, String> map = new TreeMap<Integer, String>();
+        map.put(1, "one");
+
+        final ObjectPointer pointer = ObjectPointer.of("/1");
+
+        assertNull(pointer.get(map));
+        assertFalse(pointer.has(map));
+    }
+
+    @Test
+    public void otherCollectionsAreNotTraversed()
+        throws JsonPointerException
+    {
+        final Set<String> set = Collections.unmodifiableSet(
+            Sets.newHashSet("a"));
+        final ObjectPointer pointer = ObjectPointer.of("/empty").withGetters();
+
+        assertNull(pointer.get(set));
+        assertFalse(pointer.has(set));
+        assertFalse(ObjectPointer.of("/0").has(set));
+    }
+
+    @Test
+    public void getterExceptionsArePropagated()
+        throws JsonPointerException
+    {
+        try {
+            ObjectPointer.of("/broken").withGetters().get(new Faulty());
+            fail("No exception thrown!!");
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "broken");
+        }
+    }
+
+    private static final class Person
+    {
+        private final String name;
+        private final Address address;
+
+        private Person(final String name, final Address address)
+        {
+            this.name = name;
+            this.address = address;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public Address getAddress()
+        {
+            return address;
+        }
+    }
+
+    private static final class Address
+    {
+        private final String city;
+
+        private Address(final String city)
+        {
+            this.city = city;
+        }
+
+        public String getCity()
+        {
+            return city;
+        }
+    }
+
+    public static final class Faulty
+    {
+        public Object getBroken()
+        {
+            throw new IllegalStateException("broken");
+        }
+    }
+}
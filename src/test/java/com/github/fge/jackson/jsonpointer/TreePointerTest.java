@@ -24,8 +24,10 @@ import com.github.fge.msgsimple.bundle.MessageBundle;
 import com.github.fge.msgsimple.load.MessageBundles;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.Iterator;
 import java.util.List;
 
 import static org.mockito.Matchers.any;
@@ -109,6 +111,44 @@ public final class TreePointerTest
         assertEquals(actual, expected);
     }
 
+    @Test
+    public void escapedTokensAreDecodedWithinAPointer()
+        throws JsonPointerException
+    {
+        final List<ReferenceToken> expected = ImmutableList.of(
+            ReferenceToken.fromRaw("a/b"),
+            ReferenceToken.fromRaw("c"),
+            ReferenceToken.fromRaw("~d~/")
+        );
+        final List<ReferenceToken> actual
+            = TreePointer.tokensFromInput("/a~1b/c/~0d~0~1");
+
+        assertEquals(actual, expected);
+    }
+
+    @DataProvider
+    public Iterator<Object[]> illegalEscapes()
+    {
+        return ImmutableList.of(
+            new Object[] { "/a~", "emptyEscape" },
+            new Object[] { "/a~/b", "emptyEscape" },
+            new Object[] { "/a/~2", "illegalEscape" },
+            new Object[] { "/a/b~~0", "illegalEscape" }
+        ).iterator();
+    }
+
+    @Test(dataProvider = "illegalEscapes")
+    public void illegalEscapesInPointerAreReported(final String input,
+        final String key)
+    {
+        try {
+            TreePointer.tokensFromInput(input);
+            fail("No exception thrown!!");
+        } catch (JsonPointerException e) {
+            assertEquals(e.getMessage(), BUNDLE.getMessage(key));
+        }
+    }
+
     @Test
     public void gettingTraversalResultGoesNoFurtherThanFirstMissing()
     {
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2014, Francis Galiegue (fgaliegue@gmail.com)
+ *
+ * This software is dual-licensed under:
+ *
+ * - the Lesser General Public License (LGPL) version 3.0 or, at your option, any
+ *   later version;
+ * - the Apache Software License (ASL) version 2.0.
+ *
+ * The text of this file and of both licenses is available at the root of this
+ * project or, if you have the jar distribution, in directory META-INF/, under
+ * the names LGPL-3.0.txt and ASL-2.0.txt respectively.
+ *
+ * Direct link to the sources:
+ *
+ * - LGPL 3.0: https://www.gnu.org/licenses/lgpl-3.0.txt
+ * - ASL 2.0: http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+
+package com.github.fge.jackson.jsonpointer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.fge.jackson.JacksonUtils;
+import com.github.fge.jackson.JsonLoader;
+import com.google.common.base.Equivalence;
+import com.google.common.collect.Lists;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+public final class UnorderedArrayEquivalenceTest
+{
+    private static final JsonNodeFactory FACTORY = JacksonUtils.nodeFactory();
+    private static final Equivalence<JsonNode> ALL_ARRAYS
+        = UnorderedArrayEquivalence.allArrays();
+
+    @DataProvider
+    public Iterator<Object[]> getInputs()
+        throws IOException
+    {
+        final JsonNode testData = JsonLoader.fromResource("/testfile.json");
+        final List<Object[]> list = Lists.newArrayList();
+
+        JsonNode reference;
+
+        for (final JsonNode element: testData) {
+            reference = element.get("reference");
+            for (final JsonNode node: element.get("equivalences"))
+                list.add(new Object[]{ reference, node });
+        }
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getInputs")
+    public void jsonNumEqualsEquivalencesStillHold(final JsonNode reference,
+        final JsonNode node)
+    {
+        assertTrue(ALL_ARRAYS.equivalent(reference, node));
+        assertEquals(ALL_ARRAYS.hash(reference), ALL_ARRAYS.hash(node));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getAllArraysCases()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        list.add(new Object[]{ "[1,2,3]", "[3,1,2]", true });
+        list.add(new Object[]{ "[1,1,2]", "[1,2,1.0]", true });
+        list.add(new Object[]{ "[1,1,2]", "[1,2,2]", false });
+        list.add(new Object[]{ "[1,2]", "[1,2,2]", false });
+        list.add(new Object[]{ "[[1,2],[3,4]]", "[[4,3],[2,1]]", true });
+        list.add(new Object[]{ "[{\"a\":[1,2]},{\"b\":3}]",
+            "[{\"b\":3},{\"a\":[2,1]}]", true });
+        list.add(new Object[]{ "[{\"a\":[1,2]},{\"b\":3}]",
+            "[{\"b\":3},{\"a\":[2,2]}]", false });
+        list.add(new Object[]{ "[[],{}]", "[{},[]]", true });
+        list.add(new Object[]{ "[\"1\",1]", "[1,1]", false });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getAllArraysCases")
+    public void arraysAreComparedAsMultisets(final String input1,
+        final String input2, final boolean equivalent)
+        throws IOException
+    {
+        final JsonNode node1 = JsonLoader.fromString(input1);
+        final JsonNode node2 = JsonLoader.fromString(input2);
+
+        assertEquals(ALL_ARRAYS.equivalent(node1, node2), equivalent);
+        assertEquals(ALL_ARRAYS.equivalent(node2, node1), equivalent);
+        if (equivalent)
+            assertEquals(ALL_ARRAYS.hash(node1), ALL_ARRAYS.hash(node2));
+    }
+
+    @DataProvider
+    public Iterator<Object[]> getPatternCases()
+    {
+        final List<Object[]> list = Lists.newArrayList();
+
+        final String document = "{\"tags\":[1,2],\"list\":[1,2],"
+            + "\"items\":[{\"ids\":[1,2]},{\"ids\":[3,4]}]}";
+
+        list.add(new Object[]{ "/tags", document,
+            "{\"tags\":[2,1],\"list\":[1,2],"
+            + "\"items\":[{\"ids\":[1,2]},{\"ids\":[3,4]}]}", true });
+        list.add(new Object[]{ "/tags", document,
+            "{\"tags\":[1,2],\"list\":[2,1],"
+            + "\"items\":[{\"ids\":[1,2]},{\"ids\":[3,4]}]}", false });
+        list.add(new Object[]{ "/items/*/ids", document,
+            "{\"tags\":[1,2],\"list\":[1,2],"
+            + "\"items\":[{\"ids\":[2,1]},{\"ids\":[4,3]}]}", true });
+        list.add(new Object[]{ "/items/1/ids", document,
+            "{\"tags\":[1,2],\"list\":[1,2],"
+            + "\"items\":[{\"ids\":[1,2]},{\"ids\":[4,3]}]}", true });
+        list.add(new Object[]{ "/items/1/ids", document,
+            "{\"tags\":[1,2],\"list\":[1,2],"
+            + "\"items\":[{\"ids\":[2,1]},{\"ids\":[3,4]}]}", false });
+        list.add(new Object[]{ "/items", document,
+            "{\"tags\":[1,2],\"list\":[1,2],"
+            + "\"items\":[{\"ids\":[3,4]},{\"ids\":[1,2]}]}", true });
+        list.add(new Object[]{ "/items", document,
+            "{\"tags\":[1,2],\"list\":[1,2],"
+            + "\"items\":[{\"ids\":[4,3]},{\"ids\":[1,2]}]}", false });
+
+        return list.iterator();
+    }
+
+    @Test(dataProvider = "getPatternCases")
+    public void onlyMatchingArraysAreUnordered(final String pattern,
+        final String input1, final String input2, final boolean equivalent)
+        throws IOException, JsonPointerException
+    {
+        final Equivalence<JsonNode> equivalence = UnorderedArrayEquivalence
+            .forPatterns(new JsonPointerPattern(pattern));
+        final JsonNode node1 = JsonLoader.fromString(input1);
+        final JsonNode node2 = JsonLoader.fromString(input2);
+
+        assertEquals(equivalence.equivalent(node1, node2), equivalent);
+        assertEquals(equivalence.equivalent(node2, node1), equivalent);
+        if (equivalent)
+            assertEquals(equivalence.hash(node1), equivalence.hash(node2));
+    }
+
+    @Test
+    public void positionsWithinUnorderedArraysAreNotMatched()
+        throws IOException, JsonPointerException
+    {
+        final Equivalence<JsonNode> equivalence = UnorderedArrayEquivalence
+            .forPatterns(new JsonPointerPattern("/a"),
+                new JsonPointerPattern("/a/0"));
+        final JsonNode node1 = JsonLoader.fromString("{\"a\":[[1,2],[3]]}");
+        final JsonNode node2 = JsonLoader.fromString("{\"a\":[[3],[2,1]]}");
+
+        assertFalse(equivalence.equivalent(node1, node2));
+    }
+
+    @Test
+    public void nullPatternsAreRejected()
+    {
+        try {
+            UnorderedArrayEquivalence.forPatterns(
+                Collections.<JsonPointerPattern>singletonList(null));
+            fail("No exception thrown!!");
+        } catch (NullPointerException ignored) {
+        }
+    }
+
+    @Test(timeOut = 10000L)
+    public void largeShuffledArraysAreEquivalent()
+    {
+        final Random random = new Random(0L);
+        final List<JsonNode> elements = Lists.newArrayList();
+
+        for (int i = 0; i < 100000; i++)
+            elements.add(FACTORY.arrayNode().add(i % 1000)
+                .add("element " + i % 5000));
+
+        final ArrayNode node1 = FACTORY.arrayNode().addAll(elements);
+        Collections.shuffle(elements, random);
+        final ArrayNode node2 = FACTORY.arrayNode().addAll(elements);
+
+        assertTrue(ALL_ARRAYS.equivalent(node1, node2));
+        assertEquals(ALL_ARRAYS.hash(node1), ALL_ARRAYS.hash(node2));
+
+        node2.set(random.nextInt(100000), FACTORY.arrayNode().add(-1));
+        assertFalse(ALL_ARRAYS.equivalent(node1, node2));
+    }
+}